@@ -1,5 +1,7 @@
 package org.gbif.checklistbank.cli.common;
 
+import org.gbif.checklistbank.neo.kvp.KvpBackend;
+
 import java.io.File;
 import java.util.UUID;
 import javax.validation.constraints.Min;
@@ -42,15 +44,29 @@ public class NeoConfiguration {
   @Parameter(names = {"--neo-shell"}, required = false)
   public boolean shell = false;
 
+  /**
+   * The implementation of the key value store holding all non neo4j usage data.
+   */
+  @NotNull
+  @Parameter(names = "--kvp-backend")
+  public KvpBackend kvpBackend = KvpBackend.MAPDB;
+
   public File neoDir(UUID datasetKey) {
     return new File(neoRepository, datasetKey.toString());
   }
 
   /**
-   * @return the KVP dbmap file used for the given dataset
+   * @return the KVP store file or directory used for the given dataset with the configured backend
    */
   public File kvp(UUID datasetKey) {
-    return new File(neoRepository, "kvp" + File.separator + datasetKey.toString());
+    return kvp(datasetKey, kvpBackend);
+  }
+
+  /**
+   * @return the KVP store file or directory used for the given dataset with the given backend
+   */
+  public File kvp(UUID datasetKey, KvpBackend backend) {
+    return new File(neoRepository, "kvp" + File.separator + datasetKey.toString() + backend.suffix);
   }
 
   /**
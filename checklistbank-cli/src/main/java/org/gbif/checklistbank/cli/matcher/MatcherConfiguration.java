@@ -4,7 +4,9 @@ import org.gbif.checklistbank.cli.common.GangliaConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.common.messaging.config.MessagingConfiguration;
 import org.gbif.common.search.inject.SolrConfig;
+import org.gbif.nub.lookup.straight.IdLookupType;
 
+import java.io.File;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -23,6 +25,20 @@ public class MatcherConfiguration {
   @Min(1)
   public int poolSize = 1;
 
+  /**
+   * The id lookup implementation used to match names to the backbone.
+   */
+  @Parameter(names = "--id-lookup")
+  @NotNull
+  public IdLookupType idLookup = IdLookupType.MAPDB;
+
+  /**
+   * Optional snapshot file of the compact id lookup reused across restarts until the backbone changes.
+   * If given the compact id lookup is always used.
+   */
+  @Parameter(names = "--id-lookup-snapshot")
+  public File idLookupSnapshot;
+
   @ParametersDelegate
   @Valid
   @NotNull
@@ -10,7 +10,7 @@ import org.gbif.checklistbank.service.mybatis.guice.Mybatis;
 import org.gbif.common.messaging.api.messages.MatchDatasetMessage;
 import org.gbif.nub.lookup.straight.DatasetMatchFailed;
 import org.gbif.nub.lookup.straight.IdLookup;
-import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupSnapshot;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -40,8 +40,10 @@ public class MatcherService extends RabbitDatasetService<MatchDatasetMessage> {
 
   @Override
   protected void startUpBeforeListening() throws Exception {
-    // loads all nub usages directly from clb postgres - this can take a few minutes
-    IdLookup lookup = IdLookupImpl.temp().load(cfg.clb, false);
+    // loads all nub usages directly from clb postgres - this can take a few minutes unless a current snapshot exists
+    IdLookup lookup = cfg.idLookupSnapshot == null ?
+        cfg.idLookup.load(cfg.clb, false) :
+        IdLookupSnapshot.load(cfg.clb, false, cfg.idLookupSnapshot);
     matcher = new NubMatchService(cfg.clb, lookup, sqlImportService, solrImportService, publisher);
   }
 
@@ -0,0 +1,63 @@
+package org.gbif.checklistbank.cli.matchfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.Files;
+
+/**
+ * The number of input rows already matched and the size of the output file written for them.
+ * Stored as a single tab delimited line in a file next to the output.
+ */
+class Checkpoint {
+  private static final Splitter TAB = Splitter.on('\t').trimResults();
+
+  final long rows;
+  final long bytes;
+
+  Checkpoint(long rows, long bytes) {
+    this.rows = rows;
+    this.bytes = bytes;
+  }
+
+  static File file(File output) {
+    return new File(output.getParentFile(), output.getName() + ".checkpoint");
+  }
+
+  /**
+   * @return the last checkpoint for the given output file or null if none exists
+   */
+  @Nullable
+  static Checkpoint read(File output) throws IOException {
+    File f = file(output);
+    if (!f.exists()) {
+      return null;
+    }
+    String line = Files.toString(f, StandardCharsets.UTF_8);
+    try {
+      List<String> vals = TAB.splitToList(line);
+      return new Checkpoint(Long.parseLong(vals.get(0)), Long.parseLong(vals.get(1)));
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt checkpoint file " + f.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Atomically replaces the checkpoint of the given output file.
+   */
+  void write(File output) throws IOException {
+    File f = file(output);
+    File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+    Files.write(rows + "\t" + bytes, tmp, StandardCharsets.UTF_8);
+    java.nio.file.Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  static void delete(File output) {
+    file(output).delete();
+  }
+}
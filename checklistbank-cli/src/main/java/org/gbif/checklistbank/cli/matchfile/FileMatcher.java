@@ -0,0 +1,270 @@
+package org.gbif.checklistbank.cli.matchfile;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.nub.lookup.fuzzy.BatchMatcher;
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+import org.gbif.utils.file.csv.CSVReader;
+import org.gbif.utils.file.csv.CSVReaderFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches all names of a delimited file and writes the input rows together with their match
+ * as a tab delimited file in the same order as the input.
+ * Names are matched in parallel by a {@link BatchMatcher} which keeps a bounded number of rows in memory.
+ *
+ * A checkpoint with the number of rows written and the size of the output file is kept next to the output,
+ * so an interrupted run can be resumed. The checkpoint is removed once all rows have been matched.
+ */
+public class FileMatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(FileMatcher.class);
+  private static final int PROGRESS_INTERVAL = 10000;
+  private static final int WINDOW_PER_THREAD = 1000;
+  static final String[] MATCH_COLUMNS = new String[]{"matchType", "confidence", "usageKey", "acceptedUsageKey",
+      "scientificName", "rank", "status", "kingdom", "phylum", "class", "order", "family", "genus"};
+
+  private enum Column {NAME, RANK, KINGDOM, PHYLUM, CLASS, ORDER, FAMILY, GENUS, SUBGENUS}
+
+  private static final Map<String, Column> COLUMN_NAMES = ImmutableMap.<String, Column>builder()
+      .put("name", Column.NAME)
+      .put("scientificname", Column.NAME)
+      .put("rank", Column.RANK)
+      .put("taxonrank", Column.RANK)
+      .put("kingdom", Column.KINGDOM)
+      .put("phylum", Column.PHYLUM)
+      .put("class", Column.CLASS)
+      .put("order", Column.ORDER)
+      .put("family", Column.FAMILY)
+      .put("genus", Column.GENUS)
+      .put("subgenus", Column.SUBGENUS)
+      .build();
+
+  private final NameUsageMatchingService matcher;
+  private final int threads;
+  private final int checkpointInterval;
+
+  /**
+   * @param threads number of threads to match names with
+   * @param checkpointInterval number of rows after which a new checkpoint is written
+   */
+  public FileMatcher(NameUsageMatchingService matcher, int threads, int checkpointInterval) {
+    Preconditions.checkArgument(checkpointInterval > 0, "Checkpoint interval needs to be positive");
+    this.matcher = matcher;
+    this.threads = threads;
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  /**
+   * @param delimiter column delimiter of the input file. Comma delimited files may quote values with double quotes
+   * @param resume if true continue from the last checkpoint of the output file, otherwise start from scratch
+   * @return number of rows matched in this run
+   */
+  public long match(File input, String delimiter, File output, boolean strict, boolean resume) throws IOException {
+    Checkpoint checkpoint = resume ? Checkpoint.read(output) : null;
+    if (resume && checkpoint == null) {
+      LOG.warn("No checkpoint found for {}, start matching from scratch", output);
+    }
+
+    Character quotes = ",".equals(delimiter) ? '"' : null;
+    CSVReader reader = CSVReaderFactory.build(input, "UTF-8", delimiter, quotes, 0);
+    try (FileOutputStream out = new FileOutputStream(output, checkpoint != null)) {
+      Preconditions.checkArgument(reader.hasNext(), "Input file without header row");
+      final String[] header = reader.next();
+      final Column[] columns = columns(header);
+
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      long skip = 0;
+      if (checkpoint == null) {
+        writeHeader(writer, header);
+      } else {
+        // remove rows written after the last checkpoint
+        out.getChannel().truncate(checkpoint.bytes);
+        skip = checkpoint.rows;
+        LOG.info("Resume matching after {} rows", skip);
+      }
+
+      RowIterator rows = new RowIterator(reader, columns, skip);
+      ProgressHandler handler = new ProgressHandler(rows, writer, out, output, header.length, skip);
+      try (BatchMatcher batch = new BatchMatcher(matcher, threads, WINDOW_PER_THREAD)) {
+        batch.match(rows, strict, false, handler);
+      }
+      writer.flush();
+      handler.logProgress();
+      Checkpoint.delete(output);
+      return handler.counter;
+
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static Column[] columns(String[] header) {
+    Column[] columns = new Column[header.length];
+    boolean hasName = false;
+    for (int idx = 0; idx < header.length; idx++) {
+      if (header[idx] != null) {
+        columns[idx] = COLUMN_NAMES.get(header[idx].trim().toLowerCase());
+        hasName = hasName || columns[idx] == Column.NAME;
+      }
+    }
+    Preconditions.checkArgument(hasName, "Input file without name column: " + Arrays.toString(header));
+    return columns;
+  }
+
+  private static void writeHeader(Writer writer, String[] header) throws IOException {
+    String[] row = Arrays.copyOf(header, header.length + MATCH_COLUMNS.length);
+    System.arraycopy(MATCH_COLUMNS, 0, row, header.length, MATCH_COLUMNS.length);
+    writeRow(writer, row);
+  }
+
+  private static void writeRow(Writer writer, String[] row) throws IOException {
+    for (int idx = 0; idx < row.length; idx++) {
+      if (idx > 0) {
+        writer.write('\t');
+      }
+      if (row[idx] != null) {
+        // tabs and line breaks would break the output format
+        writer.write(row[idx].replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+      }
+    }
+    writer.write('\n');
+  }
+
+  private static String str(Object obj) {
+    return obj == null ? null : obj.toString();
+  }
+
+  /**
+   * Converts input rows into match queries, remembering the rows in flight so the handler can write them out again.
+   */
+  private static class RowIterator implements Iterator<MatchQuery> {
+    private final CSVReader reader;
+    private final Column[] columns;
+    private final Deque<String[]> inFlight = new ArrayDeque<String[]>();
+
+    RowIterator(CSVReader reader, Column[] columns, long skip) {
+      this.reader = reader;
+      this.columns = columns;
+      for (long idx = 0; idx < skip && reader.hasNext(); idx++) {
+        reader.next();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return reader.hasNext();
+    }
+
+    @Override
+    public MatchQuery next() {
+      if (!reader.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String[] row = reader.next();
+      inFlight.addLast(row);
+      MatchQuery q = new MatchQuery();
+      for (int idx = 0; idx < columns.length && idx < row.length; idx++) {
+        if (columns[idx] != null) {
+          set(q, columns[idx], row[idx]);
+        }
+      }
+      return q;
+    }
+
+    private static void set(MatchQuery q, Column col, String value) {
+      switch (col) {
+        case NAME: q.setName(value); break;
+        case RANK: q.setRank(value); break;
+        case KINGDOM: q.setKingdom(value); break;
+        case PHYLUM: q.setPhylum(value); break;
+        case CLASS: q.setClazz(value); break;
+        case ORDER: q.setOrder(value); break;
+        case FAMILY: q.setFamily(value); break;
+        case GENUS: q.setGenus(value); break;
+        case SUBGENUS: q.setSubgenus(value); break;
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Writes matched rows in input order, logs the progress and writes checkpoints.
+   */
+  private class ProgressHandler implements BatchMatcher.MatchHandler {
+    private final RowIterator rows;
+    private final Writer writer;
+    private final FileOutputStream out;
+    private final File output;
+    private final int inputColumns;
+    private final long skipped;
+    private final StopWatch watch = new StopWatch();
+    private long counter;
+
+    ProgressHandler(RowIterator rows, Writer writer, FileOutputStream out, File output, int inputColumns, long skipped) {
+      this.rows = rows;
+      this.writer = writer;
+      this.out = out;
+      this.output = output;
+      this.inputColumns = inputColumns;
+      this.skipped = skipped;
+      watch.start();
+    }
+
+    @Override
+    public void handle(MatchQuery query, NameUsageMatch m) throws IOException {
+      String[] row = Arrays.copyOf(rows.inFlight.removeFirst(), inputColumns + MATCH_COLUMNS.length);
+      int idx = inputColumns;
+      row[idx++] = str(m.getMatchType());
+      row[idx++] = str(m.getConfidence());
+      row[idx++] = str(m.getUsageKey());
+      row[idx++] = str(m.getAcceptedUsageKey());
+      row[idx++] = m.getScientificName();
+      row[idx++] = str(m.getRank());
+      row[idx++] = str(m.getStatus());
+      row[idx++] = m.getKingdom();
+      row[idx++] = m.getPhylum();
+      row[idx++] = m.getClazz();
+      row[idx++] = m.getOrder();
+      row[idx++] = m.getFamily();
+      row[idx] = m.getGenus();
+      writeRow(writer, row);
+
+      counter++;
+      if (counter % PROGRESS_INTERVAL == 0) {
+        logProgress();
+      }
+      if (counter % checkpointInterval == 0) {
+        writer.flush();
+        new Checkpoint(skipped + counter, out.getChannel().position()).write(output);
+      }
+    }
+
+    void logProgress() {
+      long secs = Math.max(1, watch.getTime() / 1000);
+      LOG.info("Matched {} names, {} names/s", skipped + counter, counter / secs);
+    }
+  }
+}
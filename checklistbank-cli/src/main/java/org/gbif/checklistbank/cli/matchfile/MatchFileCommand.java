@@ -0,0 +1,59 @@
+package org.gbif.checklistbank.cli.matchfile;
+
+import org.gbif.cli.BaseCommand;
+import org.gbif.cli.Command;
+import org.gbif.nameparser.NameParser;
+import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+
+import java.io.IOException;
+
+import org.kohsuke.MetaInfServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command that matches a delimited file of names offline against an existing nub index directory.
+ * Synonym dictionaries are read from a local folder or the bundled classpath copies, never from rs.gbif.org.
+ * <pre>
+ * match-file --index nubidx -i names.txt -o matches.txt [--dicts dictfolder] [--resume]
+ * </pre>
+ */
+@MetaInfServices(Command.class)
+public class MatchFileCommand extends BaseCommand {
+  private static final Logger LOG = LoggerFactory.getLogger(MatchFileCommand.class);
+  private final MatchFileConfiguration cfg = new MatchFileConfiguration();
+
+  public MatchFileCommand() {
+    super("match-file");
+  }
+
+  @Override
+  protected Object getConfigurationObject() {
+    return cfg;
+  }
+
+  @Override
+  protected void doRun() {
+    try (NubIndex index = NubIndex.openFileIndex(cfg.index)) {
+      NubMatchingServiceImpl matcher = new NubMatchingServiceImpl(index, synonyms(), new NameParser());
+      FileMatcher fm = new FileMatcher(matcher, cfg.threads, cfg.checkpointInterval);
+      long count = fm.match(cfg.input, cfg.delimiter, cfg.output, cfg.strict, cfg.resume);
+      LOG.info("Matched {} names from {} into {}", count, cfg.input, cfg.output);
+
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private HigherTaxaComparator synonyms() throws IOException {
+    HigherTaxaComparator comp = new HigherTaxaComparator();
+    if (cfg.dicts != null) {
+      comp.loadLocalDicts(cfg.dicts);
+    } else {
+      comp.loadClasspathDicts("dicts");
+    }
+    return comp;
+  }
+}
@@ -0,0 +1,50 @@
+package org.gbif.checklistbank.cli.matchfile;
+
+import java.io.File;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Configuration to match a delimited file of names against a local nub index.
+ */
+@SuppressWarnings("PublicField")
+public class MatchFileConfiguration {
+
+  @NotNull
+  @Parameter(names = {"--index"}, required = true, description = "Existing nub lucene index directory")
+  public File index;
+
+  @Parameter(names = {"--dicts"}, required = false,
+      description = "Local folder with the synonym dictionaries as found on rs.gbif.org. Defaults to the dictionaries bundled with the nub lookup")
+  public File dicts;
+
+  @NotNull
+  @Parameter(names = {"-i", "--input"}, required = true,
+      description = "Delimited input file with a header row. Recognized columns are name, rank, kingdom, phylum, class, order, family, genus and subgenus")
+  public File input;
+
+  @NotNull
+  @Parameter(names = {"-o", "--output"}, required = true, description = "Tab delimited output file")
+  public File output;
+
+  @NotNull
+  @Parameter(names = {"-d", "--delimiter"}, required = false, description = "Column delimiter of the input file")
+  public String delimiter = "\t";
+
+  @Min(1)
+  @Parameter(names = {"-t", "--threads"}, required = false, description = "Number of threads to match names with")
+  public int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = {"--strict"}, required = false, description = "Use strict matching without higher rank fallbacks")
+  public boolean strict = false;
+
+  @Min(1)
+  @Parameter(names = {"--checkpoint"}, required = false, description = "Number of names after which a checkpoint is written")
+  public int checkpointInterval = 100000;
+
+  @Parameter(names = {"--resume"}, required = false, description = "Resume an interrupted run from its last checkpoint")
+  public boolean resume = false;
+
+}
@@ -21,9 +21,12 @@ import org.gbif.checklistbank.neo.NotUniqueRuntimeException;
 import org.gbif.checklistbank.neo.RelType;
 import org.gbif.checklistbank.neo.UsageDao;
 import org.gbif.checklistbank.neo.traverse.NubMatchHandler;
+import org.gbif.checklistbank.neo.traverse.ParallelTreeWalker;
+import org.gbif.checklistbank.neo.traverse.RankChunkingEvaluator;
 import org.gbif.checklistbank.neo.traverse.Traversals;
 import org.gbif.checklistbank.neo.traverse.TreeWalker;
 import org.gbif.checklistbank.neo.traverse.UsageMetricsHandler;
+import org.gbif.checklistbank.utils.ExecutorUtils;
 import org.gbif.dwc.terms.DwcTerm;
 import org.gbif.nameparser.NameParser;
 import org.gbif.nameparser.UnparsableException;
@@ -43,8 +46,11 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
@@ -75,6 +81,8 @@ public class Normalizer extends ImportDb implements Runnable {
   private static final Set<Rank> UNKNOWN_RANKS = ImmutableSet.of(Rank.UNRANKED, Rank.INFORMAL);
   private static final List<Rank> DWC_RANKS_REVERSE = ImmutableList.copyOf(Lists.reverse(Rank.DWC_RANKS));
   private static final NamedThreadFactory THREAD_FACTORY = new NamedThreadFactory("normalizer-parser");
+  private static final String WORKER_THREAD_NAME = "normalizer-parser-worker";
+  private static final NamedThreadFactory WORKER_THREAD_FACTORY = new NamedThreadFactory(WORKER_THREAD_NAME);
 
   static {
     for (char del : "[|;, ]".toCharArray()) {
@@ -91,14 +99,19 @@ public class Normalizer extends ImportDb implements Runnable {
   private final Meter denormedMeter;
   private final Meter metricsMeter;
   private final int batchSize;
+  private final int parserThreads;
+  private final int parserTimeout;
+  private final int walkerThreads;
+  private final Rank walkerChunkRank;
   private InsertMetadata meta;
   private int ignored;
   private List<String> cycles = Lists.newArrayList();
   private UsageMetricsHandler metricsHandler;
   private NubMatchHandler matchHandler;
 
-  private Normalizer(UUID datasetKey, UsageDao dao, File dwca, int batchSize,
-                     MetricRegistry registry, Map<String, UUID> constituents, IdLookup lookup) {
+  private Normalizer(UUID datasetKey, UsageDao dao, File dwca, int batchSize, int parserThreads, int parserTimeout,
+                     int walkerThreads, Rank walkerChunkRank, MetricRegistry registry, Map<String, UUID> constituents,
+                     IdLookup lookup) {
     super(datasetKey, dao);
     this.constituents = constituents;
     this.relationMeter = registry.meter(Metrics.RELATION_METER);
@@ -107,6 +120,10 @@ public class Normalizer extends ImportDb implements Runnable {
     this.dwca = dwca;
     this.lookup = lookup;
     this.batchSize = batchSize;
+    this.parserThreads = parserThreads;
+    this.parserTimeout = parserTimeout;
+    this.walkerThreads = walkerThreads;
+    this.walkerChunkRank = walkerChunkRank;
     exec = Executors.newFixedThreadPool(1, THREAD_FACTORY);
   }
 
@@ -117,6 +134,10 @@ public class Normalizer extends ImportDb implements Runnable {
         UsageDao.persistentDao(cfg.neo, datasetKey, false, registry, true),
         cfg.archiveDir(datasetKey),
         cfg.neo.batchSize,
+        cfg.parserThreads,
+        cfg.parserTimeout,
+        cfg.walkerThreads,
+        cfg.walkerChunkRank,
         registry, constituents, lookup);
   }
 
@@ -159,29 +180,104 @@ public class Normalizer extends ImportDb implements Runnable {
     }
   }
 
+  /**
+   * Counts of a single name parsing worker.
+   */
+  private static class ParsingStats {
+    private int names;
+    private int unparsable;
+  }
+
+  /**
+   * Parses all names on several worker threads.
+   * The node ids are read once and split into consecutive partitions which the workers take one after the other.
+   * As every name is parsed independently the results do not depend on the number of threads.
+   */
   private class NameParsingJob implements Callable<Integer> {
-    private final NameParser parser = new NameParser();
 
     @Override
     public Integer call() throws Exception {
-      int counter = 0;
+      final LongArrayList ids = new LongArrayList();
       try (Transaction tx = dao.beginTx()) {
         for (Node n : dao.allNodes()) {
-          String sciname = NeoProperties.getScientificName(n);
-          ParsedName pn;
-          try {
-            pn = parser.parse(sciname, NeoProperties.getRank(n, null));
-          } catch (UnparsableException e) {
-            // allow any name at least as a scientific name string
-            pn = new ParsedName();
-            pn.setScientificName(sciname);
-            pn.setType(e.type);
+          ids.add(n.getId());
+        }
+      }
+      // several partitions per thread to even out partitions with expensive names
+      final int partitionSize = ids.size() / (parserThreads * 4) + 1;
+      final AtomicInteger nextPartition = new AtomicInteger();
+      LOG.info("Parse {} names in partitions of {} using {} threads", ids.size(), partitionSize, parserThreads);
+
+      ExecutorService workers = Executors.newFixedThreadPool(parserThreads, WORKER_THREAD_FACTORY);
+      try {
+        List<Future<ParsingStats>> futures = Lists.newArrayList();
+        for (int t = 0; t < parserThreads; t++) {
+          futures.add(workers.submit(new NameParsingWorker(ids, partitionSize, nextPartition)));
+        }
+        int counter = 0;
+        int unparsable = 0;
+        for (Future<ParsingStats> f : futures) {
+          ParsingStats stats = f.get();
+          counter += stats.names;
+          unparsable += stats.unparsable;
+        }
+        LOG.info("Parsed {} names, {} of them unparsable", counter, unparsable);
+        return counter;
+
+      } finally {
+        ExecutorUtils.stop(workers, WORKER_THREAD_NAME, 1, TimeUnit.MINUTES);
+      }
+    }
+  }
+
+  /**
+   * Parses partitions of node ids with its own name parser and transaction
+   * and writes the parsed names in batches to the kvp store.
+   */
+  private class NameParsingWorker implements Callable<ParsingStats> {
+    private final NameParser parser = new NameParser(parserTimeout);
+    private final LongArrayList ids;
+    private final int partitionSize;
+    private final AtomicInteger nextPartition;
+
+    NameParsingWorker(LongArrayList ids, int partitionSize, AtomicInteger nextPartition) {
+      this.ids = ids;
+      this.partitionSize = partitionSize;
+      this.nextPartition = nextPartition;
+    }
+
+    @Override
+    public ParsingStats call() throws Exception {
+      final ParsingStats stats = new ParsingStats();
+      final Map<Long, ParsedName> batch = Maps.newHashMapWithExpectedSize(batchSize);
+      try (Transaction tx = dao.beginTx()) {
+        long start;
+        while ((start = (long) nextPartition.getAndIncrement() * partitionSize) < ids.size()) {
+          final int end = (int) Math.min(ids.size(), start + partitionSize);
+          for (int idx = (int) start; idx < end; idx++) {
+            Node n = dao.getNeo().getNodeById(ids.get(idx));
+            String sciname = NeoProperties.getScientificName(n);
+            ParsedName pn;
+            try {
+              pn = parser.parse(sciname, NeoProperties.getRank(n, null));
+            } catch (UnparsableException e) {
+              // allow any name at least as a scientific name string
+              pn = new ParsedName();
+              pn.setScientificName(sciname);
+              pn.setType(e.type);
+              stats.unparsable++;
+            }
+            batch.put(n.getId(), pn);
+            stats.names++;
+            if (batch.size() >= batchSize) {
+              dao.store(batch);
+              batch.clear();
+            }
           }
-          dao.store(n.getId(), pn);
-          counter++;
         }
       }
-      return counter;
+      dao.store(batch);
+      return stats;
     }
   }
 
@@ -564,7 +660,12 @@ public class Normalizer extends ImportDb implements Runnable {
     metricsHandler = new UsageMetricsHandler(dao);
     matchHandler = new NubMatchHandler(lookup, dao);
     final long before = metricsMeter.getCount();
-    TreeWalker.walkAcceptedTree(dao.getNeo(), null, null, metricsMeter, metricsHandler, matchHandler);
+    if (walkerThreads > 1) {
+      ParallelTreeWalker.walkAcceptedTree(dao, new RankChunkingEvaluator(walkerChunkRank), walkerThreads,
+          metricsMeter, metricsHandler, matchHandler);
+    } else {
+      TreeWalker.walkAcceptedTree(dao, null, null, metricsMeter, metricsHandler, matchHandler);
+    }
     final long after = metricsMeter.getCount();
     LOG.info("Walked all {} accepted taxa and built metrics", after-before);
   }
@@ -1,5 +1,6 @@
 package org.gbif.checklistbank.cli.normalizer;
 
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.cli.common.GangliaConfiguration;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.common.ZooKeeperConfiguration;
@@ -53,6 +54,35 @@ public class NormalizerConfiguration {
     @Min(1)
     public int poolSize = 3;
 
+    /**
+     * Number of threads used to parse all names of a single checklist.
+     */
+    @Parameter(names = "--parser-threads")
+    @Min(1)
+    public int parserThreads = 2;
+
+    /**
+     * Timeout in milliseconds for parsing a single name.
+     */
+    @Parameter(names = "--parser-timeout")
+    @Min(100)
+    public int parserTimeout = 1000;
+
+    /**
+     * Number of threads used to walk independent subtrees when building metrics and matching to the backbone.
+     * A single thread walks the entire tree sequentially.
+     */
+    @Parameter(names = "--walker-threads")
+    @Min(1)
+    public int walkerThreads = 1;
+
+    /**
+     * Subtrees starting with the highest taxon of this rank or below are walked concurrently.
+     */
+    @Parameter(names = "--walker-chunk-rank")
+    @NotNull
+    public Rank walkerChunkRank = Rank.FAMILY;
+
     @Parameter(names = "--archive-repository")
     @NotNull
     public File archiveRepository;
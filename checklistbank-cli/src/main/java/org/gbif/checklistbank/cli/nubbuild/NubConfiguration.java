@@ -4,6 +4,7 @@ import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.common.RegistryServiceConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.common.messaging.config.MessagingConfiguration;
+import org.gbif.nub.lookup.straight.IdLookupType;
 
 import java.io.File;
 import java.net.URI;
@@ -60,6 +61,12 @@ public class NubConfiguration {
   @Valid
   public boolean groupBasionyms = false;
 
+  /**
+   * Number of families that are read and grouped concurrently when detecting basionyms.
+   */
+  @Min(1)
+  public int basionymThreads = 1;
+
   /**
    * If false autonyms with no other sibling are removed.
    */
@@ -103,4 +110,10 @@ public class NubConfiguration {
   @Min(100)
   public int parserTimeout = 1000;
 
+  /**
+   * The id lookup implementation used to keep stable ids from the previous backbone.
+   */
+  @NotNull
+  public IdLookupType idLookup = IdLookupType.MAPDB;
+
 }
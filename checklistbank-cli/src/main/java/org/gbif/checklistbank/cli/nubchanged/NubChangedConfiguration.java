@@ -47,4 +47,10 @@ public class NubChangedConfiguration {
     @Parameter(names = "--export-repository")
     @NotNull
     public File exportRepository = new File("./exports");
+
+    /**
+     * Optional snapshot file of the compact id lookup which is rebuilt only when the backbone version changed.
+     */
+    @Parameter(names = "--id-lookup-snapshot")
+    public File idLookupSnapshot;
 }
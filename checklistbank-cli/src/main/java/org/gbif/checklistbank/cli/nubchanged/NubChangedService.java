@@ -24,7 +24,9 @@ import org.gbif.common.messaging.api.MessageCallback;
 import org.gbif.common.messaging.api.MessagePublisher;
 import org.gbif.common.messaging.api.messages.BackboneChangedMessage;
 import org.gbif.common.messaging.api.messages.MatchDatasetMessage;
+import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupSnapshot;
 import org.gbif.registry.metadata.EMLWriter;
 
 import java.io.ByteArrayInputStream;
@@ -109,7 +111,10 @@ public class NubChangedService extends AbstractIdleService implements MessageCal
   private void rematchChecklists() {
     try {
       LOG.info("Start rematching all checklists to changed backbone");
-      NubMatchService matcher = new NubMatchService(cfg.clb, IdLookupImpl.temp().load(cfg.clb, false), sqlImportService, solrImportService, publisher);
+      IdLookup lookup = cfg.idLookupSnapshot == null ?
+          IdLookupImpl.temp().load(cfg.clb, false) :
+          IdLookupSnapshot.load(cfg.clb, false, cfg.idLookupSnapshot);
+      NubMatchService matcher = new NubMatchService(cfg.clb, lookup, sqlImportService, solrImportService, publisher);
 
       // make sure we match CoL first as we need that to anaylze datasets (nub & col overlap of names)
       publisher.send(new MatchDatasetMessage(Constants.COL_DATASET_KEY));
@@ -6,6 +6,7 @@ import org.gbif.checklistbank.logging.LogContext;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.common.RabbitBaseService;
 import org.gbif.checklistbank.index.guice.RealTimeModule;
+import org.gbif.checklistbank.neo.kvp.KvpBackend;
 import org.gbif.checklistbank.index.guice.Solr;
 import org.gbif.checklistbank.service.DatasetImportService;
 import org.gbif.checklistbank.service.mybatis.guice.InternalChecklistBankServiceMyBatisModule;
@@ -61,10 +62,12 @@ public class RegistryService extends RabbitBaseService<RegistryChangeMessage> {
    * @param datasetKey the dataset to delete files for
    */
   public static void deleteStorageFiles(NeoConfiguration cfg, UUID datasetKey) {
-    // delete neo & kvp storage files
-    File kvp = cfg.kvp(datasetKey);
-    if (kvp.exists() && !kvp.delete()) {
-      LOG.warn("Failed to delete kvo data dir {}", kvp.getAbsoluteFile());
+    // delete kvp storage files of all backends, some are directories
+    for (KvpBackend backend : KvpBackend.values()) {
+      File kvp = cfg.kvp(datasetKey, backend);
+      if (kvp.exists() && !FileUtils.deleteQuietly(kvp)) {
+        LOG.warn("Failed to delete kvp data {}", kvp.getAbsoluteFile());
+      }
     }
 
     // delete neo storage files
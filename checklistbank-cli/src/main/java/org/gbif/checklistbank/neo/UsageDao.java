@@ -14,6 +14,10 @@ import org.gbif.checklistbank.cli.model.RankedName;
 import org.gbif.checklistbank.cli.model.UsageFacts;
 import org.gbif.checklistbank.kryo.CliKryoFactory;
 import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.neo.kvp.KvpBackend;
+import org.gbif.checklistbank.neo.kvp.KvpStore;
+import org.gbif.checklistbank.neo.kvp.MapDbKvpStore;
+import org.gbif.checklistbank.neo.kvp.MappedKvpStore;
 import org.gbif.checklistbank.neo.printer.DotPrinter;
 import org.gbif.checklistbank.neo.printer.GmlPrinter;
 import org.gbif.checklistbank.neo.printer.ListPrinter;
@@ -26,7 +30,6 @@ import org.gbif.checklistbank.nub.model.NubUsage;
 import org.gbif.checklistbank.nub.model.SrcUsage;
 import org.gbif.checklistbank.utils.CleanupUtils;
 import org.gbif.checklistbank.utils.SciNameNormalizer;
-import org.gbif.nub.mapdb.MapDbObjectSerializer;
 
 import java.io.File;
 import java.io.Writer;
@@ -44,9 +47,6 @@ import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 import com.yammer.metrics.MetricRegistry;
 import org.apache.commons.io.FileUtils;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.Serializer;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -67,14 +67,14 @@ import org.slf4j.LoggerFactory;
  * It uses neo to store the main relations and core properties often searched on, see NodeProperties
  * Pretty much all dao operations require an existing, open neo4j transaction to be managed outside of the dao which
  * only offers a beginTx() method.
- * For all the rest it uses a file persistent MapDB hashmap with kryo for quick serialization.
+ * For all the rest it uses a file persistent KVP store with kryo for quick serialization, see {@link KvpBackend}.
  */
 public class UsageDao {
   private static final Logger LOG = LoggerFactory.getLogger(UsageDao.class);
 
   private GraphDatabaseService neo;
   private final GraphDatabaseBuilder neoFactory;
-  private final DB kvp;
+  private final KvpStore kvp;
   private final Map<Long, ParsedName> names;
   private final Map<Long, UsageFacts> facts;
   private final Map<Long, VerbatimNameUsage> verbatim;
@@ -94,7 +94,7 @@ public class UsageDao {
    * @param neoFactory
    * @param registry
    */
-  private UsageDao(DB kvp, File neoDir, @Nullable File kvpStore, GraphDatabaseBuilder neoFactory, @Nullable MetricRegistry registry) {
+  private UsageDao(KvpStore kvp, File neoDir, @Nullable File kvpStore, GraphDatabaseBuilder neoFactory, @Nullable MetricRegistry registry) {
     try {
       this.neoFactory = neoFactory;
       this.neoDir = neoDir;
@@ -122,10 +122,7 @@ public class UsageDao {
   }
 
   private <T> Map<Long, T> createKvpMap(String name, Class<T> clazz, int bufferSize) {
-    return kvp.hashMap(name)
-        .keySerializer(Serializer.LONG)
-        .valueSerializer(new MapDbObjectSerializer(clazz, pool, bufferSize))
-        .createOrOpen();
+    return kvp.createMap(name, clazz, pool, bufferSize);
   }
 
   /**
@@ -136,8 +133,7 @@ public class UsageDao {
    */
   public static UsageDao temporaryDao(int mappedMemory, Integer shellPort) {
     LOG.debug("Create new in memory dao");
-    DB kvp = DBMaker.memoryDB()
-        .make();
+    KvpStore kvp = MapDbKvpStore.memory();
 
     File storeDir = Files.createTempDir();
     NeoConfiguration cfg = new NeoConfiguration();
@@ -176,21 +172,31 @@ public class UsageDao {
    * @param readOnly      if true open neo4j in read only mode
    */
   public static UsageDao persistentDao(NeoConfiguration cfg, UUID datasetKey, boolean readOnly, MetricRegistry registry, boolean eraseExisting) {
-    DB kvp = null;
+    KvpStore kvp = null;
     try {
       final File kvpF = cfg.kvp(datasetKey);
       final File storeDir = cfg.neoDir(datasetKey);
       if (eraseExisting) {
         LOG.debug("Remove existing data store");
-        if (kvpF.exists()) {
-          kvpF.delete();
+        for (KvpBackend backend : KvpBackend.values()) {
+          FileUtils.deleteQuietly(cfg.kvp(datasetKey, backend));
+        }
+      } else if (!kvpF.exists()) {
+        // make sure we do not silently start with an empty store when the data was written with another backend
+        for (KvpBackend backend : KvpBackend.values()) {
+          if (backend != cfg.kvpBackend && cfg.kvp(datasetKey, backend).exists()) {
+            throw new IllegalStateException("KVP store of dataset " + datasetKey + " was written with the " + backend
+                + " backend, but the " + cfg.kvpBackend + " backend is configured");
+          }
         }
       }
       FileUtils.forceMkdir(kvpF.getParentFile());
-      LOG.debug("Use KVP store {}", kvpF.getAbsolutePath());
-      kvp = DBMaker.fileDB(kvpF)
-          .fileMmapEnableIfSupported()
-          .make();
+      LOG.debug("Use {} KVP store {}", cfg.kvpBackend, kvpF.getAbsolutePath());
+      if (cfg.kvpBackend == KvpBackend.MAPPED) {
+        kvp = new MappedKvpStore(kvpF);
+      } else {
+        kvp = MapDbKvpStore.file(kvpF);
+      }
       GraphDatabaseBuilder builder = cfg.newEmbeddedDb(storeDir, readOnly, eraseExisting);
       return new UsageDao(kvp, storeDir, kvpF, builder, registry);
 
@@ -471,6 +477,13 @@ public class UsageDao {
     this.names.put(key, pn);
   }
 
+  /**
+   * Stores a batch of parsed names keyed by their node id.
+   */
+  public void store(Map<Long, ParsedName> names) {
+    this.names.putAll(names);
+  }
+
   /**
    * Reads a node into a name usage instance with keys being the node ids long values based on the neo relations.
    * The bulk of the usage data comes from the KVP store and neo properties are overlayed.
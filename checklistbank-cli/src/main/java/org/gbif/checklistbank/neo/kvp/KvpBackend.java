@@ -0,0 +1,27 @@
+package org.gbif.checklistbank.neo.kvp;
+
+/**
+ * The available implementations of the KVP store used by the UsageDao.
+ */
+public enum KvpBackend {
+
+  /**
+   * MapDB hash maps in a single memory mapped file, see {@link MapDbKvpStore}.
+   */
+  MAPDB(""),
+
+  /**
+   * Array indexed, memory mapped files per map outside the java heap, see {@link MappedKvpStore}.
+   */
+  MAPPED(".mapped");
+
+  /**
+   * Appended to the dataset key to get the store location, so stores of different backends never share a path.
+   * MapDB keeps the plain dataset key used before other backends existed.
+   */
+  public final String suffix;
+
+  KvpBackend(String suffix) {
+    this.suffix = suffix;
+  }
+}
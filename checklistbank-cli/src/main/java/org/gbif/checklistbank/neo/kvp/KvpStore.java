@@ -0,0 +1,22 @@
+package org.gbif.checklistbank.neo.kvp;
+
+import java.util.Map;
+
+import com.esotericsoftware.kryo.pool.KryoPool;
+
+/**
+ * A key value store holding the maps of a UsageDao which are keyed on neo4j node ids.
+ */
+public interface KvpStore {
+
+  /**
+   * Creates a new or opens an existing named map with values serialized by kryo.
+   *
+   * @param bufferSize the initial serialization buffer size in bytes
+   */
+  <T> Map<Long, T> createMap(String name, Class<T> clazz, KryoPool pool, int bufferSize);
+
+  boolean isClosed();
+
+  void close();
+}
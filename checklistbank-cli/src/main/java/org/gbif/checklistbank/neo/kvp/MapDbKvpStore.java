@@ -0,0 +1,56 @@
+package org.gbif.checklistbank.neo.kvp;
+
+import org.gbif.nub.mapdb.MapDbObjectSerializer;
+
+import java.io.File;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.pool.KryoPool;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+
+/**
+ * A KVP store using MapDB hash maps.
+ */
+public class MapDbKvpStore implements KvpStore {
+  private final DB db;
+
+  private MapDbKvpStore(DB db) {
+    this.db = db;
+  }
+
+  /**
+   * A store in memory which is erased after the JVM exits.
+   */
+  public static MapDbKvpStore memory() {
+    return new MapDbKvpStore(DBMaker.memoryDB().make());
+  }
+
+  /**
+   * A store persisted in a single, memory mapped file if supported by the platform.
+   */
+  public static MapDbKvpStore file(File file) {
+    return new MapDbKvpStore(DBMaker.fileDB(file)
+        .fileMmapEnableIfSupported()
+        .make());
+  }
+
+  @Override
+  public <T> Map<Long, T> createMap(String name, Class<T> clazz, KryoPool pool, int bufferSize) {
+    return db.hashMap(name)
+        .keySerializer(Serializer.LONG)
+        .valueSerializer(new MapDbObjectSerializer<T>(clazz, pool, bufferSize))
+        .createOrOpen();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return db.isClosed();
+  }
+
+  @Override
+  public void close() {
+    db.close();
+  }
+}
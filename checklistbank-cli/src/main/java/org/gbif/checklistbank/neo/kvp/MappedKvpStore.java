@@ -0,0 +1,59 @@
+package org.gbif.checklistbank.neo.kvp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A KVP store keeping each map in its own set of memory mapped files inside a store directory,
+ * see {@link MappedLongMap}.
+ */
+public class MappedKvpStore implements KvpStore {
+  private static final Logger LOG = LoggerFactory.getLogger(MappedKvpStore.class);
+
+  private final File dir;
+  private final List<MappedLongMap<?>> maps = Lists.newArrayList();
+  private boolean closed;
+
+  public MappedKvpStore(File dir) throws IOException {
+    this.dir = dir;
+    FileUtils.forceMkdir(dir);
+  }
+
+  @Override
+  public synchronized <T> Map<Long, T> createMap(String name, Class<T> clazz, KryoPool pool, int bufferSize) {
+    try {
+      MappedLongMap<T> map = new MappedLongMap<T>(dir, name, clazz, pool, bufferSize);
+      maps.add(map);
+      return map;
+
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to open mapped kvp map " + name + " in " + dir.getAbsolutePath(), e);
+    }
+  }
+
+  @Override
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public synchronized void close() {
+    for (MappedLongMap<?> map : maps) {
+      try {
+        map.close();
+      } catch (IOException e) {
+        LOG.error("Failed to close mapped kvp map in {}", dir.getAbsolutePath(), e);
+      }
+    }
+    maps.clear();
+    closed = true;
+  }
+}
@@ -0,0 +1,392 @@
+package org.gbif.checklistbank.neo.kvp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+
+/**
+ * A persistent map for dense, positive long keys like neo4j node ids that keeps all data in memory mapped files
+ * outside the java heap.
+ *
+ * The index file holds the data offset for each key in an array like layout, so a lookup is a single read
+ * without any hashing. Values are serialized with kryo and appended to the data file.
+ * Updates append a new version and leave the old one as garbage, which is fine for the short lived
+ * stores of a single dataset that are written mostly once.
+ *
+ * Reads are concurrent, writes are exclusive.
+ * For performance reasons put and remove always return null instead of reading the previous value.
+ */
+public class MappedLongMap<T> extends AbstractMap<Long, T> implements Closeable {
+  // data end, size and key end
+  private static final int HEADER_SIZE = 24;
+  private static final int INDEX_SEGMENT_SIZE = 8 * 1024 * 1024;
+  private static final int DATA_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private final Class<T> clazz;
+  private final KryoPool pool;
+  private final RandomAccessFile indexFile;
+  private final RandomAccessFile dataFile;
+  private final List<MappedByteBuffer> index = Lists.newArrayList();
+  private final List<MappedByteBuffer> data = Lists.newArrayList();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final ThreadLocal<Output> outputs;
+  private final ThreadLocal<Input> inputs;
+  // position in the data file to append the next value
+  private long dataEnd;
+  private int size;
+  // the largest key ever stored + 1
+  private long keyEnd;
+  private boolean closed;
+
+  MappedLongMap(File dir, String name, Class<T> clazz, KryoPool pool, final int bufferSize) throws IOException {
+    this.clazz = clazz;
+    this.pool = pool;
+    outputs = new ThreadLocal<Output>() {
+      @Override
+      protected Output initialValue() {
+        return new Output(bufferSize, -1);
+      }
+    };
+    inputs = new ThreadLocal<Input>() {
+      @Override
+      protected Input initialValue() {
+        return new Input(bufferSize);
+      }
+    };
+    indexFile = new RandomAccessFile(new File(dir, name + ".idx"), "rw");
+    dataFile = new RandomAccessFile(new File(dir, name + ".dat"), "rw");
+    boolean existing = indexFile.length() > 0;
+    MappedByteBuffer header = indexSegment(0);
+    if (existing) {
+      dataEnd = header.getLong(0);
+      size = (int) header.getLong(8);
+      keyEnd = header.getLong(16);
+      // map all existing segments so reads never need to modify the segment lists
+      if (keyEnd > 0) {
+        indexSegment(indexPosition(keyEnd - 1) / INDEX_SEGMENT_SIZE);
+      }
+      if (dataEnd > 0) {
+        dataSegment((int) ((dataEnd - 1) / DATA_SEGMENT_SIZE));
+      }
+    }
+  }
+
+  private static long indexPosition(long key) {
+    return HEADER_SIZE + key * 8;
+  }
+
+  /**
+   * @return the index segment with the given number, mapping it and all previous ones if needed
+   */
+  private MappedByteBuffer indexSegment(long segment) throws IOException {
+    while (index.size() <= segment) {
+      index.add(indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) index.size() * INDEX_SEGMENT_SIZE, INDEX_SEGMENT_SIZE));
+    }
+    return index.get((int) segment);
+  }
+
+  private MappedByteBuffer dataSegment(int segment) throws IOException {
+    while (data.size() <= segment) {
+      data.add(dataFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) data.size() * DATA_SEGMENT_SIZE, DATA_SEGMENT_SIZE));
+    }
+    return data.get(segment);
+  }
+
+  /**
+   * @return the data position + 1 of the given key or 0 if the key does not exist
+   */
+  private long offset(long key) {
+    Preconditions.checkState(!closed, "Map closed");
+    if (key < 0 || key >= keyEnd) {
+      return 0;
+    }
+    long pos = indexPosition(key);
+    return index.get((int) (pos / INDEX_SEGMENT_SIZE)).getLong((int) (pos % INDEX_SEGMENT_SIZE));
+  }
+
+  private T read(long pos) {
+    ByteBuffer buf = data.get((int) (pos / DATA_SEGMENT_SIZE)).duplicate();
+    buf.position((int) (pos % DATA_SEGMENT_SIZE));
+    int len = buf.getInt();
+    Input input = inputs.get();
+    byte[] bytes = input.getBuffer();
+    if (bytes.length < len) {
+      bytes = new byte[len];
+    }
+    buf.get(bytes, 0, len);
+    input.setBuffer(bytes, 0, len);
+    Kryo kryo = pool.borrow();
+    try {
+      return kryo.readObject(input, clazz);
+    } finally {
+      pool.release(kryo);
+    }
+  }
+
+  private Output write(T value) {
+    Output output = outputs.get();
+    output.clear();
+    Kryo kryo = pool.borrow();
+    try {
+      kryo.writeObject(output, value);
+    } finally {
+      pool.release(kryo);
+    }
+    return output;
+  }
+
+  private void writeHeader() {
+    MappedByteBuffer header = index.get(0);
+    header.putLong(0, dataEnd);
+    header.putLong(8, size);
+    header.putLong(16, keyEnd);
+  }
+
+  @Override
+  public T get(Object key) {
+    if (!(key instanceof Long)) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      long offset = offset((Long) key);
+      return offset == 0 ? null : read(offset - 1);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof Long)) {
+      return false;
+    }
+    lock.readLock().lock();
+    try {
+      return offset((Long) key) != 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return always null
+   */
+  @Override
+  public T put(Long key, T value) {
+    Preconditions.checkArgument(key >= 0, "Negative keys not supported");
+    Preconditions.checkNotNull(value, "Null values not supported");
+    // serialize outside of the lock
+    Output output = write(value);
+    final int len = output.position();
+    Preconditions.checkArgument(len + 4 <= DATA_SEGMENT_SIZE, "Value too large");
+
+    lock.writeLock().lock();
+    try {
+      Preconditions.checkState(!closed, "Map closed");
+      // values never span several segments
+      long pos = dataEnd;
+      if (pos % DATA_SEGMENT_SIZE + 4 + len > DATA_SEGMENT_SIZE) {
+        pos = (pos / DATA_SEGMENT_SIZE + 1) * DATA_SEGMENT_SIZE;
+      }
+      ByteBuffer buf = dataSegment((int) (pos / DATA_SEGMENT_SIZE)).duplicate();
+      buf.position((int) (pos % DATA_SEGMENT_SIZE));
+      buf.putInt(len);
+      buf.put(output.getBuffer(), 0, len);
+      dataEnd = pos + 4 + len;
+
+      long ipos = indexPosition(key);
+      MappedByteBuffer idx = indexSegment(ipos / INDEX_SEGMENT_SIZE);
+      int ioff = (int) (ipos % INDEX_SEGMENT_SIZE);
+      if (key >= keyEnd || idx.getLong(ioff) == 0) {
+        size++;
+      }
+      idx.putLong(ioff, pos + 1);
+      keyEnd = Math.max(keyEnd, key + 1);
+      writeHeader();
+      return null;
+
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write key " + key, e);
+
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return always null
+   */
+  @Override
+  public T remove(Object key) {
+    if (key instanceof Long) {
+      lock.writeLock().lock();
+      try {
+        if (offset((Long) key) != 0) {
+          long ipos = indexPosition((Long) key);
+          index.get((int) (ipos / INDEX_SEGMENT_SIZE)).putLong((int) (ipos % INDEX_SEGMENT_SIZE), 0);
+          size--;
+          writeHeader();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      Preconditions.checkState(!closed, "Map closed");
+      for (long key = 0; key < keyEnd; key++) {
+        long ipos = indexPosition(key);
+        index.get((int) (ipos / INDEX_SEGMENT_SIZE)).putLong((int) (ipos % INDEX_SEGMENT_SIZE), 0);
+      }
+      dataEnd = 0;
+      size = 0;
+      keyEnd = 0;
+      writeHeader();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the next existing key equal or larger than the given one or -1 if none exists
+   */
+  private long nextKey(long key) {
+    lock.readLock().lock();
+    try {
+      while (key < keyEnd) {
+        if (offset(key) != 0) {
+          return key;
+        }
+        key++;
+      }
+      return -1;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private class KeyIterator extends AbstractIterator<Long> {
+    private long next = 0;
+
+    @Override
+    protected Long computeNext() {
+      long key = nextKey(next);
+      if (key < 0) {
+        return endOfData();
+      }
+      next = key + 1;
+      return key;
+    }
+  }
+
+  @Override
+  public Set<Long> keySet() {
+    return new AbstractSet<Long>() {
+      @Override
+      public Iterator<Long> iterator() {
+        return new KeyIterator();
+      }
+
+      @Override
+      public int size() {
+        return MappedLongMap.this.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+    };
+  }
+
+  @Override
+  public Set<Entry<Long, T>> entrySet() {
+    return new AbstractSet<Entry<Long, T>>() {
+      @Override
+      public Iterator<Entry<Long, T>> iterator() {
+        final KeyIterator keys = new KeyIterator();
+        return new AbstractIterator<Entry<Long, T>>() {
+          @Override
+          protected Entry<Long, T> computeNext() {
+            while (keys.hasNext()) {
+              Long key = keys.next();
+              T value = get(key);
+              // removed concurrently?
+              if (value != null) {
+                return new SimpleImmutableEntry<Long, T>(key, value);
+              }
+            }
+            return endOfData();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return MappedLongMap.this.size();
+      }
+    };
+  }
+
+  /**
+   * Flushes all data to disk and closes the underlying files.
+   * The mapped memory is released once the buffers are garbage collected.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (!closed) {
+        closed = true;
+        writeHeader();
+        for (MappedByteBuffer buf : index) {
+          buf.force();
+        }
+        for (MappedByteBuffer buf : data) {
+          buf.force();
+        }
+        index.clear();
+        data.clear();
+        indexFile.close();
+        dataFile.close();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+}
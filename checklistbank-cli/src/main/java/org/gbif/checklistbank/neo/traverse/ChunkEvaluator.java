@@ -0,0 +1,14 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import org.neo4j.graphdb.traversal.Evaluator;
+
+/**
+ * An evaluator that prunes a taxonomic tree at chunk roots which can be processed independently.
+ */
+public interface ChunkEvaluator extends Evaluator {
+
+  /**
+   * @return true if the node was marked as a chunk root during evaluation
+   */
+  boolean isChunk(long nodeId);
+}
@@ -0,0 +1,26 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import java.util.List;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * A StartEndHandler that can process independent subtrees of a taxonomy concurrently
+ * and merge their results afterwards, see {@link ParallelTreeWalker}.
+ */
+public interface ChunkableHandler extends StartEndHandler {
+
+  /**
+   * Creates a new, empty handler to walk the subtree of a chunk.
+   * This is called from other threads and must not modify the state of this handler.
+   *
+   * @param ancestors all accepted parent nodes of the chunk root, starting with the tree root
+   */
+  ChunkableHandler chunk(List<Node> ancestors);
+
+  /**
+   * Merges the results of a chunk handler created by this handler.
+   * This replaces the start and end events for the chunk root.
+   */
+  void merge(ChunkableHandler chunk);
+}
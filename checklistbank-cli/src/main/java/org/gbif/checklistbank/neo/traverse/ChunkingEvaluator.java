@@ -9,7 +9,6 @@ import com.google.common.base.Preconditions;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.traversal.Evaluation;
-import org.neo4j.graphdb.traversal.Evaluator;
 
 /**
  * Marks appropriate points in the taxonomic tree where concurrent processing can start.
@@ -17,7 +16,7 @@ import org.neo4j.graphdb.traversal.Evaluator;
  * or could take account of the current depth (path.length()), to avoid marking many
  * unplaced families.
  */
-public class ChunkingEvaluator implements Evaluator {
+public class ChunkingEvaluator implements ChunkEvaluator {
 
   private UsageDao dao;
   private int chunkSize;
@@ -46,6 +45,7 @@ public class ChunkingEvaluator implements Evaluator {
     }
   }
 
+  @Override
   public boolean isChunk(long nodeId) {
     return chunkIds.contains(nodeId);
   }
@@ -0,0 +1,17 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * A StartEndHandler that works on the name usage of each node.
+ * When walked with a {@link org.gbif.checklistbank.neo.UsageDao} the {@link TreeWalker} reads the usage only once
+ * on start, keeps it until the node ends and shares the very same instance with all handlers.
+ */
+public interface NameUsageHandler extends StartEndHandler {
+
+  void start(Node n, NameUsage u);
+
+  void end(Node n, NameUsage u);
+}
@@ -14,6 +14,7 @@ import org.gbif.nameparser.UnparsableException;
 import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.LookupUsage;
 
+import java.util.List;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
@@ -25,7 +26,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Assigns existing usageKey through a backbone match.
  */
-public class NubMatchHandler implements StartEndHandler {
+public class NubMatchHandler implements ChunkableHandler, NameUsageHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(NubMatchHandler.class);
     private final NameParser parser = new NameParser(1000);
@@ -45,12 +46,20 @@ public class NubMatchHandler implements StartEndHandler {
 
     @Override
     public void start(Node n) {
+        start(n, dao.readUsage(n, false));
+    }
+
+    @Override
+    public void start(Node n, NameUsage u) {
         // increase counters
         counter++;
         if (counter % 1000 == 0) {
             LOG.debug("Nub matching done for: {}", counter);
         }
-        NameUsage u = dao.readUsage(n, false);
+        detectKingdom(n, u);
+    }
+
+    private void detectKingdom(Node n, NameUsage u) {
         if (currKingdom == null) {
             ParseResult<Kingdom> k = kParser.parse(u.getCanonicalName());
             if (k.isSuccessful()) {
@@ -59,9 +68,33 @@ public class NubMatchHandler implements StartEndHandler {
         }
     }
 
+    /**
+     * Creates a handler for a chunk using the kingdom of the first ancestor with a kingdom name.
+     * Kingdoms complemented by synonym matches outside the chunk are not passed on.
+     */
+    @Override
+    public NubMatchHandler chunk(List<Node> ancestors) {
+        NubMatchHandler h = new NubMatchHandler(lookup, dao);
+        for (Node a : ancestors) {
+            if (h.currKingdom == null) {
+                h.detectKingdom(a, dao.readUsage(a, false));
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public void merge(ChunkableHandler chunk) {
+        counter += ((NubMatchHandler) chunk).counter;
+    }
+
     @Override
     public void end(Node n) {
-        NameUsage u = dao.readUsage(n, false);
+        end(n, dao.readUsage(n, false));
+    }
+
+    @Override
+    public void end(Node n, NameUsage u) {
         // nub lookup
         NameUsageNode nn = new NameUsageNode(n, u, false);
         matchToNub(nn);
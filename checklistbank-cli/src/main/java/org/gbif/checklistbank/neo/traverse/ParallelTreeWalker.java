@@ -0,0 +1,168 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.checklistbank.neo.UsageDao;
+import org.gbif.checklistbank.utils.ExecutorUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.yammer.metrics.Meter;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.ResourceIterable;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.TraversalDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Walks all accepted nodes in taxonomic order like {@link TreeWalker#walkAcceptedTree}, but splits the tree into chunks
+ * marked by a {@link ChunkEvaluator}.
+ * The subtrees of all chunks are walked concurrently on a fork join pool, each in its own transaction and with new handlers
+ * created for the chunk. The upper part of the tree is walked sequentially and the chunk results are merged
+ * into the given handlers at the chunk roots.
+ */
+public class ParallelTreeWalker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelTreeWalker.class);
+  private static final String NAME = "tree-walker";
+
+  /**
+   * Walks all accepted nodes, processing chunks with the given number of threads.
+   */
+  public static void walkAcceptedTree(UsageDao dao, ChunkEvaluator chunker, int threads, @Nullable Meter meter, ChunkableHandler... handler) {
+    Preconditions.checkArgument(threads > 0, "At least one thread required");
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try (Transaction tx = dao.beginTx()) {
+      TraversalDescription td = Traversals.SORTED_ACCEPTED_TREE.evaluator(chunker);
+      List<Node> roots = TreeIterablesSorted.findRoot(dao.getNeo());
+
+      // submit all chunks first so they are walked while we process the upper tree
+      Map<Long, Future<ChunkableHandler[]>> chunks = Maps.newHashMap();
+      try (ResourceIterator<Path> iter = MultiRootPathIterator.create(roots, td).iterator()) {
+        while (iter.hasNext()) {
+          Path p = iter.next();
+          if (chunker.isChunk(p.endNode().getId())) {
+            chunks.put(p.endNode().getId(), pool.submit(new ChunkWalker(dao, p, meter, handler)));
+          }
+        }
+      }
+      LOG.info("Walk {} chunks with {} threads", chunks.size(), threads);
+
+      ResourceIterable<Path> upperTree = MultiRootPathIterator.create(roots, td);
+      TreeWalker.walkTree(upperTree, null, dao, new ChunkMerger(chunker, chunks, meter, handler));
+
+    } finally {
+      ExecutorUtils.stop(pool, NAME, 1, TimeUnit.MINUTES);
+    }
+  }
+
+  /**
+   * Walks the subtree of a single chunk in its own transaction
+   */
+  private static class ChunkWalker implements Callable<ChunkableHandler[]> {
+    private final UsageDao dao;
+    private final Node root;
+    private final List<Node> ancestors;
+    private final Meter meter;
+    private final ChunkableHandler[] handler;
+
+    ChunkWalker(UsageDao dao, Path path, @Nullable Meter meter, ChunkableHandler[] handler) {
+      this.dao = dao;
+      this.root = path.endNode();
+      List<Node> nodes = ImmutableList.copyOf(path.nodes());
+      this.ancestors = nodes.subList(0, nodes.size() - 1);
+      this.meter = meter;
+      this.handler = handler;
+    }
+
+    @Override
+    public ChunkableHandler[] call() throws Exception {
+      try (Transaction tx = dao.beginTx()) {
+        ChunkableHandler[] chunkHandler = new ChunkableHandler[handler.length];
+        for (int idx = 0; idx < handler.length; idx++) {
+          chunkHandler[idx] = handler[idx].chunk(ancestors);
+        }
+        TreeWalker.walkTree(TreeIterablesSorted.acceptedPath(dao.getNeo(), root, null), meter, dao, chunkHandler);
+        return chunkHandler;
+      }
+    }
+  }
+
+  /**
+   * Delegates all events of the upper tree to the handlers and merges the chunk results instead of the chunk roots.
+   */
+  private static class ChunkMerger implements NameUsageHandler {
+    private final ChunkEvaluator chunker;
+    private final Map<Long, Future<ChunkableHandler[]>> chunks;
+    private final Meter meter;
+    private final ChunkableHandler[] handler;
+
+    ChunkMerger(ChunkEvaluator chunker, Map<Long, Future<ChunkableHandler[]>> chunks, @Nullable Meter meter, ChunkableHandler[] handler) {
+      this.chunker = chunker;
+      this.chunks = chunks;
+      this.meter = meter;
+      this.handler = handler;
+    }
+
+    @Override
+    public void start(Node n) {
+      start(n, null);
+    }
+
+    @Override
+    public void start(Node n, @Nullable NameUsage u) {
+      if (chunker.isChunk(n.getId())) {
+        ChunkableHandler[] results = awaitChunk(n);
+        for (int idx = 0; idx < handler.length; idx++) {
+          handler[idx].merge(results[idx]);
+        }
+      } else {
+        if (meter != null) {
+          meter.mark();
+        }
+        for (StartEndHandler h : handler) {
+          TreeWalker.handleStart(h, n, u);
+        }
+      }
+    }
+
+    @Override
+    public void end(Node n) {
+      end(n, null);
+    }
+
+    @Override
+    public void end(Node n, @Nullable NameUsage u) {
+      if (!chunker.isChunk(n.getId())) {
+        for (StartEndHandler h : handler) {
+          TreeWalker.handleEnd(h, n, u);
+        }
+      }
+    }
+
+    private ChunkableHandler[] awaitChunk(Node n) {
+      try {
+        return chunks.remove(n.getId()).get();
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while walking chunk " + n.getId(), e);
+
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to walk chunk " + n.getId(), e.getCause());
+      }
+    }
+  }
+}
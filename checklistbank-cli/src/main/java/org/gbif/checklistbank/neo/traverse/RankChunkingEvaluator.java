@@ -0,0 +1,45 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.neo.NeoProperties;
+
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongSet;
+import com.google.common.base.Preconditions;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.traversal.Evaluation;
+
+/**
+ * Marks the first node of each path with a rank equal or below a given threshold as a chunk.
+ * Nodes without a rank or with an uncomparable rank never start a chunk.
+ *
+ * Unlike the {@link ChunkingEvaluator} this does not need existing metrics and can be used for a first walk.
+ */
+public class RankChunkingEvaluator implements ChunkEvaluator {
+
+  private final Rank threshold;
+  private LongSet chunkIds = new LongHashSet();
+
+  public RankChunkingEvaluator(Rank threshold) {
+    this.threshold = Preconditions.checkNotNull(threshold, "Chunk rank required");
+  }
+
+  @Override
+  public Evaluation evaluate(Path path) {
+    Node n = path.endNode();
+    if (n.hasProperty(NeoProperties.RANK)) {
+      Rank rank = Rank.values()[(int) n.getProperty(NeoProperties.RANK)];
+      if (!rank.isUncomparable() && !threshold.higherThan(rank)) {
+        chunkIds.add(n.getId());
+        return Evaluation.INCLUDE_AND_PRUNE;
+      }
+    }
+    return Evaluation.INCLUDE_AND_CONTINUE;
+  }
+
+  @Override
+  public boolean isChunk(long nodeId) {
+    return chunkIds.contains(nodeId);
+  }
+}
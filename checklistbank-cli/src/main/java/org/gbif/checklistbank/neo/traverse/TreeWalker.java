@@ -1,12 +1,16 @@
 package org.gbif.checklistbank.neo.traverse;
 
+import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.neo.NeoProperties;
+import org.gbif.checklistbank.neo.UsageDao;
 
+import java.util.LinkedList;
 import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
 import com.yammer.metrics.Meter;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -36,7 +40,7 @@ public class TreeWalker {
    */
   public static void walkTree(GraphDatabaseService db, boolean inclProParte, @Nullable Node root, @Nullable Rank lowestRank, @Nullable Meter meter, StartEndHandler ... handler) {
     try (Transaction tx = db.beginTx()){
-      walkTree(TreeIterablesSorted.allPath(db, root, lowestRank, inclProParte), meter, handler);
+      walkTree(TreeIterablesSorted.allPath(db, root, lowestRank, inclProParte), meter, null, handler);
     }
   }
 
@@ -52,12 +56,25 @@ public class TreeWalker {
    */
   public static void walkAcceptedTree(GraphDatabaseService db, @Nullable Node root, @Nullable Rank lowestRank, @Nullable Meter meter, StartEndHandler ... handler) {
     try (Transaction tx = db.beginTx()){
-      walkTree(TreeIterablesSorted.acceptedPath(db, root, lowestRank), meter, handler);
+      walkTree(TreeIterablesSorted.acceptedPath(db, root, lowestRank), meter, null, handler);
     }
   }
 
+  /**
+   * Walks allAccepted nodes in a single transaction reading the name usage of each node only once for all NameUsageHandler.
+   */
+  public static void walkAcceptedTree(UsageDao dao, @Nullable Node root, @Nullable Rank lowestRank, @Nullable Meter meter, StartEndHandler ... handler) {
+    try (Transaction tx = dao.beginTx()){
+      walkTree(TreeIterablesSorted.acceptedPath(dao.getNeo(), root, lowestRank), meter, dao, handler);
+    }
+  }
 
-  private static void walkTree(ResourceIterable<Path> paths, @Nullable Meter meter, StartEndHandler ... handler) {
+  /**
+   * Walks the given paths within the transaction of the caller
+   * @param dao if given the name usage of each node is read once and passed to all NameUsageHandler
+   */
+  static void walkTree(ResourceIterable<Path> paths, @Nullable Meter meter, @Nullable UsageDao dao, StartEndHandler ... handler) {
+    final NodeContext ctx = new NodeContext(dao, handler);
     Path lastPath = null;
     long counter = 0;
     try (ResourceIterator<Path> iter = paths.iterator()){
@@ -81,16 +98,16 @@ public class TreeWalker {
           // first close allAccepted old nodes, then open new ones
           // reverse order for closing nodes...
           for (Node n : ImmutableList.copyOf(lIter).reverse()) {
-            handleEnd(n, handler);
+            ctx.end(n);
           }
           while (cIter.hasNext()) {
-            handleStart(cIter.next(), handler);
+            ctx.start(cIter.next());
           }
 
         } else {
           // only new nodes
           for (Node n : p.nodes()) {
-            handleStart(n, handler);
+            ctx.start(n);
           }
         }
         lastPath = p;
@@ -99,20 +116,65 @@ public class TreeWalker {
       // close all remaining nodes
       if (lastPath != null) {
         for (Node n : ImmutableList.copyOf(lastPath.nodes()).reverse()) {
-          handleEnd(n, handler);
+          ctx.end(n);
         }
       }
     }
   }
 
-  private static void handleStart(Node n, StartEndHandler ... handler) {
-    for (StartEndHandler h : handler) {
+  /**
+   * Per walk context keeping the name usages of all open nodes so they are read only once.
+   */
+  private static class NodeContext {
+    private final UsageDao dao;
+    private final StartEndHandler[] handler;
+    private final boolean readUsage;
+    private final LinkedList<NameUsage> usages = Lists.newLinkedList();
+
+    NodeContext(@Nullable UsageDao dao, StartEndHandler[] handler) {
+      this.dao = dao;
+      this.handler = handler;
+      boolean usageHandler = false;
+      for (StartEndHandler h : handler) {
+        usageHandler = usageHandler || h instanceof NameUsageHandler;
+      }
+      readUsage = dao != null && usageHandler;
+    }
+
+    void start(Node n) {
+      NameUsage u = null;
+      if (readUsage) {
+        u = dao.readUsage(n, false);
+        usages.add(u);
+      }
+      for (StartEndHandler h : handler) {
+        handleStart(h, n, u);
+      }
+    }
+
+    void end(Node n) {
+      NameUsage u = readUsage ? usages.removeLast() : null;
+      for (StartEndHandler h : handler) {
+        handleEnd(h, n, u);
+      }
+    }
+  }
+
+  /**
+   * Passes the usage to NameUsageHandler if it exists, otherwise the handler needs to read it itself
+   */
+  static void handleStart(StartEndHandler h, Node n, @Nullable NameUsage u) {
+    if (u != null && h instanceof NameUsageHandler) {
+      ((NameUsageHandler) h).start(n, u);
+    } else {
       h.start(n);
     }
   }
 
-  private static void handleEnd(Node n, StartEndHandler ... handler) {
-    for (StartEndHandler h : handler) {
+  static void handleEnd(StartEndHandler h, Node n, @Nullable NameUsage u) {
+    if (u != null && h instanceof NameUsageHandler) {
+      ((NameUsageHandler) h).end(n, u);
+    } else {
       h.end(n);
     }
   }
@@ -26,7 +26,7 @@ import org.slf4j.LoggerFactory;
  * Synonym usages do not need a data record as its zero all over.
  * The handler works on taxonomic neo relations and the NameUsage instances in the kvp store, so make sure they exist!
  */
-public class UsageMetricsHandler implements StartEndHandler {
+public class UsageMetricsHandler implements ChunkableHandler, NameUsageHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(UsageMetricsHandler.class);
     // neo node ids for the higher classification links
@@ -41,6 +41,8 @@ public class UsageMetricsHandler implements StartEndHandler {
     private Map<Rank, Integer> countByRank = Maps.newHashMap();
     private final UsageDao dao;
     private final boolean debug = false;
+    // collects the rank counts and children for all ancestors of a chunk
+    private NameUsageMetrics chunkParent;
 
     public UsageMetricsHandler(UsageDao dao) {
         this.dao = dao;
@@ -48,7 +50,11 @@ public class UsageMetricsHandler implements StartEndHandler {
 
     @Override
     public void start(Node n) {
-        NameUsage u = dao.readUsage(n, false);
+        start(n, dao.readUsage(n, false));
+    }
+
+    @Override
+    public void start(Node n, NameUsage u) {
         Preconditions.checkNotNull(u, "node " + n.getId() + " with missing name usage found");
         // increase counters
         count(u);
@@ -84,8 +90,12 @@ public class UsageMetricsHandler implements StartEndHandler {
 
     @Override
     public void end(Node n) {
+        end(n, dao.readUsage(n, false));
+    }
+
+    @Override
+    public void end(Node n, NameUsage u) {
         depth--;
-        NameUsage u = dao.readUsage(n, false);
         // final data update
         NameUsageMetrics metrics = parentCounts.removeLast();
         metrics.setNumSynonyms(processSynonyms(n));
@@ -105,6 +115,51 @@ public class UsageMetricsHandler implements StartEndHandler {
         if (debug) LOG.info("end: {} {} {} #  {}-{}-{}", u.getTaxonID(), u.getRank(), u.getScientificName(), metrics.getNumDescendants(), metrics.getNumSynonyms(), parentCounts.size());
     }
 
+    /**
+     * Creates a handler for a chunk with the classification and depth of the given ancestors.
+     */
+    @Override
+    public UsageMetricsHandler chunk(List<Node> ancestors) {
+        UsageMetricsHandler h = new UsageMetricsHandler(dao);
+        for (Node a : ancestors) {
+            NameUsage u = dao.readUsage(a, false);
+            if (u.getRank() != null && u.getRank().isLinnean()) {
+                ClassificationUtils.setHigherRankKey(h.classification, u.getRank(), (int) a.getId());
+                ClassificationUtils.setHigherRank(h.classification, u.getRank(), u.getCanonicalOrScientificName());
+            }
+        }
+        h.depth = ancestors.size();
+        h.chunkParent = new NameUsageMetrics();
+        h.parentCounts.add(h.chunkParent);
+        return h;
+    }
+
+    @Override
+    public void merge(ChunkableHandler chunk) {
+        UsageMetricsHandler c = (UsageMetricsHandler) chunk;
+        counter += c.counter;
+        roots += c.roots;
+        synonyms += c.synonyms;
+        maxDepth = Math.max(maxDepth, c.maxDepth);
+        for (Map.Entry<Origin, Integer> e : c.countByOrigin.entrySet()) {
+            add(countByOrigin, e.getKey(), e.getValue());
+        }
+        for (Map.Entry<Rank, Integer> e : c.countByRank.entrySet()) {
+            add(countByRank, e.getKey(), e.getValue());
+        }
+        // the chunk root is a direct child, its linnean descendants count for all parents
+        for (NameUsageMetrics m : parentCounts) {
+            for (Rank r : Rank.LINNEAN_RANKS) {
+                if (r != Rank.KINGDOM) {
+                    setNumByRank(m, r, m.getNumByRank(r) + c.chunkParent.getNumByRank(r));
+                }
+            }
+        }
+        if (!parentCounts.isEmpty()) {
+            parentCounts.getLast().setNumChildren(parentCounts.getLast().getNumChildren() + c.chunkParent.getNumChildren());
+        }
+    }
+
     public NormalizerStats getStats(int ignored, List<String> cycles) {
         return new NormalizerStats(roots, maxDepth, synonyms, ignored, countByOrigin, countByRank, cycles);
     }
@@ -151,18 +206,18 @@ public class UsageMetricsHandler implements StartEndHandler {
 
     private void count(NameUsage u) {
         if (u.getOrigin() != null) {
-            if (!countByOrigin.containsKey(u.getOrigin())) {
-                countByOrigin.put(u.getOrigin(), 1);
-            } else {
-                countByOrigin.put(u.getOrigin(), countByOrigin.get(u.getOrigin()) + 1);
-            }
+            add(countByOrigin, u.getOrigin(), 1);
         }
         if (u.getRank() != null) {
-            if (!countByRank.containsKey(u.getRank())) {
-                countByRank.put(u.getRank(), 1);
-            } else {
-                countByRank.put(u.getRank(), countByRank.get(u.getRank()) + 1);
-            }
+            add(countByRank, u.getRank(), 1);
+        }
+    }
+
+    private static <T> void add(Map<T, Integer> counts, T key, int cnt) {
+        if (!counts.containsKey(key)) {
+            counts.put(key, cnt);
+        } else {
+            counts.put(key, counts.get(key) + cnt);
         }
     }
 
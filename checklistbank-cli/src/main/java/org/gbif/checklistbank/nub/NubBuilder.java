@@ -32,12 +32,13 @@ import org.gbif.checklistbank.nub.source.NubSourceList;
 import org.gbif.checklistbank.nub.validation.NubAssertions;
 import org.gbif.checklistbank.nub.validation.NubTreeValidation;
 import org.gbif.checklistbank.nub.validation.NubValidation;
+import org.gbif.checklistbank.utils.ExecutorUtils;
 import org.gbif.checklistbank.utils.SciNameNormalizer;
 import org.gbif.nameparser.NameParser;
 import org.gbif.nameparser.UnparsableException;
 import org.gbif.nub.lookup.straight.IdLookup;
-import org.gbif.nub.lookup.straight.IdLookupImpl;
 import org.gbif.utils.collection.MapUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -48,6 +49,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -115,6 +121,7 @@ public class NubBuilder implements Runnable {
       TaxonomicStatus.DOUBTFUL, 5
       );
   private static final Pattern EX_AUTHOR = Pattern.compile("^(.+) ex ", Pattern.CASE_INSENSITIVE);
+  private static final String BASIONYM_THREAD_NAME = "basionym-detector";
 
   private final Set<Rank> allowedRanks = Sets.newHashSet();
   private final NubDb db;
@@ -147,7 +154,7 @@ public class NubBuilder implements Runnable {
   public static NubBuilder create(NubConfiguration cfg) {
     UsageDao dao = UsageDao.persistentDao(cfg.neo, Constants.NUB_DATASET_KEY, false, null, true);
     try {
-      IdLookupImpl idLookup = IdLookupImpl.temp().load(cfg.clb, true);
+      IdLookup idLookup = cfg.idLookup.load(cfg.clb, true);
       return new NubBuilder(dao, ClbSourceList.create(cfg), idLookup, idLookup.getAuthorComparator(), idLookup.getKeyMax() + 1, true, cfg);
     } catch (Exception e) {
       throw new IllegalStateException("Failed to load existing backbone ids", e);
@@ -549,108 +556,170 @@ public class NubBuilder implements Runnable {
     return families;
   }
 
+  /**
+   * The basionym groups with recombinations detected within a single family.
+   */
+  private static class FamilyBasionyms {
+    final NubUsage family;
+    final List<BasionymGroup<NubUsage>> groups = Lists.newArrayList();
+
+    FamilyBasionyms(NubUsage family) {
+      this.family = family;
+    }
+  }
+
+  /**
+   * Reads all names of a family in its own read only transaction and groups them by their basionym.
+   * Does not modify the db, so several families can be processed concurrently.
+   */
+  private class FamilyBasionymReader implements Callable<FamilyBasionyms> {
+    private final Node n;
+    private final BasionymSorter basSorter;
+
+    FamilyBasionymReader(Node n, BasionymSorter basSorter) {
+      this.n = n;
+      this.basSorter = basSorter;
+    }
+
+    @Override
+    public FamilyBasionyms call() {
+      try (Transaction tx = db.beginTx()) {
+        NubUsage fam = read(n);
+        FamilyBasionyms result = new FamilyBasionyms(fam);
+        if (!fam.status.isSynonym()) {
+          Map<String, List<NubUsage>> epithets = Maps.newHashMap();
+          Map<String, Set<String>> epithetBridges = Maps.newHashMap();
+          LOG.debug("Discover basionyms in family {}", fam.parsedName.canonicalNameComplete());
+          // key all names by their terminal epithet
+          for (Node c : Traversals.DESCENDANTS.traverse(n).nodes()) {
+            NubUsage nub = read(c);
+            // ignore all supra specific names and autonyms
+            if (nub.rank.isSpeciesOrBelow() && !c.hasLabel(Labels.AUTONYM)) {
+              String epithet = SciNameNormalizer.stemEpithet(nub.parsedName.getTerminalEpithet());
+              if (!epithets.containsKey(epithet)) {
+                epithets.put(epithet, Lists.newArrayList(nub));
+              } else {
+                epithets.get(epithet).add(nub);
+              }
+              // now check if a basionym relation exists already that reaches out to some other epithet, e.g. due to gender changes
+              for (Node bg : Traversals.BASIONYM_GROUP.evaluator(Evaluators.excludeStartPosition()).traverse(c).nodes()) {
+                NubUsage bgu = read(bg);
+                String epithet2 = SciNameNormalizer.stemEpithet(bgu.parsedName.getTerminalEpithet());
+                if (epithet2 != null && !epithet2.equals(epithet)) {
+                  if (!epithetBridges.containsKey(epithet)) {
+                    epithetBridges.put(epithet, Sets.newHashSet(epithet2));
+                  } else {
+                    epithetBridges.get(epithet).add(epithet2);
+                  }
+                }
+              }
+            }
+          }
+          LOG.debug("{} distinct epithets found in family {}", epithets.size(), fam.parsedName.canonicalNameComplete());
+
+          // merge epithet groups based on existing basionym relations, catching some gender changes
+          LOG.debug("{} epithets are connected with explicit basionym relations", epithetBridges.size());
+          for (Map.Entry<String, Set<String>> bridge : epithetBridges.entrySet()) {
+            if (epithets.containsKey(bridge.getKey())) {
+              List<NubUsage> usages = epithets.get(bridge.getKey());
+              for (String epi2 : bridge.getValue()) {
+                if (epithets.containsKey(epi2)) {
+                  LOG.debug("Merging {} usages of epithet {} into epithet group {}", epithets.get(epi2).size(), epi2, bridge.getKey());
+                  usages.addAll(epithets.remove(epi2));
+                }
+              }
+            }
+          }
+
+          // now compare authorships for each epithet group
+          for (Map.Entry<String, List<NubUsage>> epithetGroup : epithets.entrySet()) {
+            Collection<BasionymGroup<NubUsage>> groups = basSorter.groupBasionyms(epithetGroup.getValue(), new Function<NubUsage, ParsedName>() {
+              @Override
+              public ParsedName apply(NubUsage nub) {
+                return nub.parsedName;
+              }
+            });
+            // we only need to process groups that contain recombinations
+            for (BasionymGroup<NubUsage> group : groups) {
+              if (group.hasRecombinations()) {
+                result.groups.add(group);
+              }
+            }
+          }
+        }
+        return result;
+
+      } catch (Exception e) {
+        LOG.error("Error detecting basionyms for family {}", n.getProperty(NeoProperties.SCIENTIFIC_NAME, "no name"), e);
+        return null;
+      }
+    }
+  }
+
   /**
    * Goes through all usages and tries to discover basionyms by comparing the specific or infraspecific epithet and the authorships within a family.
    * As we often see missing brackets from author names we must code defensively and allow several original names in the data for a single epithet.
+   *
+   * Families are read and grouped concurrently by cfg.basionymThreads threads using a shared, thread safe author comparator.
+   * The detected groups are persisted one family at a time on the calling thread.
    */
   private void detectBasionyms() {
     try {
-      LOG.info("Discover basionyms");
+      LOG.info("Discover basionyms using {} threads", cfg.basionymThreads);
       int newBasionyms = 0;
       int newRelations = 0;
       final BasionymSorter basSorter = new BasionymSorter(authorComparator);
 
       // load all family nodes into list so we can process them seach in a separate transaction later on
       List<Node> families = listFamilies();
-      for (Node n : families) {
-        try (Transaction tx = db.beginTx()) {
-          NubUsage fam = read(n);
-          if (!fam.status.isSynonym()) {
-            Map<String, List<NubUsage>> epithets = Maps.newHashMap();
-            Map<String, Set<String>> epithetBridges = Maps.newHashMap();
-            LOG.debug("Discover basionyms in family {}", fam.parsedName.canonicalNameComplete());
-            // key all names by their terminal epithet
-            for (Node c : Traversals.DESCENDANTS.traverse(n).nodes()) {
-              NubUsage nub = read(c);
-              // ignore all supra specific names and autonyms
-              if (nub.rank.isSpeciesOrBelow() && !c.hasLabel(Labels.AUTONYM)) {
-                String epithet = SciNameNormalizer.stemEpithet(nub.parsedName.getTerminalEpithet());
-                if (!epithets.containsKey(epithet)) {
-                  epithets.put(epithet, Lists.newArrayList(nub));
-                } else {
-                  epithets.get(epithet).add(nub);
-                }
-                // now check if a basionym relation exists already that reaches out to some other epithet, e.g. due to gender changes
-                for (Node bg : Traversals.BASIONYM_GROUP.evaluator(Evaluators.excludeStartPosition()).traverse(c).nodes()) {
-                  NubUsage bgu = read(bg);
-                  String epithet2 = SciNameNormalizer.stemEpithet(bgu.parsedName.getTerminalEpithet());
-                  if (epithet2 != null && !epithet2.equals(epithet)) {
-                    if (!epithetBridges.containsKey(epithet)) {
-                      epithetBridges.put(epithet, Sets.newHashSet(epithet2));
-                    } else {
-                      epithetBridges.get(epithet).add(epithet2);
-                    }
-                  }
-                }
-              }
-            }
-            LOG.debug("{} distinct epithets found in family {}", epithets.size(), fam.parsedName.canonicalNameComplete());
-
-            // merge epithet groups based on existing basionym relations, catching some gender changes
-            LOG.debug("{} epithets are connected with explicit basionym relations", epithetBridges.size());
-            for (Map.Entry<String, Set<String>> bridge : epithetBridges.entrySet()) {
-              if (epithets.containsKey(bridge.getKey())) {
-                List<NubUsage> usages = epithets.get(bridge.getKey());
-                for (String epi2 : bridge.getValue()) {
-                  if (epithets.containsKey(epi2)) {
-                    LOG.debug("Merging {} usages of epithet {} into epithet group {}", epithets.get(epi2).size(), epi2, bridge.getKey());
-                    usages.addAll(epithets.remove(epi2));
-                  }
-                }
+      ExecutorService exec = Executors.newFixedThreadPool(cfg.basionymThreads, new NamedThreadFactory(BASIONYM_THREAD_NAME));
+      CompletionService<FamilyBasionyms> cs = new ExecutorCompletionService<FamilyBasionyms>(exec);
+      try {
+        Iterator<Node> famIter = families.iterator();
+        int running = 0;
+        while (famIter.hasNext() || running > 0) {
+          // keep at most 2 families per thread in flight to bound memory
+          while (famIter.hasNext() && running < cfg.basionymThreads * 2) {
+            cs.submit(new FamilyBasionymReader(famIter.next(), basSorter));
+            running++;
+          }
+          FamilyBasionyms fb = cs.take().get();
+          running--;
+          if (fb == null || fb.groups.isEmpty()) {
+            continue;
+          }
+          try (Transaction tx = db.beginTx()) {
+            // go through groups and persistent basionym relations where needed
+            for (BasionymGroup<NubUsage> group : fb.groups) {
+              // if we have a basionym creating relations is straight forward
+              NubUsage basionym = null;
+              if (group.hasBasionym()) {
+                basionym = group.getBasionym();
+
+              } else if (group.getRecombinations().size() > 1) {
+                // we need to persistent a placeholder basionym to group the 2 or more recombinations
+                newBasionyms++;
+                basionym = createBasionymPlaceholder(fb.family, group);
               }
-            }
-
-            // now compare authorships for each epithet group
-            for (Map.Entry<String, List<NubUsage>> epithetGroup : epithets.entrySet()) {
-
-              Collection<BasionymGroup<NubUsage>> groups = basSorter.groupBasionyms(epithetGroup.getValue(), new Function<NubUsage, ParsedName>() {
-                @Override
-                public ParsedName apply(NubUsage nub) {
-                  return nub.parsedName;
-                }
-              });
-              // go through groups and persistent basionym relations where needed
-              for (BasionymGroup<NubUsage> group : groups) {
-                // we only need to process groups that contain recombinations
-                if (group.hasRecombinations()) {
-                  // if we have a basionym creating relations is straight forward
-                  NubUsage basionym = null;
-                  if (group.hasBasionym()) {
-                    basionym = group.getBasionym();
-
-                  } else if (group.getRecombinations().size() > 1) {
-                    // we need to persistent a placeholder basionym to group the 2 or more recombinations
-                    newBasionyms++;
-                    basionym = createBasionymPlaceholder(fam, group);
-                  }
-                  // persistent basionym relations
-                  if (basionym != null) {
-                    for (NubUsage u : group.getRecombinations()) {
-                      if (createBasionymRelationIfNotExisting(basionym.node, u.node)) {
-                        newRelations++;
-                        u.issues.add(NameUsageIssue.ORIGINAL_NAME_DERIVED);
-                        db.store(u);
-                      }
-                    }
+              // persistent basionym relations
+              if (basionym != null) {
+                for (NubUsage u : group.getRecombinations()) {
+                  if (createBasionymRelationIfNotExisting(basionym.node, u.node)) {
+                    newRelations++;
+                    u.issues.add(NameUsageIssue.ORIGINAL_NAME_DERIVED);
+                    db.store(u);
                   }
                 }
               }
             }
+            tx.success();
+          } catch (Exception e) {
+            LOG.error("Error persisting basionyms for family {}", fb.family.parsedName.canonicalNameComplete(), e);
           }
-          tx.success();
-        } catch (Exception e) {
-          LOG.error("Error detecting basionyms for family {}", n.getProperty(NeoProperties.SCIENTIFIC_NAME, "no name"), e);
         }
+
+      } finally {
+        ExecutorUtils.stop(exec, BASIONYM_THREAD_NAME, 1, TimeUnit.MINUTES);
       }
       LOG.info("Discovered {} new basionym relations and created {} basionym placeholders", newRelations, newBasionyms);
 
@@ -1576,7 +1645,7 @@ public class NubBuilder implements Runnable {
     LOG.info("Walk all accepted taxa and build usage metrics");
     UsageMetricsHandler metricsHandler = new UsageMetricsHandler(db.dao());
     // TaxonWalker deals with transactions
-    TreeWalker.walkAcceptedTree(db.dao().getNeo(), metricsHandler);
+    TreeWalker.walkAcceptedTree(db.dao(), null, null, null, metricsHandler);
     NormalizerStats normalizerStats = metricsHandler.getStats(0, null);
     LOG.info("Walked all taxa (root={}, total={}, synonyms={}) and built usage metrics", normalizerStats.getRoots(), normalizerStats.getCount(), normalizerStats.getSynonyms());
   }
@@ -7,6 +7,7 @@ import org.gbif.api.vocabulary.Origin;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
 import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.ParsedAuthorship;
 import org.gbif.checklistbank.model.Equality;
 import org.gbif.checklistbank.neo.Labels;
 import org.gbif.checklistbank.neo.NeoProperties;
@@ -199,18 +200,19 @@ public class NubDb {
    */
   public NubUsageMatch findNubUsage(UUID currSource, ParsedName pn, @Nullable Rank rank, TaxonomicStatus status, Kingdom kingdom, @Nullable NubUsage currNubParent) throws IgnoreSourceUsageException {
     final boolean qualifiedName = pn.hasAuthorship();
+    final ParsedAuthorship authorship = authComp.authorship(pn);
     List<NubUsage> checked = Lists.newArrayList();
     int canonMatches = 0;
     NubUsage doubtful = null;
     final String name = dao.canonicalOrScientificName(pn, false);
     for (Node n : IteratorUtil.loop(dao.getNeo().findNodes(Labels.TAXON, NeoProperties.CANONICAL_NAME, name))) {
       NubUsage rn = dao.readNub(n);
-      if (matchesNub(pn, rank, kingdom, rn, currNubParent, false)) {
+      if (matchesNub(authorship, rank, kingdom, rn, currNubParent, false)) {
         checked.add(rn);
         if (!rn.parsedName.hasAuthorship()) {
           canonMatches++;
         }
-      } else if ((rn.status == TaxonomicStatus.DOUBTFUL) && rn.parsedName.hasAuthorship() && matchesNub(pn, rank, kingdom, rn, currNubParent, true)){
+      } else if ((rn.status == TaxonomicStatus.DOUBTFUL) && rn.parsedName.hasAuthorship() && matchesNub(authorship, rank, kingdom, rn, currNubParent, true)){
         doubtful = rn;
       }
     }
@@ -295,7 +297,7 @@ public class NubDb {
       iter = checked.iterator();
       while (iter.hasNext()) {
         NubUsage nu = iter.next();
-        Equality author = authComp.compare(pn, nu.parsedName);
+        Equality author = authComp.compare(authorship, authorship(nu));
         if (author != Equality.EQUAL) {
           iter.remove();
         }
@@ -361,7 +363,17 @@ public class NubDb {
     return source;
   }
 
-  private boolean matchesNub(ParsedName pn, Rank rank, Kingdom uKingdom, NubUsage match, @Nullable NubUsage currNubParent, boolean ignoreAuthor) {
+  /**
+   * @return the precompiled authorship of a nub usage, created on first use
+   */
+  private ParsedAuthorship authorship(NubUsage nu) {
+    if (nu.authorship == null) {
+      nu.authorship = authComp.authorship(nu.parsedName);
+    }
+    return nu.authorship;
+  }
+
+  private boolean matchesNub(ParsedAuthorship authorship, Rank rank, Kingdom uKingdom, NubUsage match, @Nullable NubUsage currNubParent, boolean ignoreAuthor) {
     if (rank != match.rank) {
       return false;
     }
@@ -369,7 +381,7 @@ public class NubDb {
     if (rank.isSuprageneric()) {
       return true;
     }
-    Equality author = ignoreAuthor ? Equality.UNKNOWN : authComp.compare(pn, match.parsedName);
+    Equality author = ignoreAuthor ? Equality.UNKNOWN : authComp.compare(authorship, authorship(match));
     Equality kingdom = compareKingdom(uKingdom, match);
     if (author == Equality.DIFFERENT || kingdom == Equality.DIFFERENT) return false;
     switch (author) {
@@ -3,9 +3,8 @@ package org.gbif.checklistbank.nub.lookup;
 import org.gbif.api.model.Constants;
 import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.config.ClbConfiguration;
-import org.gbif.checklistbank.nub.ParentStack;
-import org.gbif.checklistbank.nub.model.NubUsage;
 import org.gbif.checklistbank.nub.model.SrcUsage;
 import org.gbif.checklistbank.nub.source.ClbSource;
 import org.gbif.checklistbank.service.DatasetImportService;
@@ -13,12 +12,17 @@ import org.gbif.common.messaging.api.MessagePublisher;
 import org.gbif.common.messaging.api.messages.ChecklistSyncedMessage;
 import org.gbif.nub.lookup.straight.DatasetMatchFailed;
 import org.gbif.nub.lookup.straight.IdLookup;
+import org.gbif.nub.lookup.straight.LookupQuery;
 import org.gbif.nub.lookup.straight.LookupUsage;
 
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,33 +62,12 @@ public class NubMatchService {
     }
 
     LOG.info("Rematch checklist {} to Backbone", d.getKey());
-    Map<Integer, Integer> relations = Maps.newHashMap();
-
     try (ClbSource src = new ClbSource(cfg, d)){
       // read in postgres usages
       LOG.info("Copy usages for {} from pg into neo", d.getKey());
       src.init(false, false, true, false);
 
-      NubUsage unknown = new NubUsage();
-      unknown.usageKey = Kingdom.INCERTAE_SEDIS.nubUsageID();
-      unknown.kingdom = Kingdom.INCERTAE_SEDIS;
-      // this is a taxonomically sorted iteration. We remember the parent kingdom using the ParentStack
-      ParentStack parents = new ParentStack(unknown);
-      for (SrcUsage u : src) {
-        parents.add(u);
-        LookupUsage match = nubLookup.match(u.parsedName.canonicalName(), u.parsedName.getAuthorship(), u.parsedName.getYear(), u.rank, parents.nubKingdom());
-        if (match != null) {
-          // add to relations
-          relations.put(u.key, match.getKey());
-          // store current kingdom in parent stack for further nub lookups of children
-          NubUsage nub = new NubUsage();
-          nub.kingdom = match.getKingdom();
-          parents.put(nub);
-        } else {
-          // also store no matches as nulls so we can flag an issue
-          relations.put(u.key, null);
-        }
-      }
+      Map<Integer, Integer> relations = match(src);
       LOG.info("Updating {} nub relations for dataset {}", relations.size(), d.getKey());
       sqlService.insertNubRelations(d.getKey(), relations);
       solrService.insertNubRelations(d.getKey(), relations);
@@ -100,6 +83,96 @@ public class NubMatchService {
     }
   }
 
+  /**
+   * Matches all usages to the backbone one classification level at a time in a single batch.
+   * The kingdom of the closest matched parent is used to disambiguate homonyms.
+   * As the source is read depth first, all unmatched names need to be kept until their level is matched,
+   * but a level is released as soon as it is matched, keeping only the kingdoms of its usages for the next level.
+   *
+   * @param usages all source usages in taxonomic order with parents always coming before their children
+   * @return the nub relations for all usages, storing no matches as nulls so we can flag an issue
+   */
+  @VisibleForTesting
+  Map<Integer, Integer> match(Iterable<SrcUsage> usages) {
+    // group usages by their depth tracked with the parent keys of the current classification
+    List<List<Src>> levels = Lists.newArrayList();
+    LinkedList<Integer> parents = Lists.newLinkedList();
+    for (SrcUsage u : usages) {
+      if (u.parentKey == null) {
+        parents.clear();
+      } else {
+        while (!parents.isEmpty() && !parents.getLast().equals(u.parentKey)) {
+          parents.removeLast();
+        }
+        if (parents.isEmpty()) {
+          throw new IllegalStateException("Source parent node " + u.parentKey + " not found for " + u.scientificName);
+        }
+      }
+      if (levels.size() == parents.size()) {
+        levels.add(Lists.<Src>newArrayList());
+      }
+      levels.get(parents.size()).add(new Src(u));
+      parents.add(u.key);
+    }
+
+    Map<Integer, Integer> relations = Maps.newHashMap();
+    Map<Integer, Kingdom> kingdoms = Maps.newHashMap();
+    for (int depth = 0; depth < levels.size(); depth++) {
+      kingdoms = match(levels.set(depth, null), kingdoms, relations);
+    }
+    return relations;
+  }
+
+  /**
+   * Matches a single classification level.
+   *
+   * @param parentKingdoms the nub kingdom of the closest matched usage for all usages of the level above
+   * @return the nub kingdom of the closest matched usage for all usages of this level
+   */
+  private Map<Integer, Kingdom> match(List<Src> level, Map<Integer, Kingdom> parentKingdoms, Map<Integer, Integer> relations) {
+    List<LookupQuery> queries = Lists.newArrayListWithCapacity(level.size());
+    for (Src s : level) {
+      Kingdom k = s.parentKey == null ? Kingdom.INCERTAE_SEDIS : parentKingdoms.get(s.parentKey);
+      queries.add(new LookupQuery(s.canonical, s.authorship, s.year, s.rank, k));
+    }
+    List<LookupUsage> matches = nubLookup.match(queries);
+
+    Map<Integer, Kingdom> kingdoms = Maps.newHashMapWithExpectedSize(level.size());
+    for (int idx = 0; idx < level.size(); idx++) {
+      int key = level.get(idx).key;
+      LookupUsage match = matches.get(idx);
+      if (match != null) {
+        kingdoms.put(key, match.getKingdom());
+        relations.put(key, match.getKey());
+      } else {
+        kingdoms.put(key, queries.get(idx).getKingdom());
+        relations.put(key, null);
+      }
+    }
+    return kingdoms;
+  }
+
+  /**
+   * Minimal source usage data needed for matching.
+   */
+  private static class Src {
+    final int key;
+    final Integer parentKey;
+    final String canonical;
+    final String authorship;
+    final String year;
+    final Rank rank;
+
+    Src(SrcUsage u) {
+      key = u.key;
+      parentKey = u.parentKey;
+      canonical = u.parsedName.canonicalName();
+      authorship = u.parsedName.getAuthorship();
+      year = u.parsedName.getYear();
+      rank = u.rank;
+    }
+  }
+
   public void matchDataset(UUID key) throws DatasetMatchFailed {
     Dataset d = new Dataset();
     d.setKey(key);
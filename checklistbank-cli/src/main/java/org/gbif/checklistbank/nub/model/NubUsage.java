@@ -7,6 +7,7 @@ import org.gbif.api.vocabulary.NomenclaturalStatus;
 import org.gbif.api.vocabulary.Origin;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.authorship.ParsedAuthorship;
 
 import java.util.EnumSet;
 import java.util.List;
@@ -37,6 +38,8 @@ public class NubUsage {
     //public Set<String> authors = Sets.newHashSet();
     public Set<NameUsageIssue> issues = EnumSet.noneOf(NameUsageIssue.class);
     public List<String> remarks = Lists.newArrayList();
+    // precompiled authorship of the parsed name, lazily set by NubDb and never persisted
+    public transient ParsedAuthorship authorship;
 
     public NubUsage() {
     }
@@ -0,0 +1,116 @@
+package org.gbif.checklistbank.cli.matchfile;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FileMatcherTest {
+  private static final int ROWS = 2500;
+  private File dir;
+  private File input;
+  private File output;
+
+  /**
+   * Matches every name to itself with the name length as the usage key and the kingdom from the classification.
+   */
+  private static class EchoMatchingService implements NameUsageMatchingService {
+    @Override
+    public NameUsageMatch match(String scientificName, @Nullable Rank rank,
+                                @Nullable LinneanClassification classification, boolean strict, boolean verbose) {
+      NameUsageMatch m = new NameUsageMatch();
+      m.setMatchType(NameUsageMatch.MatchType.EXACT);
+      m.setUsageKey(scientificName.length());
+      m.setScientificName(scientificName);
+      m.setRank(rank);
+      m.setKingdom(classification == null ? null : classification.getKingdom());
+      return m;
+    }
+  }
+
+  @Before
+  public void init() throws IOException {
+    dir = Files.createTempDir();
+    input = new File(dir, "names.txt");
+    output = new File(dir, "matches.txt");
+    try (Writer w = Files.newWriter(input, StandardCharsets.UTF_8)) {
+      w.write("id\tscientificName\trank\tkingdom\n");
+      for (int i = 0; i < ROWS; i++) {
+        w.write(i + "\tAbies alba " + i + "\tspecies\tPlantae\n");
+      }
+    }
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  private void assertOutput() throws IOException {
+    List<String> lines = Files.readLines(output, StandardCharsets.UTF_8);
+    assertEquals(ROWS + 1, lines.size());
+    assertEquals("id\tscientificName\trank\tkingdom\tmatchType\tconfidence\tusageKey\tacceptedUsageKey\tscientificName"
+        + "\trank\tstatus\tkingdom\tphylum\tclass\torder\tfamily\tgenus", lines.get(0));
+    for (int i = 0; i < ROWS; i++) {
+      String name = "Abies alba " + i;
+      assertEquals(i + "\t" + name + "\tspecies\tPlantae\tEXACT\t\t" + name.length() + "\t\t" + name
+          + "\tSPECIES\t\tPlantae\t\t\t\t\t", lines.get(i + 1));
+    }
+  }
+
+  @Test
+  public void testMatch() throws Exception {
+    FileMatcher fm = new FileMatcher(new EchoMatchingService(), 4, 1000);
+    assertEquals(ROWS, fm.match(input, "\t", output, false, false));
+    assertOutput();
+    assertFalse(Checkpoint.file(output).exists());
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    FileMatcher fm = new FileMatcher(new EchoMatchingService(), 4, 1000);
+    fm.match(input, "\t", output, false, false);
+
+    // pretend we failed after the first 1000 rows had been checkpointed and some more rows written
+    List<String> lines = Files.readLines(output, StandardCharsets.UTF_8);
+    long bytes = 0;
+    for (String line : lines.subList(0, 1001)) {
+      bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+    new Checkpoint(1000, bytes).write(output);
+    Files.write(FileUtils.readFileToString(output, "UTF-8").substring(0, (int) bytes + 50), output, StandardCharsets.UTF_8);
+
+    assertEquals(ROWS - 1000, fm.match(input, "\t", output, false, true));
+    assertOutput();
+    assertFalse(Checkpoint.file(output).exists());
+  }
+
+  @Test
+  public void testResumeWithoutCheckpoint() throws Exception {
+    FileMatcher fm = new FileMatcher(new EchoMatchingService(), 2, 100);
+    assertEquals(ROWS, fm.match(input, "\t", output, false, true));
+    assertOutput();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingNameColumn() throws Exception {
+    Files.write("id\trank\n1\tspecies\n", input, StandardCharsets.UTF_8);
+    new FileMatcher(new EchoMatchingService(), 2, 100).match(input, "\t", output, false, false);
+  }
+}
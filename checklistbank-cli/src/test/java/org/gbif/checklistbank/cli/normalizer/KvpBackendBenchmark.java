@@ -0,0 +1,64 @@
+package org.gbif.checklistbank.cli.normalizer;
+
+import org.gbif.checklistbank.cli.common.NeoConfiguration;
+import org.gbif.checklistbank.neo.kvp.KvpBackend;
+import org.gbif.nub.lookup.straight.IdLookupPassThru;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.yammer.metrics.MetricRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.Ignore;
+
+/**
+ * Manual benchmark that normalizes a large, already decompressed dwc archive with each kvp backend
+ * and prints the wall clock times.
+ * Expects the archive repository and the dataset key as arguments, the archive being found in a folder named after the dataset key.
+ */
+@Ignore("A manual benchmark")
+public class KvpBackendBenchmark {
+  private static final int RUNS = 3;
+
+  private static long normalize(File archiveRepo, UUID datasetKey, KvpBackend backend) {
+    File neoRepo = Files.createTempDir();
+    try {
+      NormalizerConfiguration cfg = new NormalizerConfiguration();
+      cfg.archiveRepository = archiveRepo;
+      cfg.neo = new NeoConfiguration();
+      cfg.neo.neoRepository = neoRepo;
+      cfg.neo.kvpBackend = backend;
+
+      Stopwatch watch = Stopwatch.createStarted();
+      Normalizer norm = Normalizer.create(cfg, datasetKey, new MetricRegistry("normalizer"), Maps.<String, UUID>newHashMap(), new IdLookupPassThru());
+      norm.run();
+      watch.stop();
+      System.out.println(backend + ": " + norm.getStats());
+      return watch.elapsed(TimeUnit.MILLISECONDS);
+
+    } finally {
+      FileUtils.deleteQuietly(neoRepo);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    File archiveRepo = new File(args[0]);
+    UUID datasetKey = UUID.fromString(args[1]);
+
+    for (KvpBackend backend : KvpBackend.values()) {
+      // warm up
+      normalize(archiveRepo, datasetKey, backend);
+      long total = 0;
+      for (int run = 1; run <= RUNS; run++) {
+        long time = normalize(archiveRepo, datasetKey, backend);
+        System.out.println(backend + " run " + run + ": " + time + "ms");
+        total += time;
+      }
+      System.out.println(backend + " average: " + total / RUNS + "ms");
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.gbif.checklistbank.cli.normalizer;
 
 import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.NameUsageMetrics;
+import org.gbif.api.model.checklistbank.ParsedName;
 import org.gbif.api.model.common.LinneanClassification;
 import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.Language;
@@ -101,6 +102,51 @@ public class NormalizerTest extends BaseTest {
     }
   }
 
+  /**
+   * Makes sure parsing names with several threads stores the very same parsed names as a single thread.
+   */
+  @Test
+  public void testParallelNameParsing() throws Exception {
+    final UUID datasetKey = datasetKey(1);
+
+    cfg.parserThreads = 1;
+    Map<String, ParsedName> expected = parsedNames(datasetKey);
+    assertEquals(20, expected.size());
+
+    cfg.parserThreads = 4;
+    assertEquals(expected, parsedNames(datasetKey));
+  }
+
+  /**
+   * Makes sure walking the tree with several threads builds the same metrics as a sequential walk.
+   */
+  @Test
+  public void testParallelTreeWalk() throws Exception {
+    NormalizerStats expected = normalize(1);
+
+    cfg.walkerThreads = 4;
+    cfg.walkerChunkRank = Rank.GENUS;
+    dao.close();
+    assertEquals(expected, normalize(1));
+  }
+
+  private Map<String, ParsedName> parsedNames(UUID datasetKey) {
+    Normalizer norm = Normalizer.create(cfg, datasetKey);
+    norm.run();
+
+    Map<String, ParsedName> names = Maps.newHashMap();
+    openDb(datasetKey);
+    try (Transaction tx = beginTx()) {
+      for (Node n : dao.allNodes()) {
+        if (n.hasLabel(Labels.TAXON)) {
+          names.put((String) n.getProperty(NeoProperties.TAXON_ID), dao.readName(n.getId()));
+        }
+      }
+    }
+    dao.close();
+    return names;
+  }
+
   @Test
   public void testIdList() throws Exception {
     final UUID datasetKey = datasetKey(1);
@@ -5,6 +5,7 @@ import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.model.GraphFormat;
+import org.gbif.checklistbank.neo.kvp.KvpBackend;
 import org.gbif.checklistbank.nub.source.ClasspathSource;
 import org.gbif.utils.file.FileUtils;
 
@@ -26,6 +27,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class UsageDaoTest {
 
@@ -44,8 +46,18 @@ public class UsageDaoTest {
 
   @Test
   public void persistenUsageDao() throws Exception {
+    persistentDao(KvpBackend.MAPDB);
+  }
+
+  @Test
+  public void persistenMappedUsageDao() throws Exception {
+    persistentDao(KvpBackend.MAPPED);
+  }
+
+  private void persistentDao(KvpBackend backend) throws Exception {
     NeoConfiguration cfg = new NeoConfiguration();
     cfg.neoRepository = Files.createTempDir();
+    cfg.kvpBackend = backend;
 
     UUID uuid = UUID.randomUUID();
     MetricRegistry reg = new MetricRegistry("daotest");
@@ -63,6 +75,18 @@ public class UsageDaoTest {
       // expect previous data to remain
       verifyData(true, dao.getNeo().getNodeById(0), dao.getNeo().getNodeById(1));
     }
+    dao.close();
+
+    // opening the data with another backend must fail instead of using an empty store
+    cfg.kvpBackend = backend == KvpBackend.MAPDB ? KvpBackend.MAPPED : KvpBackend.MAPDB;
+    try {
+      UsageDao.persistentDao(cfg, uuid, false, reg, false);
+      fail("Expected a backend mismatch");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    cfg.kvpBackend = backend;
+    dao = UsageDao.persistentDao(cfg, uuid, false, reg, false);
   }
 
   @Test
@@ -0,0 +1,141 @@
+package org.gbif.checklistbank.neo.kvp;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.kryo.CliKryoFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedLongMapTest {
+  private File dir;
+  private KryoPool pool;
+
+  @Before
+  public void init() {
+    dir = Files.createTempDir();
+    pool = new KryoPool.Builder(new CliKryoFactory()).build();
+  }
+
+  @After
+  public void cleanup() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void testMap() throws Exception {
+    MappedLongMap<NameUsage> map = new MappedLongMap<NameUsage>(dir, "usages", NameUsage.class, pool, 16);
+    assertTrue(map.isEmpty());
+    assertNull(map.get(0L));
+    assertNull(map.get(-1L));
+    assertFalse(map.containsKey(10L));
+
+    map.put(0L, usage(0));
+    map.put(10L, usage(10));
+    // beyond the first index segment
+    map.put(2000000L, usage(2000000));
+    // larger than the initial buffer
+    NameUsage large = usage(11);
+    large.setRemarks(Strings.repeat("Very long remarks. ", 10000));
+    map.put(11L, large);
+
+    assertEquals(4, map.size());
+    assertEquals(usage(0), map.get(0L));
+    assertEquals(usage(10), map.get(10L));
+    assertEquals(usage(2000000), map.get(2000000L));
+    assertEquals(large, map.get(11L));
+    assertNull(map.get(1L));
+    assertTrue(map.containsKey(2000000L));
+
+    // update
+    NameUsage u = usage(10);
+    u.setRank(Rank.GENUS);
+    map.put(10L, u);
+    assertEquals(4, map.size());
+    assertEquals(u, map.get(10L));
+
+    map.remove(0L);
+    map.remove(1L);
+    assertEquals(3, map.size());
+    assertNull(map.get(0L));
+
+    assertEquals(Lists.newArrayList(10L, 11L, 2000000L), Lists.newArrayList(map.keySet()));
+    Map<Long, NameUsage> copy = Maps.newHashMap(map);
+    assertEquals(3, copy.size());
+    assertEquals(u, copy.get(10L));
+
+    // reopen
+    map.close();
+    map = new MappedLongMap<NameUsage>(dir, "usages", NameUsage.class, pool, 16);
+    assertEquals(3, map.size());
+    assertEquals(u, map.get(10L));
+    assertEquals(large, map.get(11L));
+    assertEquals(usage(2000000), map.get(2000000L));
+    map.put(12L, usage(12));
+    assertEquals(4, map.size());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(10L));
+    map.close();
+  }
+
+  @Test
+  public void testConcurrency() throws Exception {
+    final MappedLongMap<NameUsage> map = new MappedLongMap<NameUsage>(dir, "usages", NameUsage.class, pool, 128);
+    final List<Throwable> errors = Collections.synchronizedList(Lists.<Throwable>newArrayList());
+    List<Thread> threads = Lists.newArrayList();
+    for (int t = 0; t < 4; t++) {
+      final int offset = t;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int x = offset; x < 20000; x += 4) {
+              map.put((long) x, usage(x));
+              assertEquals(usage(x), map.get((long) x));
+            }
+          } catch (Throwable e) {
+            errors.add(e);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(errors.toString(), errors.isEmpty());
+    assertEquals(20000, map.size());
+    for (long x = 0; x < 20000; x++) {
+      assertEquals(usage((int) x), map.get(x));
+    }
+    map.close();
+  }
+
+  private static NameUsage usage(int key) {
+    NameUsage u = new NameUsage();
+    u.setKey(key);
+    u.setScientificName("Abies alba " + key);
+    u.setRank(Rank.SPECIES);
+    return u;
+  }
+}
@@ -0,0 +1,119 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.cli.BaseTest;
+import org.gbif.checklistbank.cli.model.NameUsageNode;
+import org.gbif.checklistbank.cli.model.UsageFacts;
+import org.gbif.checklistbank.cli.normalizer.NormalizerStats;
+import org.gbif.checklistbank.neo.Labels;
+import org.gbif.checklistbank.neo.RelType;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.yammer.metrics.Meter;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelTreeWalkerTest extends BaseTest {
+
+  /**
+   * Makes sure walking chunks in parallel builds the very same metrics and classifications as a sequential walk.
+   */
+  @Test
+  public void testMetricsEqualSequentialWalk() {
+    initDb();
+
+    List<Long> ids = Lists.newArrayList();
+    try (Transaction tx = beginTx()) {
+      Node n = addNode(Rank.KINGDOM, "Animalia", null, ids);
+      n.addLabel(Labels.ROOT);
+      addNode(Rank.FAMILY, "Felidae", n, ids);
+
+      Node pl = addNode(Rank.KINGDOM, "Plantae", null, ids);
+      pl.addLabel(Labels.ROOT);
+      // a family root without a kingdom
+      addNode(Rank.FAMILY, "Rosaceae", null, ids).addLabel(Labels.ROOT);
+
+      n = addNode(Rank.PHYLUM, "Pinophyta", pl, ids);
+      n = addNode(Rank.CLASS, "Pinalaea", n, ids);
+      Node order = addNode(Rank.ORDER, "Pinales", n, ids);
+      addNode(Rank.FAMILY, "Araucariaceae", order, ids);
+      n = addNode(Rank.FAMILY, "Pinaceae", order, ids);
+      n = addNode(Rank.SUBFAMILY, "Abiedea", n, ids);
+      addNode(Rank.GENUS, "Pinus", n, ids);
+      n = addNode(Rank.GENUS, "Abies", n, ids);
+      addNode(Rank.SPECIES, "Abies Alpina DC.", n, ids);
+      addNode(Rank.SPECIES, "Abies balkan L.", n, ids);
+      n = addNode(Rank.SPECIES, "Abies alba Mill.", n, ids);
+      addNode(Rank.SUBSPECIES, "Abies alba Mill. subsp. alba", n, ids);
+      addNode(Rank.SUBSPECIES, "Abies alba subsp. alpina Mill.", n, ids);
+      addSynonym("Abies nobilis Kunze", n);
+      // a genus directly below the order
+      n = addNode(Rank.GENUS, "Taxus", order, ids);
+      addNode(Rank.SPECIES, "Taxus baccata L.", n, ids);
+      addSynonym("Taxus communis J.Nelson", n);
+
+      tx.success();
+    }
+
+    UsageMetricsHandler handler = new UsageMetricsHandler(dao);
+    TreeWalker.walkAcceptedTree(dao.getNeo(), handler);
+    NormalizerStats expected = handler.getStats(0, Lists.<String>newArrayList());
+    Map<Long, UsageFacts> expectedFacts = facts(ids);
+
+    for (Rank chunkRank : Lists.newArrayList(Rank.KINGDOM, Rank.FAMILY, Rank.GENUS, Rank.SPECIES)) {
+      UsageMetricsHandler parallel = new UsageMetricsHandler(dao);
+      Meter meter = new Meter();
+      ParallelTreeWalker.walkAcceptedTree(dao, new RankChunkingEvaluator(chunkRank), 3, meter, parallel);
+
+      assertEquals(ids.size(), meter.getCount());
+      assertEquals(expected, parallel.getStats(0, Lists.<String>newArrayList()));
+      Map<Long, UsageFacts> facts = facts(ids);
+      for (Long id : ids) {
+        assertEquals(chunkRank + " " + id, expectedFacts.get(id).metrics, facts.get(id).metrics);
+        assertEquals(chunkRank + " " + id, expectedFacts.get(id).classification, facts.get(id).classification);
+      }
+    }
+  }
+
+  private Map<Long, UsageFacts> facts(List<Long> ids) {
+    Map<Long, UsageFacts> facts = Maps.newHashMap();
+    for (Long id : ids) {
+      facts.put(id, dao.readFacts(id));
+    }
+    return facts;
+  }
+
+  private Node addNode(Rank rank, String name, Node parent, List<Long> ids) {
+    Node n = dao.createTaxon();
+    NameUsage u = new NameUsage();
+    u.setRank(rank);
+    u.setCanonicalName(name);
+    u.setScientificName(name);
+    dao.store(new NameUsageNode(n, u, true), true);
+
+    if (parent != null) {
+      parent.createRelationshipTo(n, RelType.PARENT_OF);
+    }
+    ids.add(n.getId());
+    return n;
+  }
+
+  private void addSynonym(String name, Node accepted) {
+    Node n = dao.createTaxon();
+    n.addLabel(Labels.SYNONYM);
+    NameUsage u = new NameUsage();
+    u.setRank(Rank.SPECIES);
+    u.setCanonicalName(name);
+    u.setScientificName(name);
+    dao.store(new NameUsageNode(n, u, true), true);
+    n.createRelationshipTo(accepted, RelType.SYNONYM_OF);
+  }
+}
@@ -10,12 +10,18 @@ import org.gbif.checklistbank.neo.RelType;
 import org.gbif.checklistbank.cli.model.NameUsageNode;
 import org.gbif.checklistbank.cli.model.UsageFacts;
 
+import java.util.Map;
+
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.junit.Test;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class UsageMetricsHandlerTest extends BaseTest {
 
@@ -90,6 +96,43 @@ public class UsageMetricsHandlerTest extends BaseTest {
       assertUsage(13, Rank.SUBSPECIES, cl);
       assertUsage(14, Rank.SUBSPECIES, cl);
     }
+
+    // walking with the dao shares a single usage instance per node between start and end and all handlers
+    UsageMetricsHandler handler2 = new UsageMetricsHandler(dao);
+    UsageRecorder recorder = new UsageRecorder();
+    TreeWalker.walkAcceptedTree(dao, null, null, null, handler2, recorder);
+    assertEquals(stats, handler2.getStats(1, Lists.<String>newArrayList()));
+    assertEquals(15, recorder.started);
+    assertTrue(recorder.open.isEmpty());
+  }
+
+  /**
+   * Makes sure every node is ended with the very same usage instance it was started with
+   */
+  private static class UsageRecorder implements NameUsageHandler {
+    private final Map<Long, NameUsage> open = Maps.newHashMap();
+    private int started;
+
+    @Override
+    public void start(Node n) {
+      fail("Usage expected");
+    }
+
+    @Override
+    public void end(Node n) {
+      fail("Usage expected");
+    }
+
+    @Override
+    public void start(Node n, NameUsage u) {
+      started++;
+      open.put(n.getId(), u);
+    }
+
+    @Override
+    public void end(Node n, NameUsage u) {
+      assertSame(open.remove(n.getId()), u);
+    }
   }
 
   private void assertUsage(long id, Rank rank, LinneanClassificationKeys expected) {
@@ -0,0 +1,101 @@
+package org.gbif.checklistbank.nub.lookup;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.nub.model.SrcUsage;
+import org.gbif.nameparser.NameParser;
+import org.gbif.nameparser.UnparsableException;
+import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.LookupUsage;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NubMatchServiceTest {
+  private static final NameParser PARSER = new NameParser();
+  private IdLookupImpl lookup;
+  private NubMatchService service;
+
+  @Before
+  public void init() {
+    lookup = IdLookupImpl.temp().load(Lists.newArrayList(
+        new LookupUsage(1, "Animalia", null, null, Rank.KINGDOM, Kingdom.ANIMALIA, false),
+        new LookupUsage(2, "Plantae", null, null, Rank.KINGDOM, Kingdom.PLANTAE, false),
+        new LookupUsage(3, "Oenanthe", "Vieillot", "1816", Rank.GENUS, Kingdom.ANIMALIA, false),
+        new LookupUsage(4, "Oenanthe", "L.", "1753", Rank.GENUS, Kingdom.PLANTAE, false),
+        new LookupUsage(5, "Oenanthe aquatica", "Poir.", null, Rank.SPECIES, Kingdom.PLANTAE, false)
+    ));
+    service = new NubMatchService(null, lookup, null, null, null);
+  }
+
+  @After
+  public void close() throws Exception {
+    lookup.close();
+  }
+
+  private static SrcUsage src(int key, Integer parentKey, String sciname, Rank rank) {
+    SrcUsage u = new SrcUsage();
+    try {
+      u.key = key;
+      u.parentKey = parentKey;
+      u.scientificName = sciname;
+      u.parsedName = PARSER.parse(sciname, rank);
+      u.rank = rank;
+    } catch (UnparsableException e) {
+      Throwables.propagate(e);
+    }
+    return u;
+  }
+
+  /**
+   * Homonyms are disambiguated by the kingdom of the closest matched parent,
+   * also when unmatched usages are in between.
+   */
+  @Test
+  public void testKingdomPropagation() throws Exception {
+    List<SrcUsage> usages = Lists.newArrayList(
+        src(10, null, "Plantae", Rank.KINGDOM),
+        src(11, 10, "Apiaceae", Rank.FAMILY),
+        src(12, 11, "Oenanthe", Rank.GENUS),
+        src(13, 12, "Oenanthe aquatica", Rank.SPECIES),
+        src(14, 10, "Abies", Rank.GENUS),
+        src(20, null, "Animalia", Rank.KINGDOM),
+        src(21, 20, "Oenanthe", Rank.GENUS),
+        src(30, null, "Unknownia", Rank.KINGDOM),
+        src(31, 30, "Oenanthe", Rank.GENUS)
+    );
+
+    Map<Integer, Integer> rels = service.match(usages);
+    assertEquals(usages.size(), rels.size());
+    assertEquals(2, (int) rels.get(10));
+    assertNull(rels.get(11));
+    assertEquals(4, (int) rels.get(12));
+    assertEquals(5, (int) rels.get(13));
+    assertNull(rels.get(14));
+    assertEquals(1, (int) rels.get(20));
+    assertEquals(3, (int) rels.get(21));
+    // no matched parent, so the homonym stays ambiguous
+    assertNull(rels.get(30));
+    assertNull(rels.get(31));
+    assertTrue(rels.containsKey(31));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingParent() throws Exception {
+    service.match(Lists.newArrayList(
+        src(10, null, "Plantae", Rank.KINGDOM),
+        src(11, 10, "Apiaceae", Rank.FAMILY),
+        src(12, 99, "Oenanthe", Rank.GENUS)
+    ));
+  }
+}
@@ -16,9 +16,13 @@ import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
@@ -35,6 +39,9 @@ import org.slf4j.LoggerFactory;
  *
  * The class exposes two kind of compare methods. A strict one always requiring both year and author to match
  * and a more lax default comparison that only looks at years when the authors differ (as it is quite hard to compare authors)
+ *
+ * Normalized authors and the results of author comparisons are kept in bounded caches,
+ * as the same few author strings are compared over and over again. Instances are thread safe.
  */
 public class AuthorComparator {
   private static final Logger LOG = LoggerFactory.getLogger(AuthorComparator.class);
@@ -49,9 +56,47 @@ public class AuthorComparator {
   private static final Pattern YEAR = Pattern.compile("(^|[^0-9])(\\d{4})([^0-9]|$)");
   private static final String AUTHOR_MAP_FILENAME = "/authorship/authormap.txt";
   private static final Splitter SPACE_SPLITTER = Splitter.on(" ").omitEmptyStrings();
+  // max number of entries kept in each of the normalized author and author pair caches
+  private static final int CACHE_SIZE = 100000;
   private final Map<String, String> authorMap;
 
   private final int minCommonSubstring;
+  // raw author string to its precompiled form, absent for blank authors
+  private final Cache<String, Optional<Authorship>> normCache = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .recordStats()
+      .build();
+  // pair of normalized authors to their equality
+  private final Cache<AuthorPair, Equality> pairCache = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .recordStats()
+      .build();
+
+  /**
+   * Key for the pairwise author comparison cache.
+   */
+  private static class AuthorPair {
+    private final String a1;
+    private final String a2;
+
+    AuthorPair(String a1, String a2) {
+      this.a1 = a1;
+      this.a2 = a2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      AuthorPair that = (AuthorPair) o;
+      return a1.equals(that.a1) && a2.equals(that.a2);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * a1.hashCode() + a2.hashCode();
+    }
+  }
 
   private AuthorComparator(Map<String, String> authors) {
     Map<String, String> map = Maps.newHashMap();
@@ -95,10 +140,25 @@ public class AuthorComparator {
    */
   public Equality compare(@Nullable String author1, @Nullable String year1, @Nullable String author2, @Nullable String year2) {
     // compare recombination authors first
-    Equality result = compareAuthor(author1, author2, minCommonSubstring);
+    Equality result = compareAuthorCached(author1, author2);
     if (result != Equality.EQUAL) {
       // if authors are not the same we allow a positive year comparison to override it as author comparison is very difficult
-      Equality yresult = compareYear(year1, year2);
+      Equality yresult = compareYear(normalizeYear(year1), normalizeYear(year2));
+      if (yresult != Equality.UNKNOWN) {
+        result = yresult;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link #compare(String, String, String, String)} but using precompiled authorships
+   * which does not require any string processing or allocations.
+   */
+  public Equality compare(Authorship a1, Authorship a2) {
+    Equality result = compareAuthor(a1, a2, minCommonSubstring);
+    if (result != Equality.EQUAL) {
+      Equality yresult = compareYear(a1.year, a2.year);
       if (yresult != Equality.UNKNOWN) {
         result = yresult;
       }
@@ -110,30 +170,26 @@ public class AuthorComparator {
    * Does a comparison of recombination and basionym authorship using the author compare method once for the recombination authorship and once for the basionym.
    */
   public Equality compare(ParsedName n1, ParsedName n2) {
-    if (!n1.isAuthorsParsed()) {
-      // copy parsed name to not alter the original
-      n1 = clone(n1);
-      parseAuthorship(n1);
-    }
-    if (!n2.isAuthorsParsed()) {
-      // copy parsed name to not alter the original
-      n2 = clone(n2);
-      parseAuthorship(n2);
-    }
+    return compare(authorship(n1), authorship(n2));
+  }
 
-    Equality recomb = compare(n1.getAuthorship(), n1.getYear(), n2.getAuthorship(), n2.getYear());
+  /**
+   * Same as {@link #compare(ParsedName, ParsedName)} but using precompiled authorships.
+   */
+  public Equality compare(ParsedAuthorship n1, ParsedAuthorship n2) {
+    Equality recomb = compare(n1.combination, n2.combination);
     if (recomb == Equality.DIFFERENT) {
       // in case the recomb author differs we are done, no need for basionym authorship comparison
       return recomb;
     }
-    Equality original = compare(n1.getBracketAuthorship(), n1.getBracketYear(), n2.getBracketAuthorship(), n2.getBracketYear());
+    Equality original = compare(n1.basionym, n2.basionym);
     if (recomb == Equality.UNKNOWN && original == Equality.UNKNOWN) {
       // a common error is missing brackets, so if all is unknown we compare authorship across brackets and return a possible match
       Equality across = Equality.UNKNOWN;
-      if (Strings.isNullOrEmpty(n1.getAuthorship()) && Strings.isNullOrEmpty(n1.getYear())) {
-        across = compare(n1.getBracketAuthorship(), n1.getBracketYear(), n2.getAuthorship(), n2.getYear());
-      } else if (Strings.isNullOrEmpty(n1.getBracketAuthorship()) && Strings.isNullOrEmpty(n1.getBracketYear())) {
-        across = compare(n1.getAuthorship(), n1.getYear(), n2.getBracketAuthorship(), n2.getBracketYear());
+      if (n1.combination.empty) {
+        across = compare(n1.basionym, n2.combination);
+      } else if (n1.basionym.empty) {
+        across = compare(n1.combination, n2.basionym);
       }
       return across == Equality.EQUAL ? Equality.EQUAL : Equality.UNKNOWN;
     }
@@ -149,7 +205,7 @@ public class AuthorComparator {
    */
   public boolean compareStrict(String author1, @Nullable String year1, String author2, @Nullable String year2) {
     // strictly compare authors first
-    Equality result = compareAuthor(author1, author2, minCommonSubstring);
+    Equality result = compareAuthorCached(author1, author2);
     if (result != Equality.EQUAL) {
       return false;
     }
@@ -157,7 +213,47 @@ public class AuthorComparator {
     if (year1 == null && year2 == null) {
       return true;
     }
-    return Equality.EQUAL == compareYear(year1, year2);
+    return Equality.EQUAL == compareYear(normalizeYear(year1), normalizeYear(year2));
+  }
+
+  /**
+   * Same as {@link #compareStrict(String, String, String, String)} but using precompiled authorships.
+   */
+  public boolean compareStrict(Authorship a1, Authorship a2) {
+    if (compareAuthor(a1, a2, minCommonSubstring) != Equality.EQUAL) {
+      return false;
+    }
+    if (a1.year == null && a2.year == null) {
+      return true;
+    }
+    return Equality.EQUAL == compareYear(a1.year, a2.year);
+  }
+
+  /**
+   * Normalizes and tokenizes an author and year once so it can be compared many times.
+   */
+  public Authorship authorship(@Nullable String author, @Nullable String year) {
+    final boolean empty = Strings.isNullOrEmpty(author) && Strings.isNullOrEmpty(year);
+    final Authorship a = authorCached(author);
+    final String y = normalizeYear(year);
+    if (a == null && y == null && empty) {
+      return Authorship.EMPTY;
+    }
+    return (a == null ? Authorship.EMPTY : a).withYear(y, empty);
+  }
+
+  /**
+   * Precompiles the combination and basionym authorship of a name.
+   * If the authorship was not parsed it is extracted from the scientific name as good as we can.
+   */
+  public ParsedAuthorship authorship(ParsedName pn) {
+    if (!pn.isAuthorsParsed()) {
+      // copy parsed name to not alter the original
+      pn = clone(pn);
+      parseAuthorship(pn);
+    }
+    return new ParsedAuthorship(authorship(pn.getAuthorship(), pn.getYear()),
+        authorship(pn.getBracketAuthorship(), pn.getBracketYear()));
   }
 
   /**
@@ -194,6 +290,55 @@ public class AuthorComparator {
     return x.toLowerCase();
   }
 
+  /**
+   * Normalizes and tokenizes an author string without year, reusing previously created instances.
+   *
+   * @return the author or null if blank
+   */
+  private Authorship authorCached(@Nullable String x) {
+    if (x == null) {
+      return null;
+    }
+    Optional<Authorship> author = normCache.getIfPresent(x);
+    if (author == null) {
+      String norm = normalize(x);
+      author = Optional.fromNullable(norm == null ? null : tokenize(norm, lookup(norm)));
+      normCache.put(x, author);
+    }
+    return author.orNull();
+  }
+
+  /**
+   * @param lookup the normalized author map entry or the normalized author itself if not mapped
+   */
+  private static Authorship tokenize(String normalized, String lookup) {
+    final String noInitials = INITIALS.matcher(normalized).replaceAll("");
+    final List<String> surnames = SPACE_SPLITTER.splitToList(noInitials);
+    return Authorship.author(normalized, noInitials, surnames.toArray(new String[surnames.size()]),
+        lookup.equals(normalized) ? null : tokenize(lookup, lookup));
+  }
+
+  /**
+   * @return hit statistics of the normalized author cache
+   */
+  public CacheStats normalizedCacheStats() {
+    return normCache.stats();
+  }
+
+  /**
+   * @return hit statistics of the pairwise author comparison cache
+   */
+  public CacheStats pairCacheStats() {
+    return pairCache.stats();
+  }
+
+  /**
+   * @return the number of entries in the normalized author and the pairwise comparison cache
+   */
+  public long cacheSize() {
+    return normCache.size() + pairCache.size();
+  }
+
   @VisibleForTesting
   protected String lookup(String normalizedAuthor) {
     if (normalizedAuthor != null && authorMap.containsKey(normalizedAuthor)) {
@@ -232,16 +377,14 @@ public class AuthorComparator {
   }
 
   //TODO: allow ? and brackets in year comparisons ...
-  private Equality compareYear(String y1, String y2) {
-    y1 = normalizeYear(y1);
-    y2 = normalizeYear(y2);
-    if (y1 != null && y2 != null) {
-      return y1.equals(y2) ? Equality.EQUAL : Equality.DIFFERENT;
+  private static Equality compareYear(String normedYear1, String normedYear2) {
+    if (normedYear1 != null && normedYear2 != null) {
+      return normedYear1.equals(normedYear2) ? Equality.EQUAL : Equality.DIFFERENT;
     }
     return Equality.UNKNOWN;
   }
 
-  private String normalizeYear(String y) {
+  private static String normalizeYear(String y) {
     if (y == null) return null;
     Matcher m = YEAR.matcher(y);
     if (m.find()) {
@@ -251,30 +394,36 @@ public class AuthorComparator {
   }
 
   /**
-   * Does an author comparison, normalizing the strings and try 3 comparisons:
-   * 1) checks regular string equality
-   * 2) checks for equality of the longest common substring
-   * 3) do an author lookup and then check for common substring
-   *
-   * @param a1
-   * @param a2
-   * @param minCommonSubstring
-   * @return
+   * Compares two raw authors, caching both the normalized authors and the comparison result.
    */
-  private Equality compareAuthor(@Nullable String a1, @Nullable String a2, int minCommonSubstring) {
-    // all lower case now, no punctuation and normed whitespace
-    a1 = normalize(a1);
-    a2 = normalize(a2);
-    if (a1 != null && a2 != null) {
+  private Equality compareAuthorCached(@Nullable String a1, @Nullable String a2) {
+    final Authorship auth1 = authorCached(a1);
+    final Authorship auth2 = authorCached(a2);
+    if (auth1 != null && auth2 != null) {
+      // the minimum common substring is fixed per instance so the normalized authors alone make up the key
+      final AuthorPair pair = new AuthorPair(auth1.normalized, auth2.normalized);
+      Equality equality = pairCache.getIfPresent(pair);
+      if (equality == null) {
+        equality = compareAuthor(auth1, auth2, minCommonSubstring);
+        pairCache.put(pair, equality);
+      }
+      return equality;
+    }
+    return Equality.UNKNOWN;
+  }
+
+  /**
+   * Does an author comparison of normalized authors and tries 2 comparisons:
+   * 1) checks for a shared surname prefix
+   * 2) do an author lookup and then check again for a shared surname prefix
+   */
+  private static Equality compareAuthor(Authorship a1, Authorship a2, int minCommonSubstring) {
+    if (a1.normalized != null && a2.normalized != null) {
       // 1: test for shared name prefix
       Equality equality = compareSurnamesOverlap(a1, a2, minCommonSubstring);
-      if (equality != Equality.EQUAL) {
+      if (equality != Equality.EQUAL && (a1.lookup != a1 || a2.lookup != a2)) {
         // 2: test for shared prefix after lookups
-        String lookup1 = lookup(a1);
-        String lookup2 = lookup(a2);
-        if (!lookup1.equals(a1) || !lookup2.equals(a2)) {
-          equality = compareSurnamesOverlap(lookup1, lookup2, minCommonSubstring+1);
-        }
+        equality = compareSurnamesOverlap(a1.lookup, a2.lookup, minCommonSubstring + 1);
       }
       return equality;
     }
@@ -327,27 +476,39 @@ public class AuthorComparator {
     return longest;
   }
 
-  private Equality compareSurnamesOverlap(final String a1, final String a2, final int minCommonStart) {
-    if (a1.equals(a2)) {
+  /**
+   * Compares the longest common start of any two surnames without creating any new objects.
+   */
+  private static Equality compareSurnamesOverlap(final Authorship a1, final Authorship a2, final int minCommonStart) {
+    if (a1.normalized.equals(a2.normalized)) {
       // we can stop here, authors are equal, thats enough
       return Equality.EQUAL;
 
     } else {
-      final String noInitials1 = INITIALS.matcher(a1).replaceAll("");
-      final String noInitials2 = INITIALS.matcher(a2).replaceAll("");
-
-      String longest = longestWordStart(noInitials1, noInitials2);
-      if (longest.length() >= minCommonStart) {
+      // the longest common word start is the prefix of the surname of a1 with the given length
+      String longestWord = null;
+      int longest = 0;
+      for (String n1 : a1.surnames) {
+        for (String n2 : a2.surnames) {
+          int len = commonPrefixLength(n1, n2);
+          if (len > longest) {
+            longest = len;
+            longestWord = n1;
+          }
+        }
+      }
+      if (longest >= minCommonStart) {
         // do both names have a single initial which is different?
         // this is often the case when authors are relatives like brothers or son & father
-        if (singleInitialsDiffer(a1, a2)) {
+        if (a1.firstInitial != 0 && a2.firstInitial != 0 && a1.firstInitial != a2.firstInitial) {
           return Equality.DIFFERENT;
         } else {
           return Equality.EQUAL;
         }
 
-      } else if (a1.equals(longest) && (noInitials2.startsWith(longest))
-          || a2.equals(longest) && (noInitials1.startsWith(longest))) {
+      } else if (longestWord != null && (
+          isPrefix(a1.normalized, longestWord, longest) && a2.noInitials.regionMatches(0, longestWord, 0, longest)
+          || isPrefix(a2.normalized, longestWord, longest) && a1.noInitials.regionMatches(0, longestWord, 0, longest))) {
         // the smallest common substring is the same as one of the inputs
         // if it also matches the start of the first longer surname then we are ok as the entire string is the best match we can have
         // likey a short abbreviation
@@ -357,6 +518,22 @@ public class AuthorComparator {
     return Equality.DIFFERENT;
   }
 
+  private static int commonPrefixLength(String s1, String s2) {
+    final int max = Math.min(s1.length(), s2.length());
+    int idx = 0;
+    while (idx < max && s1.charAt(idx) == s2.charAt(idx)) {
+      idx++;
+    }
+    return idx;
+  }
+
+  /**
+   * @return true if x equals the first len characters of word
+   */
+  private static boolean isPrefix(String x, String word, int len) {
+    return x.length() == len && word.regionMatches(0, x, 0, len);
+  }
+
   /**
    * Removes initials and sorts surnames
    * @return
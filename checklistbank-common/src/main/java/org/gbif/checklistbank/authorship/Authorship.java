@@ -0,0 +1,87 @@
+package org.gbif.checklistbank.authorship;
+
+import javax.annotation.Nullable;
+
+/**
+ * An authorship with year that was normalized and tokenized once by an {@link AuthorComparator}
+ * so it can be compared many times without any further string processing or allocations.
+ * Instances are immutable and can be shared between threads.
+ */
+public class Authorship {
+  // shared instance for missing author and year
+  static final Authorship EMPTY = new Authorship(null, null, null, null, (char) 0, null, true);
+
+  // normalized author, null if missing
+  final String normalized;
+  // normalized author without initials
+  final String noInitials;
+  // surnames, i.e. the words of the normalized author without initials
+  final String[] surnames;
+  // the normalized author as found in the author map, identical to this if not mapped
+  final Authorship lookup;
+  // the single first initial or 0 if the author does not start with one
+  final char firstInitial;
+  // the normalized year, null if missing
+  final String year;
+  // true if both raw author and year were null or empty
+  final boolean empty;
+
+  private Authorship(String normalized, String noInitials, String[] surnames, @Nullable Authorship lookup, char firstInitial,
+                     String year, boolean empty) {
+    this.normalized = normalized;
+    this.noInitials = noInitials;
+    this.surnames = surnames;
+    this.lookup = lookup == null ? this : lookup;
+    this.firstInitial = firstInitial;
+    this.year = year;
+    this.empty = empty;
+  }
+
+  /**
+   * Creates a new author without year.
+   *
+   * @param lookup the tokenized author map entry for this author or null if none exists
+   */
+  static Authorship author(String normalized, String noInitials, String[] surnames, @Nullable Authorship lookup) {
+    char initial = 0;
+    if (normalized.length() > 1 && normalized.charAt(1) == ' ' && normalized.charAt(0) >= 'a' && normalized.charAt(0) <= 'z') {
+      initial = normalized.charAt(0);
+    }
+    return new Authorship(normalized, noInitials, surnames, lookup, initial, null, false);
+  }
+
+  /**
+   * @return a copy of this author with the given normalized year
+   */
+  Authorship withYear(@Nullable String year, boolean empty) {
+    return new Authorship(normalized, noInitials, surnames, lookup == this ? null : lookup, firstInitial, year, empty);
+  }
+
+  /**
+   * @return the normalized author or null if there is no author
+   */
+  @Nullable
+  public String getAuthor() {
+    return normalized;
+  }
+
+  /**
+   * @return the normalized 4 digit year or null if there is no year
+   */
+  @Nullable
+  public String getYear() {
+    return year;
+  }
+
+  /**
+   * @return true if neither author nor year was given
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  @Override
+  public String toString() {
+    return normalized + (year == null ? "" : ", " + year);
+  }
+}
@@ -4,21 +4,29 @@ import org.gbif.api.model.checklistbank.ParsedName;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A utility to sort a list of parsed names into sets sharing the same basionym judging only the authorship not epithets.
  * A name without any authorship at all will be ignored and not returned in any group.
+ *
+ * Authors are compared fuzzily, so the comparison cannot be hashed. But it only depends on the normalized author and year,
+ * so names are indexed by them: only names with the very same normalized year can ever match strictly
+ * and each distinct author needs to be compared just once instead of once per name.
+ * Instances are thread safe as long as the author comparator is.
  */
 public class BasionymSorter {
   private static final Logger LOG = LoggerFactory.getLogger(BasionymSorter.class);
-  private AuthorComparator authorComp;
+  private final AuthorComparator authorComp;
 
   public BasionymSorter() {
     this.authorComp = AuthorComparator.createWithAuthormap();
@@ -32,36 +40,137 @@ public class BasionymSorter {
 
   }
 
+  /**
+   * All names sharing the same normalized author and year.
+   */
+  private static class AuthorBucket<T> {
+    final Authorship authorship;
+    final List<T> names = Lists.newArrayList();
+
+    AuthorBucket(Authorship authorship) {
+      this.authorship = authorship;
+    }
+  }
+
+  /**
+   * A basionym group with the precompiled bracket authorship of its first recombination.
+   */
+  private static class IndexedGroup<T> {
+    final BasionymGroup<T> group;
+    final Authorship authorship;
+
+    IndexedGroup(BasionymGroup<T> group, Authorship authorship) {
+      this.group = group;
+      this.authorship = authorship;
+    }
+  }
+
+  /**
+   * Original names indexed by their normalized author and year.
+   */
+  private static class OriginalIndex<T> {
+    // normalized year -> normalized author -> names, years are null if not given
+    final Map<String, Map<String, AuthorBucket<T>>> byYear = Maps.newHashMap();
+    // normalized author -> names regardless of their year
+    final Map<String, AuthorBucket<T>> byAuthor = new LinkedHashMap<String, AuthorBucket<T>>();
+    int size;
+  }
+
   public Collection<BasionymGroup<ParsedName>> groupBasionyms(Iterable<ParsedName> names) {
     return groupBasionyms(names, Functions.<ParsedName>identity());
   }
 
-  private <T> BasionymGroup<T> findExistingGroup(T p, List<BasionymGroup<T>> groups, Function<T, ParsedName> func) {
-    ParsedName pn = func.apply(p);
-    for (BasionymGroup<T> g : groups) {
-      ParsedName representative = func.apply(g.getRecombinations().get(0));
-      if (authorComp.compareStrict(pn.getBracketAuthorship(), pn.getBracketYear(), representative.getBracketAuthorship(), representative.getBracketYear())) {
-        return g;
+  /**
+   * @return true if a raw year was given that cannot be normalized and therefore never matches strictly
+   */
+  private static boolean unmatchableYear(String rawYear, Authorship a) {
+    return rawYear != null && a.year == null;
+  }
+
+  private static String key(Authorship a) {
+    return a.normalized + '|' + a.year;
+  }
+
+  private static <T> void add(Map<String, AuthorBucket<T>> buckets, Authorship a, T obj) {
+    AuthorBucket<T> bucket = buckets.get(a.normalized);
+    if (bucket == null) {
+      bucket = new AuthorBucket<T>(a);
+      buckets.put(a.normalized, bucket);
+    }
+    bucket.names.add(obj);
+  }
+
+  private <T> void index(OriginalIndex<T> index, T obj, ParsedName p) {
+    index.size++;
+    Authorship a = authorComp.authorship(p.getAuthorship(), p.getYear());
+    // names without an author never match strictly
+    if (a.normalized != null) {
+      add(index.byAuthor, authorComp.authorship(p.getAuthorship(), null), obj);
+      if (!unmatchableYear(p.getYear(), a)) {
+        Map<String, AuthorBucket<T>> authors = index.byYear.get(a.year);
+        if (authors == null) {
+          authors = new LinkedHashMap<String, AuthorBucket<T>>();
+          index.byYear.put(a.year, authors);
+        }
+        add(authors, a, obj);
+      }
+    }
+  }
+
+  /**
+   * Finds the first existing group with a matching bracket authorship.
+   * As groups are only ever appended, the group found for a given normalized authorship never changes
+   * and is remembered in the known map.
+   */
+  private <T> BasionymGroup<T> findExistingGroup(Authorship a, String rawYear, Map<String, List<IndexedGroup<T>>> groupsByYear,
+                                                 Map<String, BasionymGroup<T>> known) {
+    if (a.normalized == null || unmatchableYear(rawYear, a)) {
+      return null;
+    }
+    final String key = key(a);
+    if (known.containsKey(key)) {
+      return known.get(key);
+    }
+    BasionymGroup<T> group = null;
+    List<IndexedGroup<T>> candidates = groupsByYear.get(a.year);
+    if (candidates != null) {
+      for (IndexedGroup<T> g : candidates) {
+        if (authorComp.compareStrict(a, g.authorship)) {
+          group = g.group;
+          break;
+        }
       }
     }
-    return null;
+    if (group != null) {
+      known.put(key, group);
+    }
+    return group;
   }
 
-  private <T> T findBasionym(String authorship, String year, List<T> originals, Function<T, ParsedName> func) throws MultipleBasionymException {
+  private <T> T findBasionym(String authorship, String year, OriginalIndex<T> originals) throws MultipleBasionymException {
     List<T> basionyms = Lists.newArrayList();
-    for (T obj : originals) {
-      ParsedName b = func.apply(obj);
-      if (authorComp.compareStrict(authorship, year, b.getAuthorship(), b.getYear())) {
-        basionyms.add(obj);
+    Authorship a = authorComp.authorship(authorship, year);
+    if (a.normalized == null) {
+      return null;
+    }
+    if (!unmatchableYear(year, a)) {
+      Map<String, AuthorBucket<T>> authors = originals.byYear.get(a.year);
+      if (authors != null) {
+        for (AuthorBucket<T> b : authors.values()) {
+          if (authorComp.compareStrict(a, b.authorship)) {
+            basionyms.addAll(b.names);
+          }
+        }
       }
     }
     if (basionyms.isEmpty()) {
       // try again without year in case we didnt find any but make sure we only match once!
-      if (authorship != null) {
-        for (T obj : originals) {
-          ParsedName b = func.apply(obj);
-          if (authorComp.compareStrict(authorship, null, b.getAuthorship(), null)) {
-            basionyms.add(obj);
+      Authorship noYear = authorComp.authorship(authorship, null);
+      for (AuthorBucket<T> b : originals.byAuthor.values()) {
+        if (authorComp.compareStrict(noYear, b.authorship)) {
+          basionyms.addAll(b.names);
+          if (basionyms.size() > 1) {
+            break;
           }
         }
       }
@@ -86,14 +195,14 @@ public class BasionymSorter {
     // first split names into recombinations and original names not having a basionym authorship
     // note that we drop any name without authorship here!
     List<T> recombinations = Lists.newArrayList();
-    List<T> originals = Lists.newArrayList();
+    OriginalIndex<T> originals = new OriginalIndex<T>();
     for (T obj : names) {
       ParsedName p = func.apply(obj);
       if (p != null) {
         if (p.isRecombination()) {
           recombinations.add(obj);
         } else if (p.getAuthorship() != null || p.getYear() != null) {
-          originals.add(obj);
+          index(originals, obj, p);
         }
       } else {
         LOG.warn("No parsed name returned for name object {}", obj);
@@ -101,31 +210,43 @@ public class BasionymSorter {
     }
 
     // now group the recombinations
+    Map<String, List<IndexedGroup<T>>> groupsByYear = Maps.newHashMap();
+    Map<String, BasionymGroup<T>> known = Maps.newHashMap();
     for (T recomb : recombinations) {
-      BasionymGroup<T> group = findExistingGroup(recomb, groups, func);
+      ParsedName pn = func.apply(recomb);
+      if (pn == null) {
+        LOG.warn("No parsed name returned for name recombination {}", recomb);
+        continue;
+      }
+      Authorship a = authorComp.authorship(pn.getBracketAuthorship(), pn.getBracketYear());
+      BasionymGroup<T> group = findExistingGroup(a, pn.getBracketYear(), groupsByYear, known);
       // create new group if needed
       if (group == null) {
-        ParsedName pn = func.apply(recomb);
-        if (pn != null) {
-          group = new BasionymGroup<T>();
-          group.setName(pn.getTerminalEpithet(), pn.getBracketAuthorship(), pn.getBracketYear());
-          groups.add(group);
-          group.getRecombinations().add(recomb);
-        } else {
-          LOG.warn("No parsed name returned for name recombination {}", recomb);
+        group = new BasionymGroup<T>();
+        group.setName(pn.getTerminalEpithet(), pn.getBracketAuthorship(), pn.getBracketYear());
+        groups.add(group);
+        if (a.normalized != null && !unmatchableYear(pn.getBracketYear(), a)) {
+          List<IndexedGroup<T>> yearGroups = groupsByYear.get(a.year);
+          if (yearGroups == null) {
+            yearGroups = Lists.newArrayList();
+            groupsByYear.put(a.year, yearGroups);
+          }
+          yearGroups.add(new IndexedGroup<T>(group, a));
+          // no earlier group matched, so the new one is the first match for its authorship from now on
+          known.put(key(a), group);
         }
-      } else {
-        group.getRecombinations().add(recomb);
       }
+      group.getRecombinations().add(recomb);
     }
+
     // finally try to find the basionym for each group in the list of original names
     Iterator<BasionymGroup<T>> iter = groups.iterator();
     while (iter.hasNext()) {
       BasionymGroup<T> group = iter.next();
       try {
-        group.setBasionym(findBasionym(group.getAuthorship(), group.getYear(), originals, func));
+        group.setBasionym(findBasionym(group.getAuthorship(), group.getYear(), originals));
       } catch (MultipleBasionymException e) {
-        LOG.warn("Ignore group with multiple basionyms found for {} {} {} in {} original names", group.getEpithet(), group.getAuthorship(), group.getYear(), originals.size());
+        LOG.warn("Ignore group with multiple basionyms found for {} {} {} in {} original names", group.getEpithet(), group.getAuthorship(), group.getYear(), originals.size);
         iter.remove();
       }
     }
@@ -3,18 +3,141 @@ package org.gbif.checklistbank.authorship;
 /**
  * **********************************************************************
  * Computes the longest  common substring of 2 given strings.
- * Assumes that the character '\1' does not appear in either text.
- * Perhaps, search for a character that does not appear in either text
- * (and make sure SuffixArray.java doesn't choose the same one).
- * % java LongestCommonSubstring tale.txt mobydick.txt
- * ' seemed on the point of being '
+ *
+ * The default implementation uses dynamic programming over 2 rows of a reusable, thread local buffer
+ * which is much faster than building a suffix array for the short author strings we compare
+ * and does not allocate anything but the resulting substring.
+ * If several common substrings share the maximum length the lexicographically smallest one is returned,
+ * exactly as the original suffix array based implementation {@link #lcsSuffixArray(String, String)} does.
  * ***********************************************************************
  */
-
-
 public class LongestCommonSubstring {
+  // rows of up to this length are kept in the thread local buffer, longer ones are allocated per call
+  private static final int MAX_BUFFERED_LENGTH = 1024;
+  private static final ThreadLocal<int[]> BUFFER = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[2 * 128];
+    }
+  };
 
   public static String lcs(String text1, String text2) {
+    final int n1 = text1.length();
+    final int n2 = text2.length();
+    if (n1 == 0 || n2 == 0) {
+      return "";
+    }
+
+    final int[] dp = buffer(n2 + 1);
+    // row offsets into the buffer, swapped after each row
+    int prev = 0;
+    int curr = n2 + 1;
+    for (int j = 0; j <= n2; j++) {
+      dp[prev + j] = 0;
+    }
+    dp[curr] = 0;
+
+    // best match ends exclusive at bestEnd in text1
+    int best = 0;
+    int bestEnd = 0;
+    for (int i = 1; i <= n1; i++) {
+      final char c = text1.charAt(i - 1);
+      for (int j = 1; j <= n2; j++) {
+        if (c == text2.charAt(j - 1)) {
+          final int len = dp[prev + j - 1] + 1;
+          dp[curr + j] = len;
+          if (len > best || len == best && isSmaller(text1, i - len, bestEnd - best, len)) {
+            best = len;
+            bestEnd = i;
+          }
+        } else {
+          dp[curr + j] = 0;
+        }
+      }
+      int tmp = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return best == 0 ? "" : text1.substring(bestEnd - best, bestEnd);
+  }
+
+  /**
+   * @return the length of the longest common substring without creating any objects
+   */
+  public static int length(String text1, String text2) {
+    final int n1 = text1.length();
+    final int n2 = text2.length();
+    if (n1 == 0 || n2 == 0) {
+      return 0;
+    }
+
+    final int[] dp = buffer(n2 + 1);
+    int prev = 0;
+    int curr = n2 + 1;
+    for (int j = 0; j <= n2; j++) {
+      dp[prev + j] = 0;
+    }
+    dp[curr] = 0;
+
+    int best = 0;
+    for (int i = 1; i <= n1; i++) {
+      final char c = text1.charAt(i - 1);
+      for (int j = 1; j <= n2; j++) {
+        if (c == text2.charAt(j - 1)) {
+          final int len = dp[prev + j - 1] + 1;
+          dp[curr + j] = len;
+          if (len > best) {
+            best = len;
+          }
+        } else {
+          dp[curr + j] = 0;
+        }
+      }
+      int tmp = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return best;
+  }
+
+  /**
+   * @return a buffer holding at least 2 rows of the given length
+   */
+  private static int[] buffer(int rowLength) {
+    if (rowLength > MAX_BUFFERED_LENGTH) {
+      return new int[2 * rowLength];
+    }
+    int[] buf = BUFFER.get();
+    if (buf.length < 2 * rowLength) {
+      buf = new int[2 * MAX_BUFFERED_LENGTH];
+      BUFFER.set(buf);
+    }
+    return buf;
+  }
+
+  /**
+   * @return true if the substring of text starting at start1 is lexicographically smaller than the one at start2
+   */
+  private static boolean isSmaller(String text, int start1, int start2, int len) {
+    for (int k = 0; k < len; k++) {
+      char c1 = text.charAt(start1 + k);
+      char c2 = text.charAt(start2 + k);
+      if (c1 != c2) {
+        return c1 < c2;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The original implementation building a suffix array of the concatenated strings.
+   * Kept as the reference for tests and benchmarks.
+   *
+   * Assumes that the character '\1' does not appear in either text.
+   * Perhaps, search for a character that does not appear in either text
+   * (and make sure SuffixArray.java doesn't choose the same one).
+   */
+  public static String lcsSuffixArray(String text1, String text2) {
     int N1 = text1.length();
 
     // concatenate two string with intervening '\1'
@@ -42,4 +165,4 @@ public class LongestCommonSubstring {
     }
     return lcs;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package org.gbif.checklistbank.authorship;
+
+/**
+ * The precompiled combination and basionym authorship of a parsed name
+ * as created by {@link AuthorComparator#authorship(org.gbif.api.model.checklistbank.ParsedName)}.
+ */
+public class ParsedAuthorship {
+  final Authorship combination;
+  final Authorship basionym;
+
+  ParsedAuthorship(Authorship combination, Authorship basionym) {
+    this.combination = combination;
+    this.basionym = basionym;
+  }
+
+  public Authorship getCombination() {
+    return combination;
+  }
+
+  public Authorship getBasionym() {
+    return basionym;
+  }
+
+  @Override
+  public String toString() {
+    return "(" + basionym + ") " + combination;
+  }
+}
@@ -0,0 +1,262 @@
+package org.gbif.checklistbank.utils;
+
+/**
+ * A table driven implementation of the regular expression based {@link SciNameNormalizer#normalize(String)}
+ * producing identical results. It works on reusable, thread local char buffers and does not allocate anything
+ * if the name is already normalized.
+ *
+ * Only names consisting of chars with a precompiled transliteration to ASCII are supported.
+ * For all other names, e.g. names with control chars or a hybrid sign ×, null is returned
+ * and the caller has to use the regular expressions instead.
+ */
+final class FastSciNameNormalizer {
+  // highest char covered by the transliteration table, i.e. latin-1 and latin extended A & B
+  private static final char MAX_TABLE_CHAR = 'ɏ';
+  // chars transliterated to ASCII, null for chars not supported
+  private static final char[][] TRANSLIT = new char[MAX_TABLE_CHAR + 1][];
+  // max number of ASCII chars a single char is transliterated to
+  private static final int MAX_EXPANSION;
+
+  static {
+    int max = 1;
+    for (char c = ' '; c <= MAX_TABLE_CHAR; c++) {
+      if (c == '×') {
+        // hybrid sign handled by the regular expressions only
+        continue;
+      }
+      String x = String.valueOf(c);
+      String folded = org.gbif.utils.text.StringUtils.foldToAscii(x);
+      if (x.equals(folded) && c < 128) {
+        TRANSLIT[c] = new char[]{c};
+
+      } else if (c >= 128 && isAsciiLetters(folded)) {
+        // non ASCII letters are only supported if they are folded into ASCII letters
+        TRANSLIT[c] = folded.toCharArray();
+        max = Math.max(max, folded.length());
+      }
+    }
+    MAX_EXPANSION = max;
+  }
+
+  private static class Buffers {
+    char[] in = new char[128];
+    char[] out = new char[128 * MAX_EXPANSION];
+  }
+
+  private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+    @Override
+    protected Buffers initialValue() {
+      return new Buffers();
+    }
+  };
+
+  private FastSciNameNormalizer() {
+  }
+
+  private static boolean isAsciiLetters(String x) {
+    if (x == null || x.isEmpty()) {
+      return false;
+    }
+    for (int idx = 0; idx < x.length(); idx++) {
+      if (!isLetter(x.charAt(idx))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLetter(char c) {
+    return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isUpper(char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isJyi(char c) {
+    return c == 'j' || c == 'y' || c == 'i';
+  }
+
+  /**
+   * @param s a non empty name
+   *
+   * @return the normalized name or null if the name contains chars not supported
+   */
+  static String normalize(String s) {
+    final int len = s.length();
+    final Buffers buf = BUFFERS.get();
+    if (buf.in.length < len) {
+      buf.in = new char[len];
+      buf.out = new char[len * MAX_EXPANSION];
+    }
+    final char[] a = buf.in;
+    final char[] o = buf.out;
+    s.getChars(0, len, a, 0);
+    for (int idx = 0; idx < len; idx++) {
+      if (a[idx] > MAX_TABLE_CHAR || TRANSLIT[a[idx]] == null) {
+        return null;
+      }
+    }
+
+    // trim, the only whitespace left is a space
+    int start = 0;
+    int end = len;
+    while (start < end && a[start] == ' ') start++;
+    while (end > start && a[end - 1] == ' ') end--;
+
+    // remove hybrid sign of genus: ^\s*[xX]\s*([A-Z])
+    if (start < end && (a[start] == 'x' || a[start] == 'X')) {
+      int idx = start + 1;
+      while (idx < end && a[idx] == ' ') idx++;
+      if (idx < end && isUpper(a[idx])) {
+        start = idx;
+      }
+    }
+
+    // remove hybrid sign of epithets: (?:^|\s)[xX]\s+([^A-Z]) replaced by " $1"
+    int r = start;
+    int w = start;
+    while (r < end) {
+      // the x must be at the very start or follow a space
+      int x = r == start ? r : (a[r] == ' ' ? r + 1 : -1);
+      if (x >= 0 && x < end && (a[x] == 'x' || a[x] == 'X')) {
+        int t = x + 1;
+        while (t < end && a[t] == ' ') t++;
+        int spaces = t - x - 1;
+        if (spaces > 0 && t < end && !isUpper(a[t])) {
+          a[w++] = ' ';
+          a[w++] = a[t];
+          r = t + 1;
+          continue;
+        } else if (spaces > 1) {
+          // the last space is the non capital char
+          a[w++] = ' ';
+          a[w++] = ' ';
+          r = t;
+          continue;
+        }
+      }
+      a[w++] = a[r++];
+    }
+    end = w;
+
+    // transliterate, remove repeated letters, remove ['_-] and collapse whitespace
+    int n = 0;
+    for (int idx = start; idx < end; idx++) {
+      for (char c : TRANSLIT[a[idx]]) {
+        if (n > 0 && o[n - 1] == c && isLetter(c)) {
+          continue;
+        }
+        o[n++] = c;
+      }
+    }
+    int m = 0;
+    for (int idx = 0; idx < n; idx++) {
+      char c = o[idx];
+      if (c == '\'' || c == '_' || c == '-' || c == ' ' && m > 0 && o[m - 1] == ' ') {
+        continue;
+      }
+      o[m++] = c;
+    }
+
+    // Only for bi/trinomials, otherwise we mix up ranks.
+    if (indexOfSpace(o, m) > 2) {
+      // stem epithet: (on|um|us|a)$
+      if (m > 1) {
+        char c1 = o[m - 2];
+        char c2 = o[m - 1];
+        if (c1 == 'o' && c2 == 'n' || c1 == 'u' && (c2 == 'm' || c2 == 's')) {
+          o[m - 2] = 'a';
+          m--;
+        }
+      }
+      m = normalizeI(o, m);
+      m = normalizeTrh(o, m);
+    }
+
+    // final trim
+    int from = 0;
+    while (from < m && o[from] == ' ') from++;
+    while (m > from && o[m - 1] == ' ') m--;
+
+    // return the original instance if nothing changed
+    if (m - from == len) {
+      boolean same = true;
+      for (int idx = 0; idx < len; idx++) {
+        if (o[from + idx] != s.charAt(idx)) {
+          same = false;
+          break;
+        }
+      }
+      if (same) {
+        return s;
+      }
+    }
+    return new String(o, from, m - from);
+  }
+
+  private static int indexOfSpace(char[] o, int m) {
+    for (int idx = 0; idx < m; idx++) {
+      if (o[idx] == ' ') {
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Normalize frequent variations of i in epithets: " ([^ jyi]+)[jyi]+" replaced by " $1i".
+   */
+  private static int normalizeI(char[] o, int m) {
+    int r = 0;
+    int w = 0;
+    while (r < m) {
+      if (o[r] == ' ') {
+        int q = r + 1;
+        while (q < m && o[q] != ' ' && !isJyi(o[q])) q++;
+        if (q > r + 1 && q < m && isJyi(o[q])) {
+          while (r < q) {
+            o[w++] = o[r++];
+          }
+          o[w++] = 'i';
+          while (r < m && isJyi(o[r])) r++;
+          continue;
+        }
+      }
+      o[w++] = o[r++];
+    }
+    return w;
+  }
+
+  /**
+   * Normalize characters sometimes followed by an 'h' in epithets: " ([^ ]+[tr])h" replaced by " $1".
+   * The greedy match removes the last h following a t or r which is not the first letter of the word.
+   */
+  private static int normalizeTrh(char[] o, int m) {
+    int r = 0;
+    int w = 0;
+    while (r < m) {
+      if (o[r] == ' ') {
+        int e = r + 1;
+        while (e < m && o[e] != ' ') e++;
+        int h = -1;
+        for (int k = e - 2; k >= r + 2; k--) {
+          if ((o[k] == 't' || o[k] == 'r') && o[k + 1] == 'h') {
+            h = k + 1;
+            break;
+          }
+        }
+        // copy the word incl the leading space but without the h
+        while (r < e) {
+          if (r != h) {
+            o[w++] = o[r];
+          }
+          r++;
+        }
+        continue;
+      }
+      o[w++] = o[r++];
+    }
+    return w;
+  }
+}
@@ -2,6 +2,7 @@ package org.gbif.checklistbank.utils;
 
 import java.util.regex.Pattern;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 
 /**
@@ -18,9 +19,25 @@ public class SciNameNormalizer {
   private static final Pattern removeHybridSignGenus   = Pattern.compile("^\\s*[×xX]\\s*([A-Z])");
   private static final Pattern removeHybridSignEpithet = Pattern.compile("(?:^|\\s)(?:×\\s*|[xX]\\s+)([^A-Z])");
 
+  /**
+   * Normalizes a name using a precompiled transliteration table, falling back to regular expressions
+   * for names with chars not covered by the table. Already normalized names are returned as they are
+   * without creating a new string.
+   */
   public static String normalize(String s) {
     if (Strings.isNullOrEmpty(s)) return null;
 
+    String norm = FastSciNameNormalizer.normalize(s);
+    return norm != null ? norm : normalizeWithRegex(s);
+  }
+
+  /**
+   * The original regular expression based normalization, the reference for {@link FastSciNameNormalizer}.
+   */
+  @VisibleForTesting
+  static String normalizeWithRegex(String s) {
+    if (Strings.isNullOrEmpty(s)) return null;
+
     s = s.trim();
 
     s = removeHybridCross(s);
@@ -219,6 +219,35 @@ public class AuthorComparatorTest {
     assertAuth("Presl ex DC.", null, Equality.EQUAL, "C. Presl ex de Candolle", null);
   }
 
+  /**
+   * Makes sure comparisons of precompiled authorships give the same results as the string based ones.
+   */
+  @Test
+  public void testPrecompiledAuthorship() throws Exception {
+    String[][] authors = new String[][]{
+        {null, null}, {"", null}, {null, "1887"}, {"L.", null}, {"Linnaeus", "1758"}, {"Lin.", "1758"}, {"L", "1767"},
+        {"Bertero ex Colla", null}, {"Colla", "1833"}, {"A.J. White", null}, {"J.A. White", "1901"}, {"White", null},
+        {"Mill.", null}, {"Miller", "1768"}, {"DC.", null}, {"de Candolle", null}, {"Döring", "1778"}, {"Doering", null},
+        {"Hoffmanns. & Link", null}, {"Hoffmannsegg", "1809"}, {"Link", "1809"}, {"Bowdich", "1821"}, {"B", "1821"}
+    };
+    for (String[] a1 : authors) {
+      Authorship au1 = comp.authorship(a1[0], a1[1]);
+      for (String[] a2 : authors) {
+        Authorship au2 = comp.authorship(a2[0], a2[1]);
+        assertEquals(a1[0] + " vs " + a2[0], comp.compare(a1[0], a1[1], a2[0], a2[1]), comp.compare(au1, au2));
+        if (a1[0] != null && a2[0] != null) {
+          assertEquals(a1[0] + " vs " + a2[0], comp.compareStrict(a1[0], a1[1], a2[0], a2[1]), comp.compareStrict(au1, au2));
+        }
+      }
+    }
+
+    assertTrue(comp.authorship(null, null).isEmpty());
+    assertTrue(comp.authorship("", "").isEmpty());
+    assertFalse(comp.authorship(null, "1887").isEmpty());
+    assertEquals("1887", comp.authorship(null, "[1887]").getYear());
+    assertEquals("a j white", comp.authorship("A.J. White", null).getAuthor());
+  }
+
   @Test
   public void testCompareStrict() throws Exception {
     assertFalse(comp.compareStrict(null, null, null, null));
@@ -12,6 +12,10 @@ import java.io.InputStream;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.common.collect.Lists;
 import com.google.common.io.Resources;
@@ -300,6 +304,58 @@ public class BasionymSorterTest {
     assertEquals(22331, testGroupBasionymFile("names/asteraceae.txt"));
   }
 
+  /**
+   * Groups the same files from several threads sharing a single sorter.
+   */
+  @Test
+  public void testConcurrentGrouping() throws Exception {
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> futures = Lists.newArrayList();
+      for (int i = 0; i < 8; i++) {
+        final String filename = i % 2 == 0 ? "names/molossidae.txt" : "names/muridae.txt";
+        futures.add(exec.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            return testGroupBasionymFile(filename);
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals(i % 2 == 0 ? 80 : 460, (int) futures.get(i).get());
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  /**
+   * A large epithet group with many recombinations and originals sharing few authors.
+   */
+  @Test
+  public void testLargeEpithetGroup() throws Exception {
+    List<ParsedName> names = Lists.newArrayList();
+    for (int i = 0; i < 2000; i++) {
+      names.add(parser.parse("Abies" + (char) ('a' + i % 26) + "us alba (L.) Mill.", null));
+      names.add(parser.parse("Pinus" + (char) ('a' + i % 26) + "us alba (Mill., 1768) Kunze", null));
+    }
+    names.add(parser.parse("Pinus alba L.", null));
+    names.add(parser.parse("Picea alba Mill., 1768", null));
+    names.add(parser.parse("Picea alba Mill., 1771", null));
+
+    Collection<BasionymGroup<ParsedName>> groups = sorter.groupBasionyms(names);
+    assertEquals(2, groups.size());
+    for (BasionymGroup<ParsedName> g : groups) {
+      assertEquals(2000, g.getRecombinations().size());
+      assertNotNull(g.getBasionym());
+      if (g.getAuthorship().equals("L.")) {
+        assertEquals("Pinus", g.getBasionym().getGenusOrAbove());
+      } else {
+        assertEquals("1768", g.getBasionym().getYear());
+      }
+    }
+  }
+
   private int testGroupBasionymFile(String filename) throws Exception {
     int epithets = 0;
     int basionyms = 0;
@@ -1,5 +1,11 @@
 package org.gbif.checklistbank.authorship;
 
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -11,5 +17,58 @@ public class LongestCommonSubstringTest {
     assertEquals("", LongestCommonSubstring.lcs("a", "node"));
     assertEquals("ma", LongestCommonSubstring.lcs("markus", "mama"));
     assertEquals("mar", LongestCommonSubstring.lcs("markus döring", "carla maria möglich"));
+    assertEquals("", LongestCommonSubstring.lcs("", "node"));
+    assertEquals("", LongestCommonSubstring.lcs("node", ""));
+
+    // ties resolve to the lexicographically smallest substring
+    assertEquals("ab", LongestCommonSubstring.lcs("xyab", "abxy"));
+    assertEquals("ab", LongestCommonSubstring.lcs("abxy", "xyab"));
+
+    assertEquals(3, LongestCommonSubstring.length("markus döring", "carla maria möglich"));
+    assertEquals(0, LongestCommonSubstring.length("a", "node"));
+  }
+
+  @Test
+  public void testSuffixArray() throws Exception {
+    assertEquals("", LongestCommonSubstring.lcsSuffixArray("a", "node"));
+    assertEquals("ma", LongestCommonSubstring.lcsSuffixArray("markus", "mama"));
+    assertEquals("mar", LongestCommonSubstring.lcsSuffixArray("markus döring", "carla maria möglich"));
+    assertEquals("ab", LongestCommonSubstring.lcsSuffixArray("xyab", "abxy"));
+  }
+
+  /**
+   * Makes sure the dynamic programming implementation gives the very same results as the suffix array
+   * for normalized author strings taken from the author map.
+   */
+  @Test
+  public void testEquivalence() throws Exception {
+    List<String> authors = Lists.newArrayList();
+    int line = 0;
+    for (String row : Resources.readLines(Resources.getResource("authorship/authormap.txt"), Charsets.UTF_8)) {
+      // use every 10th entry to keep the pairwise comparisons fast
+      if (line++ % 10 == 0) {
+        for (String col : Splitter.on('\t').split(row)) {
+          String norm = AuthorComparator.normalize(col);
+          if (norm != null) {
+            authors.add(norm);
+            authors.add(AuthorComparator.removeFirstInitials(norm));
+          }
+        }
+      }
+    }
+
+    int pairs = 0;
+    for (int i = 0; i < authors.size(); i++) {
+      for (int j = i; j < Math.min(authors.size(), i + 25); j++) {
+        String a1 = authors.get(i);
+        String a2 = authors.get(j);
+        String expected = LongestCommonSubstring.lcsSuffixArray(a1, a2);
+        assertEquals(a1 + " | " + a2, expected, LongestCommonSubstring.lcs(a1, a2));
+        assertEquals(a2 + " | " + a1, LongestCommonSubstring.lcsSuffixArray(a2, a1), LongestCommonSubstring.lcs(a2, a1));
+        assertEquals(expected.length(), LongestCommonSubstring.length(a1, a2));
+        pairs++;
+      }
+    }
+    System.out.println("Compared " + pairs + " author pairs");
   }
-}
\ No newline at end of file
+}
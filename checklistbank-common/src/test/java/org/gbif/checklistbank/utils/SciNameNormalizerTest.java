@@ -1,8 +1,11 @@
 package org.gbif.checklistbank.utils;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 
 public class SciNameNormalizerTest {
@@ -72,4 +75,35 @@ public class SciNameNormalizerTest {
     assertEquals("alaa", SciNameNormalizer.stemEpithet("alaus"));
     assertEquals("alaa", SciNameNormalizer.stemEpithet("alaa"));
   }
+
+  @Test
+  public void testAlreadyNormalized() throws Exception {
+    String name = "Abies alba";
+    assertSame(name, SciNameNormalizer.normalize(name));
+    name = "Hieracium sabauda";
+    assertSame(name, SciNameNormalizer.normalize(name));
+  }
+
+  /**
+   * Property test making sure the table driven normalization gives the very same results as the regular expressions
+   * for random names built from chars with special meaning to the normalizer, mixed with arbitrary latin chars.
+   */
+  @Test
+  public void testTableEqualsRegex() throws Exception {
+    final String alphabet = "aAbxXxjyiIthrhonumsuea    -_'\t×ÅåæßéÉµ¥.(1Zz";
+    Random rnd = new Random(42);
+    for (int k = 0; k < 200000; k++) {
+      StringBuilder sb = new StringBuilder();
+      int len = rnd.nextInt(30);
+      for (int i = 0; i < len; i++) {
+        if (rnd.nextInt(4) == 0) {
+          sb.append((char) rnd.nextInt(0x260));
+        } else {
+          sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        }
+      }
+      String x = sb.toString();
+      assertEquals("[" + x + "]", SciNameNormalizer.normalizeWithRegex(x), SciNameNormalizer.normalize(x));
+    }
+  }
 }
@@ -0,0 +1,64 @@
+package org.gbif.checklistbank.utils;
+
+import org.gbif.nub.benchmark.QueryMix;
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the regular expression based and the table driven scientific name normalization
+ * on the names of the query mix, once as given and once already normalized.
+ * The GC profiler should report no allocations for the table driven normalization of already normalized names.
+ * Lives in the utils package to access the package private regular expression implementation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SciNameNormalizerBenchmark {
+
+  @Param({"REGEX", "TABLE"})
+  public String impl;
+
+  @Param({"RAW", "NORMALIZED"})
+  public String input;
+
+  private boolean regex;
+  private String[] names;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    regex = impl.equals("REGEX");
+    List<MatchQuery> queries = QueryMix.EXACT.load();
+    queries.addAll(QueryMix.FUZZY.load());
+    names = new String[queries.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = queries.get(i).getName();
+      if (input.equals("NORMALIZED")) {
+        names[i] = SciNameNormalizer.normalizeWithRegex(names[i]);
+      }
+    }
+  }
+
+  @Benchmark
+  public String normalize() {
+    idx = (idx + 1) % names.length;
+    return regex ? SciNameNormalizer.normalizeWithRegex(names[idx]) : SciNameNormalizer.normalize(names[idx]);
+  }
+}
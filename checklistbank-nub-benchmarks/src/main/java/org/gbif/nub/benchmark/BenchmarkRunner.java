@@ -0,0 +1,28 @@
+package org.gbif.nub.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the nub benchmarks with the GC profiler attached, reporting ops/s, sample time percentiles incl p99
+ * and the normalized allocation rate per operation. Results are also written to jmh-result.json.
+ * <pre>
+ * java -jar checklistbank-nub-benchmarks.jar [benchmark regex]
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*Benchmark")
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result("jmh-result.json")
+        .build();
+    new Runner(opt).run();
+  }
+}
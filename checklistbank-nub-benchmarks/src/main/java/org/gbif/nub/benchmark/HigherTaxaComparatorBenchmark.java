@@ -0,0 +1,70 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the synonym aware comparison of higher classifications.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HigherTaxaComparatorBenchmark {
+  private static final Rank[] RANKS = new Rank[]{Rank.KINGDOM, Rank.PHYLUM, Rank.CLASS, Rank.ORDER, Rank.FAMILY};
+
+  private HigherTaxaComparator comparator;
+  private LinneanClassification[] classifications;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    comparator = NubFixture.comparator();
+    List<MatchQuery> queries = QueryMix.HIGHER.load();
+    queries.addAll(QueryMix.CLASSIFICATION.load());
+    classifications = new LinneanClassification[queries.size()];
+    for (int i = 0; i < classifications.length; i++) {
+      classifications[i] = queries.get(i).classification();
+    }
+  }
+
+  /**
+   * Compares all ranks of two different classifications like the matching service does for every candidate.
+   */
+  @Benchmark
+  public int compareClassification() {
+    idx = (idx + 1) % classifications.length;
+    LinneanClassification query = classifications[idx];
+    LinneanClassification ref = classifications[(idx + 1) % classifications.length];
+    int score = 0;
+    for (Rank r : RANKS) {
+      score += comparator.compareHigherRank(r, query, ref, 10, -10, 0);
+    }
+    return score;
+  }
+
+  @Benchmark
+  public boolean isInKingdoms() {
+    idx = (idx + 1) % classifications.length;
+    return comparator.isInKingdoms(classifications[idx], Kingdom.PLANTAE, Kingdom.FUNGI);
+  }
+}
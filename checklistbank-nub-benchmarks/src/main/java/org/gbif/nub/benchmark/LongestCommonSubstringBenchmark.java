@@ -0,0 +1,63 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.checklistbank.authorship.LongestCommonSubstring;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the suffix array and the dynamic programming implementation of the longest common substring
+ * using pairs of author strings taken from the author map shipped with checklistbank-common.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LongestCommonSubstringBenchmark {
+
+  @Param({"SuffixArray", "DynamicProgramming"})
+  public String impl;
+
+  private boolean suffixArray;
+  private String[] authors;
+  private int idx;
+
+  @Setup
+  public void setup() throws IOException {
+    suffixArray = impl.equals("SuffixArray");
+    List<String> list = Lists.newArrayList();
+    for (String row : Resources.readLines(Resources.getResource("authorship/authormap.txt"), Charsets.UTF_8)) {
+      for (String col : Splitter.on('\t').trimResults().omitEmptyStrings().split(row)) {
+        list.add(col.toLowerCase());
+      }
+    }
+    authors = list.toArray(new String[list.size()]);
+  }
+
+  @Benchmark
+  public String lcs() {
+    idx = (idx + 1) % authors.length;
+    String a1 = authors[idx];
+    String a2 = authors[(idx + 1) % authors.length];
+    return suffixArray ? LongestCommonSubstring.lcsSuffixArray(a1, a2) : LongestCommonSubstring.lcs(a1, a2);
+  }
+}
@@ -0,0 +1,134 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nub.lookup.straight.LookupKryoFactory;
+import org.gbif.nub.lookup.straight.LookupUsage;
+import org.gbif.nub.mapdb.MapDbObjectSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import org.mapdb.DataIO;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.serializer.GroupSerializerObjectArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the kryo based mapdb serializer using reusable thread local buffers with the previous implementation
+ * that created a new stream, kryo output and byte arrays for every object.
+ * Run with the GC profiler to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MapDbObjectSerializerBenchmark {
+
+  @Param({"Legacy", "Reused"})
+  public String impl;
+
+  private GroupSerializerObjectArray<LookupUsage> serializer;
+  private LookupUsage usage;
+  private byte[] serialized;
+
+  @Setup
+  public void setup() throws IOException {
+    KryoPool pool = new KryoPool.Builder(new LookupKryoFactory()).softReferences().build();
+    if (impl.equals("Legacy")) {
+      serializer = new LegacySerializer<LookupUsage>(LookupUsage.class, pool, 256);
+    } else {
+      serializer = new MapDbObjectSerializer<LookupUsage>(LookupUsage.class, pool, 256);
+    }
+    usage = new LookupUsage();
+    usage.setKey(1234567);
+    usage.setCanonical("Abies alba");
+    usage.setAuthorship("Mill.");
+    usage.setYear("1768");
+    usage.setKingdom(Kingdom.PLANTAE);
+    usage.setRank(Rank.SPECIES);
+    DataOutput2 out = new DataOutput2();
+    serializer.serialize(out, usage);
+    serialized = out.copyBytes();
+  }
+
+  @Benchmark
+  public DataOutput2 serialize() throws IOException {
+    DataOutput2 out = new DataOutput2();
+    serializer.serialize(out, usage);
+    return out;
+  }
+
+  @Benchmark
+  public LookupUsage deserialize() throws IOException {
+    return serializer.deserialize(new DataInput2.ByteArray(serialized), serialized.length);
+  }
+
+  /**
+   * The previous serializer implementation.
+   */
+  static class LegacySerializer<T> extends GroupSerializerObjectArray<T> {
+    private final KryoPool pool;
+    private final int bufferSize;
+    private final Class<T> clazz;
+
+    LegacySerializer(Class<T> clazz, KryoPool pool, int bufferSize) {
+      this.pool = pool;
+      this.clazz = clazz;
+      this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void serialize(DataOutput2 out, T value) throws IOException {
+      Kryo kryo = pool.borrow();
+      try {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bufferSize);
+        Output output = new Output(buffer, bufferSize);
+        kryo.writeObject(output, value);
+        output.close();
+        byte[] bytes = buffer.toByteArray();
+        DataIO.packInt(out, bytes.length);
+        out.write(bytes);
+      } finally {
+        pool.release(kryo);
+      }
+    }
+
+    @Override
+    public T deserialize(DataInput2 in, int available) throws IOException {
+      if (available == 0) return null;
+      Kryo kryo = pool.borrow();
+      try {
+        int size = DataIO.unpackInt(in);
+        byte[] ret = new byte[size];
+        in.readFully(ret);
+        return kryo.readObject(new Input(ret), clazz);
+      } finally {
+        pool.release(kryo);
+      }
+    }
+
+    @Override
+    public int compare(T first, T second) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
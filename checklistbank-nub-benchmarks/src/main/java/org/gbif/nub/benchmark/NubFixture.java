@@ -0,0 +1,51 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.nameparser.NameParser;
+import org.gbif.nub.lookup.NubMatchingTestModule;
+import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+
+import java.io.IOException;
+
+/**
+ * Lazily loads the json test index of the nub module once per benchmark JVM
+ * so all benchmarks of a fork share the same index and synonym dictionaries.
+ */
+public class NubFixture {
+  private static NubIndex index;
+  private static HigherTaxaComparator comparator;
+  private static NubMatchingServiceImpl matcher;
+
+  private NubFixture() {
+  }
+
+  public static synchronized NubIndex index() {
+    if (index == null) {
+      try {
+        index = NubMatchingTestModule.provideIndex();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to load nub test index", e);
+      }
+    }
+    return index;
+  }
+
+  public static synchronized HigherTaxaComparator comparator() {
+    if (comparator == null) {
+      try {
+        comparator = NubMatchingTestModule.provideSynonyms();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to load synonym dictionaries", e);
+      }
+    }
+    return comparator;
+  }
+
+  public static synchronized NubMatchingServiceImpl matcher() {
+    if (matcher == null) {
+      matcher = new NubMatchingServiceImpl(index(), comparator(), new NameParser());
+    }
+    return matcher;
+  }
+}
@@ -0,0 +1,71 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the lucene based candidate selection of the nub index alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NubIndexBenchmark {
+
+  @Param({"EXACT", "FUZZY"})
+  public QueryMix mix;
+
+  private NubIndex index;
+  private String[] names;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    index = NubFixture.index();
+    List<MatchQuery> queries = mix.load();
+    names = new String[queries.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = queries.get(i).getName();
+    }
+  }
+
+  private String next() {
+    idx = (idx + 1) % names.length;
+    return names[idx];
+  }
+
+  @Benchmark
+  public List<NameUsageMatch> matchByName() {
+    return index.matchByName(next(), false, 50);
+  }
+
+  @Benchmark
+  public List<NameUsageMatch> matchByNameFuzzy() {
+    return index.matchByName(next(), true, 50);
+  }
+
+  @Benchmark
+  public NameUsageMatch matchByUsageId() {
+    idx = (idx + 1) % names.length;
+    // usage keys of the test index used in the matching tests
+    return index.matchByUsageId(idx % 2 == 0 ? 2435099 : 5608009);
+  }
+}
@@ -0,0 +1,69 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the full matching service for the different query mixes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NubMatchingBenchmark {
+
+  @Param({"EXACT", "FUZZY", "HIGHER", "CLASSIFICATION"})
+  public QueryMix mix;
+
+  private NubMatchingServiceImpl matcher;
+  private MatchQuery[] queries;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    matcher = NubFixture.matcher();
+    List<MatchQuery> list = mix.load();
+    queries = list.toArray(new MatchQuery[list.size()]);
+  }
+
+  private MatchQuery next() {
+    idx = (idx + 1) % queries.length;
+    return queries[idx];
+  }
+
+  @Benchmark
+  public NameUsageMatch match() {
+    MatchQuery q = next();
+    return matcher.match(q.getName(), q.parsedRank(), q.classification(), false, false);
+  }
+
+  @Benchmark
+  public NameUsageMatch matchStrict() {
+    MatchQuery q = next();
+    return matcher.match(q.getName(), q.parsedRank(), q.classification(), true, false);
+  }
+
+  @Benchmark
+  public NameUsageMatch matchVerbose() {
+    MatchQuery q = next();
+    return matcher.match(q.getName(), q.parsedRank(), q.classification(), false, true);
+  }
+}
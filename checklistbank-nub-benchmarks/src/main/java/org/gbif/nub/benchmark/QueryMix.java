@@ -0,0 +1,72 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+
+/**
+ * The different kinds of benchmark queries kept in the queries.txt resource.
+ */
+public enum QueryMix {
+  /**
+   * Names existing in the test index without any classification.
+   */
+  EXACT,
+  /**
+   * Misspelled names without any classification.
+   */
+  FUZZY,
+  /**
+   * Names with a rank and a kingdom or family given to resolve homonyms.
+   */
+  HIGHER,
+  /**
+   * Names with a rich classification.
+   */
+  CLASSIFICATION;
+
+  private static final Splitter TAB = Splitter.on('\t');
+
+  /**
+   * @return all queries of this mix
+   */
+  public List<MatchQuery> load() {
+    try {
+      URL url = Resources.getResource("queries.txt");
+      List<MatchQuery> queries = Lists.newArrayList();
+      for (String line : Resources.readLines(url, Charsets.UTF_8)) {
+        if (line.startsWith("#") || line.trim().isEmpty()) {
+          continue;
+        }
+        List<String> cols = Lists.newArrayList(TAB.split(line));
+        if (name().equals(cols.get(0))) {
+          MatchQuery q = new MatchQuery(cols.get(1));
+          q.setRank(col(cols, 2));
+          q.setKingdom(col(cols, 3));
+          q.setPhylum(col(cols, 4));
+          q.setClazz(col(cols, 5));
+          q.setOrder(col(cols, 6));
+          q.setFamily(col(cols, 7));
+          q.setGenus(col(cols, 8));
+          queries.add(q);
+        }
+      }
+      return queries;
+
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to read benchmark queries", e);
+    }
+  }
+
+  private static String col(List<String> cols, int idx) {
+    return idx < cols.size() ? Strings.emptyToNull(cols.get(idx).trim()) : null;
+  }
+}
@@ -0,0 +1,71 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+import org.gbif.nub.lookup.fuzzy.ScientificNameAnalyzer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the analyzer used to normalize names in the nub index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ScientificNameAnalyzerBenchmark {
+  // the analyzer uses the same components for all fields
+  private static final String FIELD = "canonical";
+
+  private Analyzer analyzer;
+  private String[] names;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    analyzer = new ScientificNameAnalyzer();
+    List<MatchQuery> queries = QueryMix.EXACT.load();
+    queries.addAll(QueryMix.FUZZY.load());
+    names = new String[queries.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = queries.get(i).getName();
+    }
+  }
+
+  @TearDown
+  public void teardown() {
+    analyzer.close();
+  }
+
+  @Benchmark
+  public void analyze(Blackhole bh) throws IOException {
+    idx = (idx + 1) % names.length;
+    try (TokenStream stream = analyzer.tokenStream(FIELD, names[idx])) {
+      CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+      stream.reset();
+      while (stream.incrementToken()) {
+        bh.consume(termAtt.length());
+      }
+      stream.end();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.gbif.nub.benchmark;
+
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
+import org.gbif.nub.lookup.similarity.ModifiedDamerauLevenshtein;
+import org.gbif.nub.lookup.similarity.ModifiedJaroWinkler;
+import org.gbif.nub.lookup.similarity.ScientificNameSimilarity;
+import org.gbif.nub.lookup.similarity.StringSimilarity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the string similarity implementations used to score name matches,
+ * comparing misspelled names with their correct spelling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SimilarityBenchmark {
+
+  @Param({"ModifiedDamerauLevenshtein", "ModifiedJaroWinkler", "ScientificNameSimilarity"})
+  public String impl;
+
+  private StringSimilarity sim;
+  private String[] names;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    if (impl.equals("ModifiedDamerauLevenshtein")) {
+      sim = new ModifiedDamerauLevenshtein();
+    } else if (impl.equals("ModifiedJaroWinkler")) {
+      sim = new ModifiedJaroWinkler();
+    } else {
+      sim = new ScientificNameSimilarity();
+    }
+    List<MatchQuery> queries = QueryMix.EXACT.load();
+    queries.addAll(QueryMix.FUZZY.load());
+    names = new String[queries.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = queries.get(i).getName();
+    }
+  }
+
+  @Benchmark
+  public double similarity() {
+    idx = (idx + 1) % names.length;
+    return sim.getSimilarity(names[idx], names[(idx + 7) % names.length]);
+  }
+}
@@ -0,0 +1,78 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nameparser.NameParser;
+import org.gbif.nameparser.UnparsableException;
+import org.gbif.nub.benchmark.NubFixture;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the candidate scoring of the matching service without the lucene lookup.
+ * The candidates are prefetched once, so the normalized allocation rate reported by the GC profiler
+ * covers the scoring alone and should stay close to zero for non verbose matches without authorship.
+ * Lives in the fuzzy package to access the protected scoring method.
+ * The state is package private so tests can reuse the benchmark setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+  // several homonym genera across kingdoms in the test index
+  static final String NAME = "Acanthophora";
+
+  @Param({"FUZZY", "STRICT", "HIGHER"})
+  public String mode;
+
+  NubMatchingServiceImpl matcher;
+  NubMatchingServiceImpl.MatchingMode matchingMode;
+  ParsedName pn;
+  NameUsageMatch classification;
+  List<NameUsageMatch> candidates;
+
+  @Setup
+  public void setup() throws UnparsableException {
+    matcher = NubFixture.matcher();
+    matchingMode = NubMatchingServiceImpl.MatchingMode.valueOf(mode);
+    pn = new NameParser().parse(NAME, Rank.GENUS);
+    classification = new NameUsageMatch();
+    classification.setKingdom("Plantae");
+    classification.setFamily("Araliaceae");
+    candidates = NubFixture.index().matchByName(NAME, matchingMode == NubMatchingServiceImpl.MatchingMode.FUZZY, 50);
+    // keep exact candidates only, the string similarity of fuzzy names is not part of this benchmark
+    Iterator<NameUsageMatch> iter = candidates.iterator();
+    while (iter.hasNext()) {
+      if (!NAME.equalsIgnoreCase(iter.next().getCanonicalName())) {
+        iter.remove();
+      }
+    }
+    if (candidates.size() < 2) {
+      throw new IllegalStateException("Expected several candidates for " + NAME + " in the test index");
+    }
+  }
+
+  @Benchmark
+  public int score() {
+    int[] scores = matcher.score(pn, NAME, Rank.GENUS, classification, matchingMode, candidates, false);
+    return scores[0];
+  }
+}
@@ -0,0 +1,57 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the scoring benchmark with the GC profiler and fails if scoring allocates on the heap.
+ * Executed by failsafe during mvn verify, as a JMH run is too slow for the regular unit tests.
+ */
+public class ScoringAllocationIT {
+  // bytes per operation, leaves room for measurement noise only
+  private static final double MAX_ALLOCATION = 8;
+
+  @Test
+  public void testScoringAllocation() throws Exception {
+    Options opt = new OptionsBuilder()
+        .include(ScoringBenchmark.class.getName())
+        .mode(Mode.AverageTime)
+        .warmupIterations(3)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(3)
+        .measurementTime(TimeValue.seconds(1))
+        // run in the failsafe JVM with its classpath
+        .forks(0)
+        .addProfiler(GCProfiler.class)
+        .build();
+    Collection<RunResult> results = new Runner(opt).run();
+    assertFalse(results.isEmpty());
+
+    for (RunResult rr : results) {
+      Result alloc = null;
+      for (Map.Entry<String, Result> e : rr.getSecondaryResults().entrySet()) {
+        if (e.getKey().endsWith("gc.alloc.rate.norm")) {
+          alloc = e.getValue();
+        }
+      }
+      assertNotNull("No allocation rate measured", alloc);
+      String mode = rr.getParams().getParam("mode");
+      assertTrue("Scoring in " + mode + " mode allocates " + alloc.getScore() + " bytes per op",
+          alloc.getScore() < MAX_ALLOCATION);
+    }
+  }
+}
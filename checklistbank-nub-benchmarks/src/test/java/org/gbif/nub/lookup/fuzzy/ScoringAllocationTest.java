@@ -0,0 +1,35 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.vocabulary.Rank;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Makes sure candidate scoring reuses its per thread scratch state.
+ * The allocation rate itself is verified with the GC profiler by {@link ScoringAllocationIT}.
+ */
+public class ScoringAllocationTest {
+  @Test
+  public void testScratchReuse() throws Exception {
+    for (String mode : new String[]{"FUZZY", "STRICT", "HIGHER"}) {
+      ScoringBenchmark bench = new ScoringBenchmark();
+      bench.mode = mode;
+      bench.setup();
+      int[] scores = bench.matcher.score(bench.pn, ScoringBenchmark.NAME, Rank.GENUS, bench.classification,
+          bench.matchingMode, bench.candidates, false);
+      final int best = scores[0];
+      int[] scores2 = bench.matcher.score(bench.pn, ScoringBenchmark.NAME, Rank.GENUS, bench.classification,
+          bench.matchingMode, bench.candidates, false);
+      // no new arrays per call
+      assertSame(mode, scores, scores2);
+      assertEquals(mode, best, scores2[0]);
+      for (int idx = 1; idx < bench.candidates.size(); idx++) {
+        assertTrue(mode + " scores not ordered", scores2[idx - 1] >= scores2[idx]);
+      }
+    }
+  }
+}
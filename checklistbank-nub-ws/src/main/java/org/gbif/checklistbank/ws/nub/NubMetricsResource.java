@@ -0,0 +1,77 @@
+package org.gbif.checklistbank.ws.nub;
+
+import org.gbif.nub.lookup.fuzzy.MatchingMetrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.yammer.metrics.Counter;
+import com.yammer.metrics.Gauge;
+import com.yammer.metrics.Histogram;
+import com.yammer.metrics.MetricRegistry;
+import com.yammer.metrics.Snapshot;
+import com.yammer.metrics.Timer;
+
+/**
+ * Exposes the matching metrics as json. The same metrics are also available via JMX.
+ * Latencies are given in milliseconds, rates per second.
+ * <pre>
+ * curl http://localhost:8080/species/match/metrics
+ * </pre>
+ */
+@Path("/species/match/metrics")
+@Singleton
+public class NubMetricsResource {
+  private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final MetricRegistry registry;
+
+  @Inject
+  public NubMetricsResource(MatchingMetrics metrics) {
+    this.registry = metrics.getRegistry();
+  }
+
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public Map<String, Object> metrics() {
+    Map<String, Object> json = Maps.newTreeMap();
+    for (Map.Entry<String, Timer> e : registry.getTimers().entrySet()) {
+      Timer t = e.getValue();
+      Map<String, Object> m = snapshot(t.getSnapshot(), NANOS_PER_MS);
+      m.put("count", t.getCount());
+      m.put("meanRate", t.getMeanRate());
+      m.put("m1Rate", t.getOneMinuteRate());
+      m.put("m15Rate", t.getFifteenMinuteRate());
+      json.put(e.getKey(), m);
+    }
+    for (Map.Entry<String, Histogram> e : registry.getHistograms().entrySet()) {
+      Map<String, Object> m = snapshot(e.getValue().getSnapshot(), 1);
+      m.put("count", e.getValue().getCount());
+      json.put(e.getKey(), m);
+    }
+    for (Map.Entry<String, Counter> e : registry.getCounters().entrySet()) {
+      json.put(e.getKey(), e.getValue().getCount());
+    }
+    for (Map.Entry<String, Gauge> e : registry.getGauges().entrySet()) {
+      json.put(e.getKey(), e.getValue().getValue());
+    }
+    return json;
+  }
+
+  private static Map<String, Object> snapshot(Snapshot s, double divisor) {
+    Map<String, Object> m = Maps.newLinkedHashMap();
+    m.put("p50", s.getValue(0.5) / divisor);
+    m.put("p75", s.getValue(0.75) / divisor);
+    m.put("p95", s.getValue(0.95) / divisor);
+    m.put("p99", s.getValue(0.99) / divisor);
+    m.put("max", s.getValue(1.0) / divisor);
+    return m;
+  }
+}
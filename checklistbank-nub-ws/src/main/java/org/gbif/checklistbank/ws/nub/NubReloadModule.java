@@ -0,0 +1,65 @@
+package org.gbif.checklistbank.ws.nub;
+
+import org.gbif.common.messaging.ConnectionParameters;
+import org.gbif.common.messaging.MessageListener;
+import org.gbif.common.messaging.api.MessageCallback;
+import org.gbif.common.messaging.api.messages.BackboneChangedMessage;
+import org.gbif.nub.lookup.fuzzy.NubIndexReloader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guice module listening to BackboneChangedMessages to rebuild the nub index in the background
+ * once a new backbone has been published.
+ * Requires a NubIndexReloader to be injectable.
+ */
+public class NubReloadModule extends AbstractModule implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(NubReloadModule.class);
+  private final ConnectionParameters connection;
+  private final String queue;
+  private MessageListener listener;
+
+  /**
+   * @param queue the queue to listen on, must be unique for every webservice instance
+   */
+  public NubReloadModule(ConnectionParameters connection, String queue) {
+    this.connection = connection;
+    this.queue = queue;
+  }
+
+  @Override
+  protected void configure() {
+    requestInjection(this);
+  }
+
+  @Inject
+  void listen(final NubIndexReloader reloader) throws IOException {
+    listener = new MessageListener(connection, 1);
+    listener.listen(queue, 1, new MessageCallback<BackboneChangedMessage>() {
+      @Override
+      public void handleMessage(BackboneChangedMessage msg) {
+        LOG.info("Backbone changed, reload nub index");
+        reloader.reload();
+      }
+
+      @Override
+      public Class<BackboneChangedMessage> getMessageClass() {
+        return BackboneChangedMessage.class;
+      }
+    });
+    LOG.info("Listening for backbone changes on queue {}", queue);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (listener != null) {
+      listener.close();
+    }
+  }
+}
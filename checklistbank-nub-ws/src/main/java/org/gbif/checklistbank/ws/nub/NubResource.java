@@ -5,16 +5,39 @@ import org.gbif.api.model.common.LinneanClassification;
 import org.gbif.api.service.checklistbank.NameUsageMatchingService;
 import org.gbif.api.util.VocabularyUtils;
 import org.gbif.api.vocabulary.Rank;
+import org.gbif.nub.lookup.fuzzy.BatchMatcher;
+import org.gbif.nub.lookup.fuzzy.MatchQuery;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.AbstractIterator;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,12 +46,21 @@ import org.slf4j.LoggerFactory;
 public class NubResource {
 
   private static final Logger LOG = LoggerFactory.getLogger(NubResource.class);
+  private static final String APPLICATION_NDJSON = "application/x-ndjson";
+  private static final Charset UTF8 = Charset.forName("UTF8");
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static {
+    MAPPER.disable(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES);
+    MAPPER.setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+  }
 
   private final NameUsageMatchingService matchingService;
+  private final BatchMatcher batchMatcher;
 
   @Inject
-  public NubResource(NameUsageMatchingService matchingService) {
+  public NubResource(NameUsageMatchingService matchingService, BatchMatcher batchMatcher) {
     this.matchingService = matchingService;
+    this.batchMatcher = batchMatcher;
   }
 
 
@@ -55,6 +87,129 @@ public class NubResource {
     return  matchingService.match(scientificName, r, classification, bool(strict), bool(verbose));
   }
 
+  /**
+   * Matches a json array of name queries, each query object taking the same properties as the GET match method.
+   * Names are matched in parallel and the results are streamed back as a json array in the same order.
+   * <pre>
+   * curl -X POST -H "Content-Type:application/json" --data-binary @names.json http://localhost:8080/species/match
+   * </pre>
+   */
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Path("match")
+  public StreamingOutput matchJson(final InputStream json,
+    @QueryParam("strict") final Boolean strict, @QueryParam("verbose") final Boolean verbose) {
+    // validate the request before any response is committed
+    final JsonParser jp;
+    try {
+      jp = MAPPER.getJsonFactory().createJsonParser(json);
+      if (jp.nextToken() != JsonToken.START_ARRAY) {
+        throw new WebApplicationException(Response.Status.BAD_REQUEST);
+      }
+    } catch (IOException e) {
+      throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+    }
+    return new StreamingOutput() {
+      @Override
+      public void write(OutputStream out) throws IOException {
+        final JsonGenerator jg = MAPPER.getJsonFactory().createJsonGenerator(out);
+        jg.writeStartArray();
+        int counter = batchMatcher.match(new JsonArrayIterator(jp), bool(strict), bool(verbose),
+          new BatchMatcher.MatchHandler() {
+            @Override
+            public void handle(MatchQuery query, NameUsageMatch match) throws IOException {
+              MAPPER.writeValue(jg, match);
+            }
+          });
+        jg.writeEndArray();
+        jg.close();
+        LOG.debug("Matched json array of {} names", counter);
+      }
+    };
+  }
+
+  /**
+   * Matches newline delimited json with one name query object per line.
+   * Results are streamed back as newline delimited json in the same order as the input lines.
+   * <pre>
+   * curl -X POST -H "Content-Type:application/x-ndjson" --data-binary @names.ndjson http://localhost:8080/species/match
+   * </pre>
+   */
+  @POST
+  @Consumes(APPLICATION_NDJSON)
+  @Produces(APPLICATION_NDJSON)
+  @Path("match")
+  public StreamingOutput matchNdJson(final InputStream ndjson,
+    @QueryParam("strict") final Boolean strict, @QueryParam("verbose") final Boolean verbose) {
+    return new StreamingOutput() {
+      @Override
+      public void write(OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF8));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, UTF8));
+        int counter = batchMatcher.match(new JsonLineIterator(reader), bool(strict), bool(verbose),
+          new BatchMatcher.MatchHandler() {
+            @Override
+            public void handle(MatchQuery query, NameUsageMatch match) throws IOException {
+              writer.write(MAPPER.writeValueAsString(match));
+              writer.write('\n');
+            }
+          });
+        writer.flush();
+        LOG.debug("Matched {} newline delimited names", counter);
+      }
+    };
+  }
+
+  /**
+   * Iterates over the objects of a json array, the parser being positioned at the start of the array.
+   */
+  private static class JsonArrayIterator extends AbstractIterator<MatchQuery> {
+    private final JsonParser jp;
+
+    JsonArrayIterator(JsonParser jp) {
+      this.jp = jp;
+    }
+
+    @Override
+    protected MatchQuery computeNext() {
+      try {
+        if (jp.nextToken() == JsonToken.START_OBJECT) {
+          return MAPPER.readValue(jp, MatchQuery.class);
+        }
+      } catch (IOException e) {
+        throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+      }
+      return endOfData();
+    }
+  }
+
+  /**
+   * Iterates over json objects given on individual lines, skipping empty lines.
+   */
+  private static class JsonLineIterator extends AbstractIterator<MatchQuery> {
+    private final BufferedReader reader;
+
+    JsonLineIterator(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    protected MatchQuery computeNext() {
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (!line.trim().isEmpty()) {
+            return MAPPER.readValue(line, MatchQuery.class);
+          }
+        }
+      } catch (IOException e) {
+        throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+      }
+      return endOfData();
+    }
+  }
+
   private <T extends Enum> T parse(Class<T> clazz, String value) {
     if (!Strings.isNullOrEmpty(value)) {
       try {
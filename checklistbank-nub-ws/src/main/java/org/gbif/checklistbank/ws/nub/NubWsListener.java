@@ -3,6 +3,7 @@ package org.gbif.checklistbank.ws.nub;
 
 import org.gbif.checklistbank.service.mybatis.guice.ChecklistBankServiceMyBatisModule;
 import org.gbif.checklistbank.utils.CloseableUtils;
+import org.gbif.common.messaging.ConnectionParameters;
 import org.gbif.nub.lookup.NubMatchingModule;
 import org.gbif.utils.file.properties.PropertiesUtil;
 import org.gbif.ws.app.ConfUtils;
@@ -15,6 +16,7 @@ import java.util.List;
 import java.util.Properties;
 import javax.servlet.ServletContextEvent;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.inject.Module;
 
@@ -22,6 +24,15 @@ public class NubWsListener extends GbifServletListener {
   private static final String APP_CONF_FILE = "checklistbank.properties";
   private static final String INDEX_DIR = "checklistbank.nub.indexDir";
   private static final String INCL_DELETED = "checklistbank.nub.inclDeleted";
+  private static final String CACHE_SIZE = "checklistbank.nub.cache.size";
+  private static final String CACHE_TTL = "checklistbank.nub.cache.ttl";
+  private static final String BUILD_THREADS = "checklistbank.nub.build.threads";
+  private static final String MQ_HOST = "checklistbank.nub.messaging.host";
+  private static final String MQ_PORT = "checklistbank.nub.messaging.port";
+  private static final String MQ_USER = "checklistbank.nub.messaging.username";
+  private static final String MQ_PASSWORD = "checklistbank.nub.messaging.password";
+  private static final String MQ_VHOST = "checklistbank.nub.messaging.virtualHost";
+  private static final String MQ_QUEUE = "checklistbank.nub.messaging.queue";
   private List<Closeable> toBeClosed = Lists.newArrayList();
 
   public NubWsListener() throws IOException {
@@ -37,9 +48,22 @@ public class NubWsListener extends GbifServletListener {
     toBeClosed.add(clbMod);
 
     boolean incDeleted = PropertiesUtil.propertyAsBool(properties, INCL_DELETED, false);
-    NubMatchingModule nubMod = new NubMatchingModule(new File(properties.getProperty(INDEX_DIR)), incDeleted);
+    long cacheSize = Long.parseLong(properties.getProperty(CACHE_SIZE, "0"));
+    long cacheTtl = Long.parseLong(properties.getProperty(CACHE_TTL, "0"));
+    int buildThreads = Integer.parseInt(properties.getProperty(BUILD_THREADS, "0"));
+    NubMatchingModule nubMod = new NubMatchingModule(new File(properties.getProperty(INDEX_DIR)), incDeleted, cacheSize, cacheTtl, buildThreads);
     modules.add(nubMod);
     toBeClosed.add(nubMod);
+
+    // reload the nub index whenever the backbone changed
+    if (!Strings.isNullOrEmpty(properties.getProperty(MQ_HOST))) {
+      ConnectionParameters mq = new ConnectionParameters(properties.getProperty(MQ_HOST),
+          Integer.parseInt(properties.getProperty(MQ_PORT, "5672")), properties.getProperty(MQ_USER),
+          properties.getProperty(MQ_PASSWORD), properties.getProperty(MQ_VHOST));
+      NubReloadModule reloadMod = new NubReloadModule(mq, properties.getProperty(MQ_QUEUE, "clb-nub-ws"));
+      modules.add(reloadMod);
+      toBeClosed.add(reloadMod);
+    }
     // use the line below to run the webservice locally with the json test index data from the nub module
     // modules.add(new NubMatchingTestModule());
     return modules;
@@ -1,10 +1,15 @@
 package org.gbif.nub.lookup;
 
 import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
 import org.gbif.checklistbank.utils.CloseableUtils;
+import org.gbif.nub.lookup.fuzzy.BatchMatcher;
+import org.gbif.nub.lookup.fuzzy.CachedMatchingService;
 import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.fuzzy.MatchingMetrics;
 import org.gbif.nub.lookup.fuzzy.NubIndex;
+import org.gbif.nub.lookup.fuzzy.NubIndexReloader;
 import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
 
 import java.io.Closeable;
@@ -15,8 +20,12 @@ import java.util.List;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.PrivateModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.yammer.metrics.Gauge;
+import com.yammer.metrics.JmxReporter;
+import com.yammer.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,14 +37,17 @@ public class NubMatchingModule extends PrivateModule implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(NubMatchingModule.class);
   private final File indexDir;
   private final boolean incDeleted;
+  private final long cacheSize;
+  private final long cacheTtl;
+  private final int buildThreads;
+  private CachedMatchingService cache;
   private List<AutoCloseable> toBeClosed = Lists.newArrayList();
 
   /**
    * Creates a memory based nub index which is built from scratch every time the webservice starts up.
    */
   public NubMatchingModule() {
-    this.indexDir = null;
-    this.incDeleted = false;
+    this(null, false);
   }
 
   /**
@@ -43,24 +55,74 @@ public class NubMatchingModule extends PrivateModule implements Closeable {
    * @param indexDir the directory to keep the lucene index in. If existing the index will be reused
    */
   public NubMatchingModule(File indexDir, boolean incDeleted) {
+    this(indexDir, incDeleted, 0, 0);
+  }
+
+  /**
+   * Creates a file based nub index with a cache of match results in front of the matching service.
+   * @param indexDir the directory to keep the lucene index in. If existing the index will be reused
+   * @param cacheSize maximum number of cached match results. If zero or less no cache is used
+   * @param cacheTtl minutes after which a cached match result expires. If zero or less results never expire
+   */
+  public NubMatchingModule(File indexDir, boolean incDeleted, long cacheSize, long cacheTtl) {
+    this(indexDir, incDeleted, cacheSize, cacheTtl, 0);
+  }
+
+  /**
+   * Creates a file based nub index with a cache of match results in front of the matching service.
+   * @param indexDir the directory to keep the lucene index in. If existing the index will be reused
+   * @param cacheSize maximum number of cached match results. If zero or less no cache is used
+   * @param cacheTtl minutes after which a cached match result expires. If zero or less results never expire
+   * @param buildThreads number of threads to build a file index with, streaming usages from postgres.
+   *                     If zero or less the index is built in a single thread via the NameUsageMapper
+   */
+  public NubMatchingModule(File indexDir, boolean incDeleted, long cacheSize, long cacheTtl, int buildThreads) {
     this.indexDir = indexDir;
     this.incDeleted = incDeleted;
+    this.cacheSize = cacheSize;
+    this.cacheTtl = cacheTtl;
+    this.buildThreads = buildThreads;
   }
 
   @Override
   protected void configure() {
-    bind(NameUsageMatchingService.class).to(NubMatchingServiceImpl.class).asEagerSingleton();
+    bind(NubMatchingServiceImpl.class).in(Singleton.class);
+    bind(NameUsageMatchingService.class).toProvider(new MatchingServiceProvider()).asEagerSingleton();
     expose(NameUsageMatchingService.class);
+    expose(BatchMatcher.class);
+    expose(NubIndexReloader.class);
+    expose(MatchingMetrics.class);
+  }
+
+  /**
+   * Provides the matching metrics, also published via JMX under the nub-matching domain.
+   */
+  @Provides
+  @Singleton
+  public MatchingMetrics provideMetrics() {
+    final MetricRegistry registry = new MetricRegistry(MatchingMetrics.REGISTRY_NAME);
+    final JmxReporter reporter = JmxReporter.forRegistry(registry).inDomain(MatchingMetrics.REGISTRY_NAME).build();
+    reporter.start();
+    toBeClosed.add(new AutoCloseable() {
+      @Override
+      public void close() {
+        reporter.stop();
+      }
+    });
+    return new MatchingMetrics(registry);
   }
 
   @Provides
   @Inject
   @Singleton
-  public NubIndex provideIndex(NameUsageMapper mapper) throws IOException {
+  public NubIndex provideIndex(NameUsageMapper mapper, ClbConfiguration clb) throws IOException {
     NubIndex index;
     if (indexDir == null) {
       index = NubIndex.newMemoryIndex(mapper);
       LOG.info("Lucene memory index initialized");
+    } else if (buildThreads > 0) {
+      index = NubIndex.newFileIndex(indexDir, clb, buildThreads);
+      LOG.info("Lucene file index initialized at {}", indexDir.getAbsolutePath());
     } else {
       index = NubIndex.newFileIndex(indexDir, mapper);
       LOG.info("Lucene file index initialized at {}", indexDir.getAbsolutePath());
@@ -69,6 +131,75 @@ public class NubMatchingModule extends PrivateModule implements Closeable {
     return index;
   }
 
+  /**
+   * Provides the matching service, wrapped by a result cache if configured.
+   */
+  private class MatchingServiceProvider implements Provider<NameUsageMatchingService> {
+    @Inject
+    private NubMatchingServiceImpl impl;
+    @Inject
+    private MatchingMetrics metrics;
+
+    @Override
+    public NameUsageMatchingService get() {
+      if (cacheSize > 0) {
+        cache = new CachedMatchingService(impl, cacheSize, cacheTtl, metrics);
+        registerCacheGauges(metrics.getRegistry(), cache);
+        return cache;
+      }
+      return impl;
+    }
+  }
+
+  private static void registerCacheGauges(MetricRegistry registry, final CachedMatchingService cache) {
+    registry.register("cache.size", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return cache.size();
+      }
+    });
+    registry.register("cache.hitRate", new Gauge<Double>() {
+      @Override
+      public Double getValue() {
+        return cache.stats().hitRate();
+      }
+    });
+    registry.register("cache.evictions", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return cache.stats().evictionCount();
+      }
+    });
+  }
+
+  @Provides
+  @Inject
+  @Singleton
+  public BatchMatcher provideBatchMatcher(NameUsageMatchingService matchingService) {
+    BatchMatcher batchMatcher = new BatchMatcher(matchingService);
+    toBeClosed.add(batchMatcher);
+    return batchMatcher;
+  }
+
+  /**
+   * The reloader invalidates the optional match cache after every index swap.
+   * @param matchingService not used directly, but makes sure the optional cache exists before the reloader is created
+   */
+  @Provides
+  @Inject
+  @Singleton
+  public NubIndexReloader provideReloader(NubIndex index, NameUsageMapper mapper, ClbConfiguration clb,
+                                          NameUsageMatchingService matchingService) {
+    NubIndexReloader reloader;
+    if (indexDir != null && buildThreads > 0) {
+      reloader = new NubIndexReloader(index, clb, buildThreads, cache);
+    } else {
+      reloader = new NubIndexReloader(index, mapper, cache);
+    }
+    toBeClosed.add(reloader);
+    return reloader;
+  }
+
   @Provides
   @Singleton
   public static HigherTaxaComparator provideSynonyms() {
@@ -81,6 +212,7 @@ public class NubMatchingModule extends PrivateModule implements Closeable {
 
   @Override
   public void close() throws IOException {
-    CloseableUtils.close(toBeClosed);
+    // close in reverse order so the index is closed last
+    CloseableUtils.close(Lists.reverse(toBeClosed));
   }
 }
@@ -0,0 +1,143 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.checklistbank.utils.ExecutorUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches large numbers of names in parallel using a shared thread pool, handing back results in input order.
+ * Each batch keeps at most a fixed window of queries in flight so memory usage stays bounded
+ * regardless of the number of names streamed through it.
+ * A query that fails to match does not abort the batch, but results in a match of type NONE with the error as its note.
+ */
+public class BatchMatcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchMatcher.class);
+  private static final String NAME = "batch-matcher";
+
+  private final NameUsageMatchingService matcher;
+  private final ExecutorService exec;
+  private final int window;
+
+  /**
+   * Receives the match results of a batch in the same order as the queries were given.
+   */
+  public interface MatchHandler {
+    void handle(MatchQuery query, NameUsageMatch match) throws IOException;
+  }
+
+  /**
+   * Creates a batch matcher using one thread per available core and a window of 1000 queries per thread.
+   */
+  public BatchMatcher(NameUsageMatchingService matcher) {
+    this(matcher, Runtime.getRuntime().availableProcessors(), 1000);
+  }
+
+  /**
+   * @param threads number of threads used to match names in parallel
+   * @param windowPerThread maximum number of queries per thread a single batch keeps in memory
+   */
+  public BatchMatcher(NameUsageMatchingService matcher, int threads, int windowPerThread) {
+    Preconditions.checkArgument(threads > 0, "At least one thread needed");
+    Preconditions.checkArgument(windowPerThread > 0, "Window needs to be positive");
+    this.matcher = matcher;
+    this.window = threads * windowPerThread;
+    exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory(NAME));
+    LOG.info("Created batch matcher with {} threads", threads);
+  }
+
+  /**
+   * Matches all queries and passes the results in input order to the given handler.
+   * The handler is always called from the invoking thread.
+   *
+   * @return number of matched queries
+   */
+  public int match(Iterator<MatchQuery> queries, final boolean strict, final boolean verbose, MatchHandler handler)
+      throws IOException {
+    StopWatch watch = new StopWatch();
+    watch.start();
+    Deque<MatchTask> inFlight = new ArrayDeque<MatchTask>(window);
+    int counter = 0;
+    try {
+      while (queries.hasNext()) {
+        final MatchQuery q = queries.next();
+        if (inFlight.size() >= window) {
+          inFlight.removeFirst().handle(handler);
+          counter++;
+        }
+        inFlight.addLast(new MatchTask(q, exec.submit(new Callable<NameUsageMatch>() {
+          @Override
+          public NameUsageMatch call() throws Exception {
+            return matcher.match(q.getName(), q.parsedRank(), q.classification(), strict, verbose);
+          }
+        })));
+      }
+      while (!inFlight.isEmpty()) {
+        inFlight.removeFirst().handle(handler);
+        counter++;
+      }
+
+    } finally {
+      // cancel pending tasks in case the handler or the query iterator failed
+      for (MatchTask t : inFlight) {
+        t.future.cancel(true);
+      }
+    }
+    LOG.debug("Batch matched {} names in {}", counter, watch.toString());
+    return counter;
+  }
+
+  private static class MatchTask {
+    private final MatchQuery query;
+    private final Future<NameUsageMatch> future;
+
+    private MatchTask(MatchQuery query, Future<NameUsageMatch> future) {
+      this.query = query;
+      this.future = future;
+    }
+
+    void handle(MatchHandler handler) throws IOException {
+      try {
+        handler.handle(query, future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while matching " + query.getName(), e);
+      } catch (ExecutionException e) {
+        LOG.warn("Failed to match {}", query.getName(), e.getCause());
+        handler.handle(query, failed(e.getCause()));
+      }
+    }
+  }
+
+  /**
+   * @return a match of type NONE with the error message as its note
+   */
+  private static NameUsageMatch failed(Throwable e) {
+    NameUsageMatch m = new NameUsageMatch();
+    m.setMatchType(NameUsageMatch.MatchType.NONE);
+    m.setNote("Matching failed: " + e.getMessage());
+    return m;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ExecutorUtils.stop(exec, NAME, 10, TimeUnit.SECONDS);
+  }
+}
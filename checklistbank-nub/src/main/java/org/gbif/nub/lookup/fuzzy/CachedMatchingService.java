@@ -0,0 +1,175 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.api.vocabulary.Rank;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.yammer.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A matching service keeping a bounded, concurrent cache of match results in front of another matching service.
+ * Cache keys are the normalized query consisting of the name, rank, kingdom to genus, strict and verbose flag.
+ *
+ * Cached matches are shared between all callers and must not be modified.
+ * If metrics are given, cache hits are recorded in them as the delegate only sees cache misses.
+ * The cache must be invalidated whenever the underlying nub index changes.
+ */
+public class CachedMatchingService implements NameUsageMatchingService {
+  private static final Logger LOG = LoggerFactory.getLogger(CachedMatchingService.class);
+  private static final CharMatcher WHITESPACE = CharMatcher.WHITESPACE;
+
+  private final NameUsageMatchingService matcher;
+  private final Cache<MatchKey, NameUsageMatch> cache;
+  private final MatchingMetrics metrics;
+
+  /**
+   * @param matcher the matching service to delegate to for cache misses
+   * @param maxSize maximum number of cached matches
+   * @param ttlMinutes minutes after which a cached match expires. Zero or negative values never expire matches.
+   */
+  public CachedMatchingService(NameUsageMatchingService matcher, long maxSize, long ttlMinutes) {
+    this(matcher, maxSize, ttlMinutes, null);
+  }
+
+  /**
+   * @param metrics optional metrics to record cache hits in, usually the same instance used by the delegate matcher
+   */
+  public CachedMatchingService(NameUsageMatchingService matcher, long maxSize, long ttlMinutes, @Nullable MatchingMetrics metrics) {
+    this.matcher = matcher;
+    this.metrics = metrics;
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+        .recordStats();
+    if (ttlMinutes > 0) {
+      builder.expireAfterWrite(ttlMinutes, TimeUnit.MINUTES);
+    }
+    cache = builder.build();
+    LOG.info("Created match cache with max size {} and ttl {} minutes", maxSize, ttlMinutes);
+  }
+
+  private static class MatchKey {
+    private final String name;
+    private final Rank rank;
+    private final String kingdom;
+    private final String phylum;
+    private final String clazz;
+    private final String order;
+    private final String family;
+    private final String genus;
+    private final boolean strict;
+    private final boolean verbose;
+    private final int hash;
+
+    MatchKey(String name, Rank rank, @Nullable LinneanClassification cl, boolean strict, boolean verbose) {
+      this.name = norm(name);
+      this.rank = rank;
+      this.kingdom = cl == null ? null : norm(cl.getKingdom());
+      this.phylum = cl == null ? null : norm(cl.getPhylum());
+      this.clazz = cl == null ? null : norm(cl.getClazz());
+      this.order = cl == null ? null : norm(cl.getOrder());
+      this.family = cl == null ? null : norm(cl.getFamily());
+      this.genus = cl == null ? null : norm(cl.getGenus());
+      this.strict = strict;
+      this.verbose = verbose;
+      hash = Objects.hash(this.name, rank, kingdom, phylum, clazz, order, family, genus, strict, verbose);
+    }
+
+    private static String norm(String x) {
+      return Strings.emptyToNull(WHITESPACE.trimAndCollapseFrom(Strings.nullToEmpty(x), ' '));
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      final MatchKey other = (MatchKey) obj;
+      return hash == other.hash
+          && strict == other.strict
+          && verbose == other.verbose
+          && rank == other.rank
+          && Objects.equals(this.name, other.name)
+          && Objects.equals(this.genus, other.genus)
+          && Objects.equals(this.family, other.family)
+          && Objects.equals(this.order, other.order)
+          && Objects.equals(this.clazz, other.clazz)
+          && Objects.equals(this.phylum, other.phylum)
+          && Objects.equals(this.kingdom, other.kingdom);
+    }
+  }
+
+  @Override
+  public NameUsageMatch match(final String scientificName, @Nullable final Rank rank,
+                              @Nullable final LinneanClassification classification,
+                              final boolean strict, final boolean verbose) {
+    // build the key before matching, the matching service modifies the classification instance
+    MatchKey key = new MatchKey(scientificName, rank, classification, strict, verbose);
+    final Timer.Context context = metrics == null ? null : metrics.time();
+    final boolean[] loaded = {false};
+    try {
+      NameUsageMatch match = cache.get(key, new Callable<NameUsageMatch>() {
+        @Override
+        public NameUsageMatch call() throws Exception {
+          loaded[0] = true;
+          return matcher.match(scientificName, rank, classification, strict, verbose);
+        }
+      });
+      // misses are recorded by the delegate already
+      if (context != null && !loaded[0]) {
+        context.stop();
+        metrics.cacheHit(match);
+      }
+      return match;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to match " + scientificName, e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw new IllegalStateException("Failed to match " + scientificName, e.getCause());
+    }
+  }
+
+  /**
+   * Removes all cached matches. Needs to be called whenever the nub index changes.
+   */
+  public void invalidate() {
+    LOG.info("Invalidate match cache with {} entries. {}", cache.size(), cache.stats());
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return the number of currently cached matches
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * @return hit, miss and eviction statistics of the cache since it was created
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
@@ -0,0 +1,379 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * A precomputed fuzzy lookup structure over a sorted set of distinct analyzed names that finds all names
+ * within 1 or 2 Damerau-Levenshtein edits of a query without building any automaton at query time.
+ *
+ * It is a symmetric delete index in the style of SymSpell, restricted to a fixed name prefix to keep its size bounded:
+ * Names sharing the same prefix are consecutive in the sorted dictionary and form a group.
+ * For every group the hashes of all variants of its prefix with up to 2 deleted characters are stored
+ * in a sorted long array together with the group id.
+ * Within a group the names are also kept ordered by their length, so a lookup only verifies the names
+ * whose length differs by no more than the allowed edits. This keeps large genera with thousands of binomials
+ * sharing the same prefix from turning a lookup into a linear scan.
+ * A lookup generates the same delete variants for the query prefix, collects the matching groups
+ * and verifies the names of suitable length in those groups with a bounded edit distance.
+ * Hash collisions only add candidates which are discarded by the verification.
+ *
+ * Instances are immutable and thread safe.
+ */
+class FuzzyNameIndex {
+  static final int MAX_EDITS = 2;
+  static final int PREFIX_LENGTH = 7;
+
+  private final StringDictionary names;
+  // first name id of each group plus the total number of names as the last entry
+  private final int[] groups;
+  // the first character shared by all names of a group
+  private final char[] groupChars;
+  // name ids ordered by group, then by name length
+  private final int[] byLength;
+  // the name length for each entry in byLength
+  private final int[] lengths;
+  // sorted delete variant hashes in the upper and group ids in the lower 32 bits
+  private final long[] deletes;
+
+  /**
+   * A name found within the requested edit distance.
+   */
+  static class Match {
+    final String name;
+    final int edits;
+
+    Match(String name, int edits) {
+      this.name = name;
+      this.edits = edits;
+    }
+  }
+
+  private static final Comparator<Match> MATCH_ORDER = new Comparator<Match>() {
+    @Override
+    public int compare(Match m1, Match m2) {
+      return m1.edits == m2.edits ? m1.name.compareTo(m2.name) : Integer.compare(m1.edits, m2.edits);
+    }
+  };
+
+  // reusable rows for the distance calculation
+  private static final ThreadLocal<int[][]> ROWS = new ThreadLocal<int[][]>() {
+    @Override
+    protected int[][] initialValue() {
+      return new int[3][64];
+    }
+  };
+
+  private FuzzyNameIndex(StringDictionary names, int[] groups, char[] groupChars, int[] byLength, int[] lengths, long[] deletes) {
+    this.names = names;
+    this.groups = groups;
+    this.groupChars = groupChars;
+    this.byLength = byLength;
+    this.lengths = lengths;
+    this.deletes = deletes;
+  }
+
+  /**
+   * @param sortedNames distinct names in ascending order, e.g. the terms of a lucene field
+   */
+  static FuzzyNameIndex build(Iterator<String> sortedNames) {
+    StringDictionary.Builder dict = new StringDictionary.Builder();
+    IntArray groups = new IntArray();
+    IntArray groupChars = new IntArray();
+    IntArray nameLengths = new IntArray();
+    LongArray deletes = new LongArray();
+    String prev = null;
+    while (sortedNames.hasNext()) {
+      String name = sortedNames.next();
+      Preconditions.checkArgument(prev == null || prev.compareTo(name) < 0, "Names must be distinct and sorted");
+      int id = dict.add(name);
+      nameLengths.add(name.length());
+      if (prev == null || !samePrefix(prev, name)) {
+        final int group = groups.size();
+        groups.add(id);
+        groupChars.add(name.charAt(0));
+        addDeletes(name, prefixLength(name), group, deletes);
+      }
+      prev = name;
+    }
+    StringDictionary names = dict.build();
+    groups.add(names.size());
+
+    // order the names of each group by their length
+    int[] groupArr = groups.toArray();
+    int[] nameLengthArr = nameLengths.toArray();
+    int[] byLength = new int[names.size()];
+    int[] lengths = new int[names.size()];
+    for (int group = 0; group < groupArr.length - 1; group++) {
+      final int start = groupArr[group];
+      final int end = groupArr[group + 1];
+      long[] sorted = new long[end - start];
+      for (int id = start; id < end; id++) {
+        sorted[id - start] = ((long) nameLengthArr[id] << 32) | id;
+      }
+      Arrays.sort(sorted);
+      for (int idx = 0; idx < sorted.length; idx++) {
+        byLength[start + idx] = (int) sorted[idx];
+        lengths[start + idx] = (int) (sorted[idx] >>> 32);
+      }
+    }
+    char[] chars = new char[groupChars.size()];
+    for (int group = 0; group < chars.length; group++) {
+      chars[group] = (char) groupChars.get(group);
+    }
+    return new FuzzyNameIndex(names, groupArr, chars, byLength, lengths, deletes.toSortedDistinctArray());
+  }
+
+  private static int prefixLength(String x) {
+    return Math.min(PREFIX_LENGTH, x.length());
+  }
+
+  private static boolean samePrefix(String x1, String x2) {
+    final int len = prefixLength(x1);
+    return len == prefixLength(x2) && x1.regionMatches(0, x2, 0, len);
+  }
+
+  /**
+   * Adds the hashes of the prefix itself and all variants with 1 or 2 deleted characters.
+   */
+  private static void addDeletes(String x, int len, int group, LongArray deletes) {
+    deletes.add(pack(hash(x, len, -1, -1), group));
+    for (int i = 0; i < len; i++) {
+      deletes.add(pack(hash(x, len, i, -1), group));
+      for (int j = i + 1; j < len; j++) {
+        deletes.add(pack(hash(x, len, i, j), group));
+      }
+    }
+  }
+
+  private static long pack(int hash, int group) {
+    return ((long) hash << 32) | (group & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Hashes the first len characters of x skipping the characters at positions skip1 and skip2.
+   */
+  private static int hash(String x, int len, int skip1, int skip2) {
+    int h = 0;
+    for (int i = 0; i < len; i++) {
+      if (i != skip1 && i != skip2) {
+        h = 31 * h + x.charAt(i);
+      }
+    }
+    // murmur3 finalizer to spread similar strings
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * @return number of distinct names in the index
+   */
+  int size() {
+    return names.size();
+  }
+
+  /**
+   * Finds all names within the given edit distance that share the first character with the query.
+   * Transpositions of 2 adjacent characters count as a single edit.
+   *
+   * @param maxEdits maximum edit distance, 0 to 2
+   * @return matching names ordered by their edit distance and name
+   */
+  List<Match> lookup(String query, int maxEdits) {
+    Preconditions.checkArgument(maxEdits >= 0 && maxEdits <= MAX_EDITS, "Max edits must be between 0 and " + MAX_EDITS);
+    List<Match> matches = Lists.newArrayList();
+    if (query.isEmpty() || size() == 0) {
+      return matches;
+    }
+    // collect candidate groups for all delete variants of the query prefix
+    final int len = prefixLength(query);
+    IntArray candidates = new IntArray();
+    addGroups(hash(query, len, -1, -1), candidates);
+    if (maxEdits > 0) {
+      for (int i = 0; i < len; i++) {
+        addGroups(hash(query, len, i, -1), candidates);
+        if (maxEdits > 1) {
+          for (int j = i + 1; j < len; j++) {
+            addGroups(hash(query, len, i, j), candidates);
+          }
+        }
+      }
+    }
+    // verify the names of the candidate groups which do not differ too much in length
+    final int minLength = query.length() - maxEdits;
+    final int maxLength = query.length() + maxEdits;
+    int[] groupIds = candidates.toSortedDistinctArray();
+    for (int group : groupIds) {
+      if (groupChars[group] != query.charAt(0)) {
+        continue;
+      }
+      final int end = groups[group + 1];
+      for (int idx = firstWithLength(groups[group], end, minLength); idx < end && lengths[idx] <= maxLength; idx++) {
+        String name = names.get(byLength[idx]);
+        int edits = distance(query, name, maxEdits);
+        if (edits <= maxEdits) {
+          matches.add(new Match(name, edits));
+        }
+      }
+    }
+    Collections.sort(matches, MATCH_ORDER);
+    return matches;
+  }
+
+  /**
+   * Lower bound binary search within a group of the lengths array.
+   * @return the first index between start and end with a name length of at least minLength
+   */
+  private int firstWithLength(int start, int end, int minLength) {
+    int low = start;
+    int high = end;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (lengths[mid] < minLength) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void addGroups(int hash, IntArray groupIds) {
+    final long min = (long) hash << 32;
+    // lower bound binary search for the first entry with the given hash
+    int low = 0;
+    int high = deletes.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (deletes[mid] < min) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int idx = low; idx < deletes.length && (int) (deletes[idx] >>> 32) == hash; idx++) {
+      groupIds.add((int) deletes[idx]);
+    }
+  }
+
+  /**
+   * Optimal string alignment distance which stops as soon as the distance exceeds max.
+   * The dynamic programming rows are reused per thread.
+   * @return the edit distance or max + 1 if it exceeds max
+   */
+  static int distance(String x1, String x2, int max) {
+    final int n = x1.length();
+    final int m = x2.length();
+    if (Math.abs(n - m) > max) {
+      return max + 1;
+    }
+    int[][] rows = ROWS.get();
+    if (rows[0].length <= m) {
+      for (int r = 0; r < rows.length; r++) {
+        rows[r] = new int[m + 1];
+      }
+    }
+    int[] prev2 = rows[0];
+    int[] prev = rows[1];
+    int[] curr = rows[2];
+    for (int j = 0; j <= m; j++) {
+      prev[j] = j;
+    }
+    for (int i = 1; i <= n; i++) {
+      curr[0] = i;
+      int rowMin = i;
+      final char c1 = x1.charAt(i - 1);
+      for (int j = 1; j <= m; j++) {
+        final char c2 = x2.charAt(j - 1);
+        int d = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + (c1 == c2 ? 0 : 1));
+        if (i > 1 && j > 1 && c1 == x2.charAt(j - 2) && x1.charAt(i - 2) == c2) {
+          d = Math.min(d, prev2[j - 2] + 1);
+        }
+        curr[j] = d;
+        rowMin = Math.min(rowMin, d);
+      }
+      if (rowMin > max) {
+        return max + 1;
+      }
+      int[] tmp = prev2;
+      prev2 = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return Math.min(prev[m], max + 1);
+  }
+
+  /**
+   * Minimal growable int array.
+   */
+  private static class IntArray {
+    private int[] data = new int[16];
+    private int size = 0;
+
+    void add(int x) {
+      if (size == data.length) {
+        data = Arrays.copyOf(data, size * 2);
+      }
+      data[size++] = x;
+    }
+
+    int get(int idx) {
+      return data[idx];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+
+    int[] toSortedDistinctArray() {
+      Arrays.sort(data, 0, size);
+      int distinct = 0;
+      for (int idx = 0; idx < size; idx++) {
+        if (distinct == 0 || data[idx] != data[distinct - 1]) {
+          data[distinct++] = data[idx];
+        }
+      }
+      return Arrays.copyOf(data, distinct);
+    }
+  }
+
+  /**
+   * Minimal growable long array.
+   */
+  private static class LongArray {
+    private long[] data = new long[1024];
+    private int size = 0;
+
+    void add(long x) {
+      if (size == data.length) {
+        data = Arrays.copyOf(data, size * 2);
+      }
+      data[size++] = x;
+    }
+
+    long[] toSortedDistinctArray() {
+      Arrays.sort(data, 0, size);
+      int distinct = 0;
+      for (int idx = 0; idx < size; idx++) {
+        if (distinct == 0 || data[idx] != data[distinct - 1]) {
+          data[distinct++] = data[idx];
+        }
+      }
+      return Arrays.copyOf(data, distinct);
+    }
+  }
+}
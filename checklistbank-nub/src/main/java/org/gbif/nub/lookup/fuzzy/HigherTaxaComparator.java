@@ -28,9 +28,11 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -58,10 +60,17 @@ public class HigherTaxaComparator {
     SYNONYM_FILENAMES.put(Rank.FAMILY, "family.txt");
   }
   private static final Set<String> NON_NAMES = Sets.newHashSet();
+  // max number of names cached per rank. The matching service compares the same nub names over and over again
+  private static final int MAX_CACHE_SIZE = 100000;
+  // marker for cached blacklisted names, compared by identity
+  private static final String BLACKLISTED = new String("BLACKLISTED");
 
   private Logger log = LoggerFactory.getLogger(HigherTaxaComparator.class);
   private Map<Rank, Map<String, String>> syn = Maps.newHashMap();
   private Map<String, Kingdom> kingdoms = Maps.newHashMap();
+  // caches of raw names to their looked up synonym, avoiding repeated normalisation
+  private final Map<Rank, ConcurrentMap<String, String>> lookupCache = Maps.newEnumMap(Rank.class);
+  private final ConcurrentMap<String, Optional<Kingdom>> kingdomCache = new ConcurrentHashMap<String, Optional<Kingdom>>();
 
   /**
    *
@@ -70,6 +79,16 @@ public class HigherTaxaComparator {
     for (Kingdom k : Kingdom.values()) {
       this.kingdoms.put(norm(k.name()), k);
     }
+    for (Rank r : SYNONYM_FILENAMES.keySet()) {
+      lookupCache.put(r, new ConcurrentHashMap<String, String>());
+    }
+  }
+
+  private void clearCache() {
+    for (ConcurrentMap<String, String> cache : lookupCache.values()) {
+      cache.clear();
+    }
+    kingdomCache.clear();
   }
 
   /**
@@ -140,6 +159,22 @@ public class HigherTaxaComparator {
     if (higherTaxon == null) {
       return null;
     }
+    ConcurrentMap<String, String> cache = lookupCache.get(rank);
+    if (cache == null) {
+      return lookupUncached(higherTaxon, rank);
+    }
+    String result = cache.get(higherTaxon);
+    if (result == null) {
+      result = lookupUncached(higherTaxon, rank);
+      if (cache.size() < MAX_CACHE_SIZE) {
+        cache.put(higherTaxon, result == null ? BLACKLISTED : result);
+      }
+      return result;
+    }
+    return result == BLACKLISTED ? null : result;
+  }
+
+  private String lookupUncached(String higherTaxon, Rank rank) {
     if (isBlacklisted(higherTaxon)) {
       return null;
     }
@@ -172,11 +207,27 @@ public class HigherTaxaComparator {
    */
   @VisibleForTesting
   protected static String norm(String x) {
-    Pattern REMOVE_NON_LETTERS = Pattern.compile("[\\W\\d]+");
-    x = Strings.nullToEmpty(x);
-    x = REMOVE_NON_LETTERS.matcher(x).replaceAll(" ");
-    x = StringUtils.normalizeSpace(x).toUpperCase();
-    return StringUtils.trimToNull(x);
+    if (x == null) {
+      return null;
+    }
+    // keep only ascii letters and underscores, replacing all other character runs with a single space
+    StringBuilder sb = new StringBuilder(x.length());
+    boolean space = false;
+    for (int i = 0; i < x.length(); i++) {
+      char c = x.charAt(i);
+      if (c >= 'a' && c <= 'z') {
+        c = (char) (c - 'a' + 'A');
+      } else if (!(c >= 'A' && c <= 'Z') && c != '_') {
+        space = true;
+        continue;
+      }
+      if (space && sb.length() > 0) {
+        sb.append(' ');
+      }
+      space = false;
+      sb.append(c);
+    }
+    return sb.length() == 0 ? null : sb.toString();
   }
 
   private Map<String, String> readSynonymStream(Rank rank, InputStream in) {
@@ -252,6 +303,7 @@ public class HigherTaxaComparator {
    * Reads blacklisted names from stream
    */
   private void readBlacklistStream(InputStream in) {
+    clearCache();
     NON_NAMES.clear();
     try {
       NON_NAMES.addAll(FileUtils.streamToSet(in));
@@ -268,7 +320,7 @@ public class HigherTaxaComparator {
      * File names must be the same as on rs.gbif.org.
    */
   public void loadLocalDicts(File folder) {
-    log.info("Reloading dictionary files from rs.gbif.org ...");
+    log.info("Reloading dictionary files from {} ...", folder.getAbsolutePath());
 
     for (Rank rank : SYNONYM_FILENAMES.keySet()) {
       Map<String, String> synonyms = readSynonymFile(rank, new File(folder, SYNONYM_FILENAMES.get(rank)));
@@ -321,6 +373,7 @@ public class HigherTaxaComparator {
    * @param synonyms
    */
   public void setSynonyms(Rank rank, Map<String, String> synonyms) {
+    clearCache();
     Map<String, String> synonymsNormed = Maps.newHashMap();
 
     // normalise keys
@@ -390,7 +443,14 @@ public class HigherTaxaComparator {
     if (kingdom == null) {
       return null;
     }
-    return kingdoms.get(kingdom.trim().toUpperCase());
+    Optional<Kingdom> k = kingdomCache.get(kingdom);
+    if (k == null) {
+      k = Optional.fromNullable(kingdoms.get(kingdom.trim().toUpperCase()));
+      if (kingdomCache.size() < MAX_CACHE_SIZE) {
+        kingdomCache.put(kingdom, k);
+      }
+    }
+    return k.orNull();
   }
 
 }
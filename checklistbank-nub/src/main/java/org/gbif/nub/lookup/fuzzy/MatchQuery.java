@@ -0,0 +1,142 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.util.VocabularyUtils;
+import org.gbif.api.vocabulary.Rank;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Strings;
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * A single name matching query as accepted by the batch matching methods.
+ * The properties mirror the query parameters of the single match webservice, ranks are given as strings
+ * and interpreted leniently.
+ */
+public class MatchQuery {
+  private String name;
+  private String rank;
+  private String kingdom;
+  private String phylum;
+  private String clazz;
+  private String order;
+  private String family;
+  private String genus;
+  private String subgenus;
+
+  public MatchQuery() {
+  }
+
+  public MatchQuery(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getRank() {
+    return rank;
+  }
+
+  public void setRank(String rank) {
+    this.rank = rank;
+  }
+
+  public String getKingdom() {
+    return kingdom;
+  }
+
+  public void setKingdom(String kingdom) {
+    this.kingdom = kingdom;
+  }
+
+  public String getPhylum() {
+    return phylum;
+  }
+
+  public void setPhylum(String phylum) {
+    this.phylum = phylum;
+  }
+
+  @JsonProperty("class")
+  public String getClazz() {
+    return clazz;
+  }
+
+  @JsonProperty("class")
+  public void setClazz(String clazz) {
+    this.clazz = clazz;
+  }
+
+  public String getOrder() {
+    return order;
+  }
+
+  public void setOrder(String order) {
+    this.order = order;
+  }
+
+  public String getFamily() {
+    return family;
+  }
+
+  public void setFamily(String family) {
+    this.family = family;
+  }
+
+  public String getGenus() {
+    return genus;
+  }
+
+  public void setGenus(String genus) {
+    this.genus = genus;
+  }
+
+  public String getSubgenus() {
+    return subgenus;
+  }
+
+  public void setSubgenus(String subgenus) {
+    this.subgenus = subgenus;
+  }
+
+  /**
+   * @return the parsed rank or null if no or an unknown rank was given
+   */
+  @JsonIgnore
+  @Nullable
+  public Rank parsedRank() {
+    if (!Strings.isNullOrEmpty(rank)) {
+      try {
+        return VocabularyUtils.lookupEnum(rank, Rank.class);
+      } catch (IllegalArgumentException e) {
+        // we expect badly formed ranks and ignore them
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return a new classification instance populated with the higher taxa of this query
+   */
+  @JsonIgnore
+  public LinneanClassification classification() {
+    LinneanClassification cl = new NameUsageMatch();
+    cl.setKingdom(kingdom);
+    cl.setPhylum(phylum);
+    cl.setClazz(clazz);
+    cl.setOrder(order);
+    cl.setFamily(family);
+    cl.setGenus(genus);
+    cl.setSubgenus(subgenus);
+    return cl;
+  }
+}
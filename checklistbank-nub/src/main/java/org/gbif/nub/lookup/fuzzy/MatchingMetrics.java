@@ -0,0 +1,127 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.yammer.metrics.Counter;
+import com.yammer.metrics.Gauge;
+import com.yammer.metrics.Histogram;
+import com.yammer.metrics.MetricRegistry;
+import com.yammer.metrics.Timer;
+
+/**
+ * Metrics of the nub matching service: overall match latency, the confidence distribution of matches,
+ * the number of matches per match type and the number of index lookups per matching mode.
+ * Index lookups are counted per mode, so the higher counter shows how often the higher rank fallback fires.
+ * Matches served from the result cache are included in the latency, confidence and type metrics and also counted separately.
+ * The hit rates of the author comparison caches are exposed as gauges.
+ */
+public class MatchingMetrics {
+  public static final String REGISTRY_NAME = "nub-matching";
+  public static final String LATENCY = "match.latency";
+  public static final String CONFIDENCE = "match.confidence";
+  public static final String TYPE_PREFIX = "match.type.";
+  public static final String MODE_PREFIX = "match.mode.";
+  public static final String CACHE_HITS = "match.cache.hits";
+  public static final String AUTHOR_NORM_HITRATE = "author.normalized.hitRate";
+  public static final String AUTHOR_PAIR_HITRATE = "author.pairs.hitRate";
+  public static final String AUTHOR_CACHE_SIZE = "author.cache.size";
+
+  private final MetricRegistry registry;
+  private final Timer latency;
+  private final Histogram confidence;
+  private final Counter cacheHits;
+  private final Map<NameUsageMatch.MatchType, Counter> types = new EnumMap<NameUsageMatch.MatchType, Counter>(NameUsageMatch.MatchType.class);
+  private final Map<NubMatchingServiceImpl.MatchingMode, Counter> modes =
+      new EnumMap<NubMatchingServiceImpl.MatchingMode, Counter>(NubMatchingServiceImpl.MatchingMode.class);
+
+  /**
+   * Creates metrics kept in a new, unshared registry.
+   */
+  public MatchingMetrics() {
+    this(new MetricRegistry(REGISTRY_NAME));
+  }
+
+  public MatchingMetrics(MetricRegistry registry) {
+    this.registry = registry;
+    latency = registry.timer(LATENCY);
+    confidence = registry.histogram(CONFIDENCE);
+    cacheHits = registry.counter(CACHE_HITS);
+    for (NameUsageMatch.MatchType t : NameUsageMatch.MatchType.values()) {
+      types.put(t, registry.counter(TYPE_PREFIX + t.name().toLowerCase()));
+    }
+    for (NubMatchingServiceImpl.MatchingMode m : NubMatchingServiceImpl.MatchingMode.values()) {
+      modes.put(m, registry.counter(MODE_PREFIX + m.name().toLowerCase()));
+    }
+  }
+
+  public MetricRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Publishes the hit rates and size of the author comparator caches, replacing gauges of any previous comparator.
+   */
+  void authorCaches(final AuthorComparator authComp) {
+    register(AUTHOR_NORM_HITRATE, new Gauge<Double>() {
+      @Override
+      public Double getValue() {
+        return authComp.normalizedCacheStats().hitRate();
+      }
+    });
+    register(AUTHOR_PAIR_HITRATE, new Gauge<Double>() {
+      @Override
+      public Double getValue() {
+        return authComp.pairCacheStats().hitRate();
+      }
+    });
+    register(AUTHOR_CACHE_SIZE, new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return authComp.cacheSize();
+      }
+    });
+  }
+
+  private void register(String name, Gauge<?> gauge) {
+    registry.remove(name);
+    registry.register(name, gauge);
+  }
+
+  /**
+   * Starts timing a single match request.
+   */
+  Timer.Context time() {
+    return latency.time();
+  }
+
+  /**
+   * Records the final result of a match request.
+   */
+  void matched(NameUsageMatch match) {
+    if (match.getMatchType() != null) {
+      types.get(match.getMatchType()).inc();
+    }
+    if (match.getConfidence() != null) {
+      confidence.update(match.getConfidence());
+    }
+  }
+
+  /**
+   * Records a match served from the result cache.
+   */
+  void cacheHit(NameUsageMatch match) {
+    cacheHits.inc();
+    matched(match);
+  }
+
+  /**
+   * Records a single index lookup with the given matching mode.
+   */
+  void queried(NubMatchingServiceImpl.MatchingMode mode) {
+    modes.get(mode).inc();
+  }
+}
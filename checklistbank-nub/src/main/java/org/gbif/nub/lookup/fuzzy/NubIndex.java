@@ -8,6 +8,7 @@ import org.gbif.api.model.common.LinneanClassificationKeys;
 import org.gbif.api.util.ClassificationUtils;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
 import org.gbif.nameparser.NameParser;
 
@@ -16,8 +17,10 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
@@ -32,11 +35,17 @@ import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
@@ -46,6 +55,8 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +72,11 @@ import org.slf4j.LoggerFactory;
  * For the entire nub with roughly 4.5 million usages this index requires 4GB of heap memory if the RAMDirectory is used.
  * The memory mapped file index uses very little heap memory and instead all available memory should be given to the OS
  * to enabling caching on the file system level.
+ *
+ * Lucene is only used to find matching document ids. The usage data of each hit is read from an off-heap
+ * {@link NubUsageTable} which is populated once when the index is opened.
+ * Fuzzy searches find similar names in a precomputed {@link FuzzyNameIndex} instead of building a lucene automaton
+ * for every query.
  */
 public class NubIndex implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(NubIndex.class);
@@ -104,9 +120,73 @@ public class NubIndex implements AutoCloseable {
     .build();
 
   private static final Analyzer analyzer = new ScientificNameAnalyzer();
+  // max number of similar names to search for in fuzzy queries, same as the lucene FuzzyQuery default
+  private static final int MAX_FUZZY_EXPANSIONS = 50;
   private static final NameParser parser = new NameParser();
-  private final Directory index;
-  private final IndexSearcher searcher;
+  // suffixes of the sibling directories used while replacing a file index
+  private static final String NEW_SUFFIX = ".new";
+  private static final String OLD_SUFFIX = ".old";
+  // the filesystem location of the index or null for memory based indices
+  private final File indexDir;
+  private volatile IndexState state;
+  private volatile boolean closed = false;
+
+  /**
+   * An opened index with its searcher and usage table.
+   * The directory is closed automatically once the reader was closed, i.e. its reference count reaches zero.
+   */
+  private static class IndexState {
+    private final DirectoryReader reader;
+    private final IndexSearcher searcher;
+    private final NubUsageTable usages;
+    private final FuzzyNameIndex fuzzy;
+
+    IndexState(final Directory dir) throws IOException {
+      reader = DirectoryReader.open(dir);
+      searcher = new IndexSearcher(reader);
+      usages = loadUsageTable(reader);
+      fuzzy = loadFuzzyIndex(reader);
+      reader.addReaderClosedListener(new IndexReader.ReaderClosedListener() {
+        @Override
+        public void onClose(IndexReader r) {
+          try {
+            dir.close();
+            LOG.info("Closed nub index directory {}", dir);
+          } catch (IOException e) {
+            LOG.error("Failed to close nub index directory {}", dir, e);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Populates an empty index directory with all backbone usages.
+   */
+  private interface IndexLoader {
+    void load(Directory d) throws IOException;
+  }
+
+  private static IndexLoader loader(final NameUsageMapper mapper) {
+    return new IndexLoader() {
+      @Override
+      public void load(Directory d) throws IOException {
+        NubIndex.load(d, mapper);
+      }
+    };
+  }
+
+  /**
+   * Loader streaming the backbone from postgres with a COPY command and building documents in parallel.
+   */
+  private static IndexLoader loader(final ClbConfiguration clb, final int threads) {
+    return new IndexLoader() {
+      @Override
+      public void load(Directory d) throws IOException {
+        new ParallelIndexBuilder(clb, threads).build(d, analyzer);
+      }
+    };
+  }
 
   private static void load(Directory d, NameUsageMapper mapper) throws IOException {
     LOG.info("Start building a new nub index");
@@ -154,7 +234,37 @@ public class NubIndex implements AutoCloseable {
    * @param indexDir directory to use as the lucence index directory. If null the index is only kept in memory.
    */
   public static NubIndex newFileIndex(File indexDir, NameUsageMapper mapper) throws IOException {
+    return newFileIndex(indexDir, loader(mapper));
+  }
+
+  /**
+   * Creates a file based nub index like {@link #newFileIndex(File, NameUsageMapper)}, but builds a missing index
+   * by streaming the backbone from postgres and creating documents with several threads in parallel.
+   * @param threads number of threads to parse names and create index documents with
+   */
+  public static NubIndex newFileIndex(File indexDir, ClbConfiguration clb, int threads) throws IOException {
+    return newFileIndex(indexDir, loader(clb, threads));
+  }
+
+  /**
+   * Opens an existing file based nub index without any database access, e.g. for offline matching.
+   * The index cannot be reloaded from the backbone.
+   * @param indexDir existing lucene index directory
+   */
+  public static NubIndex openFileIndex(File indexDir) throws IOException {
+    Preconditions.checkArgument(indexDir.isDirectory(), "Nub index directory not existing: " + indexDir.getAbsolutePath());
+    LOG.info("Loading existing nub index from disk: {}", indexDir.getAbsoluteFile());
+    return new NubIndex(new MMapDirectory(indexDir.toPath()));
+  }
+
+  private static NubIndex newFileIndex(File indexDir, IndexLoader loader) throws IOException {
     MMapDirectory dir;
+    File oldDir = siblingDir(indexDir, OLD_SUFFIX);
+    if (!indexDir.exists() && oldDir.isDirectory()) {
+      // a reload was interrupted while replacing the index directory
+      LOG.warn("Restoring previous nub index from {}", oldDir);
+      rename(oldDir, indexDir);
+    }
     if (indexDir.exists()) {
       Preconditions.checkArgument(indexDir.isDirectory(), "Given index directory exists but is not a directory");
       // load existing index from disk
@@ -166,15 +276,191 @@ public class NubIndex implements AutoCloseable {
       LOG.info("Creating new nub index directory at {}", indexDir.getAbsoluteFile());
       FileUtils.forceMkdir(indexDir);
       dir = new MMapDirectory(indexDir.toPath());
-      load(dir, mapper);
+      loader.load(dir);
     }
-    return new NubIndex(dir);
+    return new NubIndex(dir, indexDir.getAbsoluteFile());
   }
 
   public NubIndex(Directory d) throws IOException {
-    index = d;
-    DirectoryReader reader= DirectoryReader.open(index);
-    searcher = new IndexSearcher(reader);
+    this(d, null);
+  }
+
+  private NubIndex(Directory d, @Nullable File indexDir) throws IOException {
+    this.indexDir = indexDir;
+    state = new IndexState(d);
+  }
+
+  /**
+   * Rebuilds the entire index from the backbone in the background while the current index keeps serving searches.
+   * The new index is warmed before it atomically replaces the current one.
+   * The old index is closed as soon as all searches still running on it have finished.
+   *
+   * File based indices are built in a sibling directory which replaces the original index directory
+   * once the new index is in use, so the latest index is reused after a restart.
+   */
+  public void reload(NameUsageMapper mapper) throws IOException {
+    reload(loader(mapper));
+  }
+
+  /**
+   * Rebuilds the entire index like {@link #reload(NameUsageMapper)}, but streams the backbone from postgres
+   * and creates documents with several threads in parallel.
+   * @param threads number of threads to parse names and create index documents with
+   */
+  public void reload(ClbConfiguration clb, int threads) throws IOException {
+    reload(loader(clb, threads));
+  }
+
+  private synchronized void reload(IndexLoader loader) throws IOException {
+    Preconditions.checkState(!closed, "Nub index is closed");
+    Directory dir;
+    File newDir = null;
+    if (indexDir == null) {
+      LOG.info("Reloading nub memory index");
+      dir = new RAMDirectory();
+    } else {
+      newDir = siblingDir(indexDir, NEW_SUFFIX);
+      LOG.info("Reloading nub index into new directory {}", newDir);
+      FileUtils.deleteQuietly(newDir);
+      FileUtils.forceMkdir(newDir);
+      dir = new MMapDirectory(newDir.toPath());
+    }
+
+    IndexState newState;
+    try {
+      loader.load(dir);
+      newState = new IndexState(dir);
+      warm(newState);
+    } catch (IOException | RuntimeException e) {
+      dir.close();
+      FileUtils.deleteQuietly(newDir);
+      throw e;
+    }
+
+    if (newDir != null) {
+      // the new reader has opened all its files already, so we can safely move the directory on POSIX filesystems
+      try {
+        replaceIndexDir(newDir);
+      } catch (IOException e) {
+        newState.reader.decRef();
+        FileUtils.deleteQuietly(newDir);
+        throw e;
+      }
+    }
+
+    // swap and release the old index
+    IndexState old = state;
+    state = newState;
+    old.reader.decRef();
+    LOG.info("Swapped nub index with {} documents", newState.reader.numDocs());
+  }
+
+  private static File siblingDir(File dir, String suffix) {
+    return new File(dir.getParentFile(), dir.getName() + suffix);
+  }
+
+  /**
+   * Moves the new index directory into place, keeping the existing index directory until the new one has been moved.
+   * An interrupted replacement leaves the previous index in a .old directory which is restored on the next startup.
+   */
+  private void replaceIndexDir(File newDir) throws IOException {
+    File oldDir = siblingDir(indexDir, OLD_SUFFIX);
+    FileUtils.deleteQuietly(oldDir);
+    rename(indexDir, oldDir);
+    try {
+      rename(newDir, indexDir);
+    } catch (IOException e) {
+      rename(oldDir, indexDir);
+      throw e;
+    }
+    FileUtils.deleteQuietly(oldDir);
+  }
+
+  private static void rename(File from, File to) throws IOException {
+    if (!from.renameTo(to)) {
+      throw new IOException("Failed to rename nub index directory " + from + " to " + to);
+    }
+  }
+
+  /**
+   * Warms up a newly opened index by running straight and fuzzy searches for a sample of canonical names.
+   */
+  private static void warm(IndexState s) {
+    final int step = Math.max(1, s.usages.size() / 1000);
+    int counter = 0;
+    for (int row = 0; row < s.usages.size(); row += step) {
+      NameUsageMatch u = s.usages.get(row);
+      if (u != null && u.getCanonicalName() != null) {
+        String analyzedName = analyze(u.getCanonicalName());
+        if (analyzedName.length() > 1) {
+          search(s, new TermQuery(new Term(FIELD_CANONICAL_NAME, analyzedName)), analyzedName, false, 10);
+          search(s, buildFuzzyQuery(s, analyzedName), analyzedName, true, 10);
+          counter++;
+        }
+      }
+    }
+    LOG.info("Warmed nub index with {} names", counter);
+  }
+
+  /**
+   * Acquires a reference to the current index which must be released after use.
+   */
+  private IndexState acquire() {
+    while (true) {
+      Preconditions.checkState(!closed, "Nub index is closed");
+      IndexState s = state;
+      // fails if the reader has been closed already after a reload, try again with the new state
+      if (s.reader.tryIncRef()) {
+        return s;
+      }
+    }
+  }
+
+  private static void release(IndexState s) {
+    try {
+      s.reader.decRef();
+    } catch (IOException e) {
+      LOG.error("Failed to release nub index reader", e);
+    }
+  }
+
+  /**
+   * Reads the stored fields of all documents once into an off-heap usage table indexed by the lucene doc id.
+   * The index is never modified after it was opened so doc ids are stable for the lifetime of the reader.
+   */
+  private static NubUsageTable loadUsageTable(IndexReader reader) throws IOException {
+    LOG.info("Loading usage table for {} nub index documents", reader.maxDoc());
+    NubUsageTable.Builder builder = new NubUsageTable.Builder(reader.maxDoc());
+    Bits liveDocs = MultiFields.getLiveDocs(reader);
+    for (int docId = 0; docId < reader.maxDoc(); docId++) {
+      if (liveDocs == null || liveDocs.get(docId)) {
+        builder.set(docId, fromDoc(reader.document(docId)));
+      }
+    }
+    NubUsageTable table = builder.build();
+    LOG.info("Usage table loaded");
+    return table;
+  }
+
+  /**
+   * Builds the fuzzy lookup structure over all distinct analyzed canonical names of the index.
+   */
+  private static FuzzyNameIndex loadFuzzyIndex(IndexReader reader) throws IOException {
+    final Terms terms = MultiFields.getTerms(reader, FIELD_CANONICAL_NAME);
+    final TermsEnum termsEnum = terms == null ? TermsEnum.EMPTY : terms.iterator();
+    FuzzyNameIndex fuzzy = FuzzyNameIndex.build(new AbstractIterator<String>() {
+      @Override
+      protected String computeNext() {
+        try {
+          BytesRef term = termsEnum.next();
+          return term == null ? endOfData() : term.utf8ToString();
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to read nub index terms", e);
+        }
+      }
+    });
+    LOG.info("Fuzzy name index loaded with {} distinct canonical names", fuzzy.size());
+    return fuzzy;
   }
 
 
@@ -182,12 +468,11 @@ public class NubIndex implements AutoCloseable {
 
     Query q = NumericRangeQuery.newIntRange(NubIndex.FIELD_ID, Integer.MAX_VALUE, usageID, usageID, true, true);
 
+    IndexState s = acquire();
     try {
-      IndexSearcher searcher = obtainSearcher();
-      TopDocs docs = searcher.search(q, 3);
+      TopDocs docs = s.searcher.search(q, 3);
       if (docs.totalHits > 0) {
-        Document doc = searcher.doc(docs.scoreDocs[0].doc);
-        NameUsageMatch match = fromDoc(doc);
+        NameUsageMatch match = s.usages.get(docs.scoreDocs[0].doc);
         match.setConfidence(100);
         return match;
 
@@ -196,14 +481,17 @@ public class NubIndex implements AutoCloseable {
       }
     } catch (IOException e) {
       LOG.error("Cannot load usage {} from lucene index", usageID, e.getMessage());
+    } finally {
+      release(s);
     }
 
     return null;
   }
 
-  public List<NameUsageMatch> matchByName(String name, boolean fuzzySearch, int maxMatches) {
-
-    // use lucene analyzer to normalize input without using the full query parser
+  /**
+   * Uses the lucene analyzer to normalize input without using the full query parser.
+   */
+  private static String analyze(String name) {
     StringBuilder sb = new StringBuilder();
     try (TokenStream stream = analyzer.tokenStream(NubIndex.FIELD_CANONICAL_NAME, new StringReader(name))) {
       CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
@@ -215,42 +503,56 @@ public class NubIndex implements AutoCloseable {
     } catch (IOException e) {
       LOG.error("An impossible error happened", e);
     }
+    return sb.toString();
+  }
 
-    LOG.debug("Analyzed {} query \"{}\" becomes >>{}<<", fuzzySearch ? "fuzzy" : "straight", name, sb.toString());
-
-    // query needs to have at least 2 letters to match a real name
-    if (sb.length() < 2) {
-      return Lists.newArrayList();
+  /**
+   * Builds a query for all indexed names within 1 edit, or 2 edits for names longer than 10 chars,
+   * sharing the first character with the given name.
+   * Like a lucene FuzzyQuery the closest 50 names are used and scored by their edit distance.
+   */
+  private static Query buildFuzzyQuery(IndexState s, String analyzedName) {
+    List<FuzzyNameIndex.Match> matches = s.fuzzy.lookup(analyzedName, analyzedName.length() > 10 ? 2 : 1);
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (FuzzyNameIndex.Match m : matches.subList(0, Math.min(matches.size(), MAX_FUZZY_EXPANSIONS))) {
+      Query q = new ConstantScoreQuery(new TermQuery(new Term(FIELD_CANONICAL_NAME, m.name)));
+      q.setBoost(1f - (float) m.edits / Math.min(analyzedName.length(), m.name.length()));
+      builder.add(q, BooleanClause.Occur.SHOULD);
     }
+    return builder.build();
+  }
+
+  public List<NameUsageMatch> matchByName(String name, boolean fuzzySearch, int maxMatches) {
 
+    final String analyzedName = analyze(name);
+    LOG.debug("Analyzed {} query \"{}\" becomes >>{}<<", fuzzySearch ? "fuzzy" : "straight", name, analyzedName);
 
-    final String analyzedName = sb.toString();
-    Term t = new Term(NubIndex.FIELD_CANONICAL_NAME, analyzedName);
-    Query q;
-    if (fuzzySearch) {
-      // allow 2 edits for names longer than 10 chars
-      q = new FuzzyQuery(t, analyzedName.length() > 10 ? 2 : 1, 1);
-    } else {
-      q = new TermQuery(t);
+    // query needs to have at least 2 letters to match a real name
+    if (analyzedName.length() < 2) {
+      return Lists.newArrayList();
     }
 
+    IndexState s = acquire();
     try {
-      return search(q, name, fuzzySearch, maxMatches);
-    } catch (RuntimeException e) {
-      // for example TooComplexToDeterminizeException, see http://dev.gbif.org/issues/browse/POR-2725
-      LOG.warn("Lucene failed to fuzzy search for name [{}]. Try a straight match instead", name);
-      return search(new TermQuery(t), name, false, maxMatches);
+      Query q;
+      if (fuzzySearch) {
+        q = buildFuzzyQuery(s, analyzedName);
+      } else {
+        q = new TermQuery(new Term(NubIndex.FIELD_CANONICAL_NAME, analyzedName));
+      }
+      return search(s, q, name, fuzzySearch, maxMatches);
+    } finally {
+      release(s);
     }
   }
 
-  private List<NameUsageMatch> search(Query q, String name, boolean fuzzySearch, int maxMatches) {
+  private static List<NameUsageMatch> search(IndexState s, Query q, String name, boolean fuzzySearch, int maxMatches) {
     List<NameUsageMatch> results = Lists.newArrayList();
     try {
-      IndexSearcher searcher = obtainSearcher();
-      TopDocs docs = searcher.search(q, maxMatches);
+      TopDocs docs = s.searcher.search(q, maxMatches);
       if (docs.totalHits > 0) {
         for (ScoreDoc sdoc : docs.scoreDocs) {
-          NameUsageMatch match = fromDoc(searcher.doc(sdoc.doc));
+          NameUsageMatch match = s.usages.get(sdoc.doc);
           if (name.equalsIgnoreCase(match.getCanonicalName())) {
             match.setMatchType(NameUsageMatch.MatchType.EXACT);
             results.add(match);
@@ -272,13 +574,10 @@ public class NubIndex implements AutoCloseable {
     return results;
   }
 
-  private IndexSearcher obtainSearcher() {
-    return searcher;
-  }
-
   /**
    * Builds a NameUsageMatch instance from a lucene Document and populates all fields but the matching specifics
    * i.e. confidence and matchType.
+   * Only used to populate the usage table when the index is opened, searches use the table instead.
    */
   private static NameUsageMatch fromDoc(Document doc) {
     NameUsageMatch u = new NameUsageMatch();
@@ -300,18 +599,25 @@ public class NubIndex implements AutoCloseable {
   }
 
   protected static Document toDoc(NameUsage u) {
-    return toDoc(u.getKey(), u.getScientificName(), u.getTaxonomicStatus(), u.getRank(), u, u);
+    return toDoc(u.getKey(), u.getScientificName(), u.getTaxonomicStatus(), u.getRank(), u, u, parser);
   }
 
   private static Document toDoc(NameUsageMatch u) {
-    return toDoc(u.getUsageKey(), u.getScientificName(), u.getStatus(), u.getRank(), u, u);
+    return toDoc(u, parser);
+  }
+
+  /**
+   * @param parser the name parser to use, allowing concurrent threads to use their own parser instance
+   */
+  static Document toDoc(NameUsageMatch u, NameParser parser) {
+    return toDoc(u.getUsageKey(), u.getScientificName(), u.getStatus(), u.getRank(), u, u, parser);
   }
 
   /**
    * @param status any status incl null. Will be converted to just 3 accepted, synonym & doubtful
    */
   private static Document toDoc(int key, String sciname, TaxonomicStatus status, Rank rank,
-    LinneanClassification cl, LinneanClassificationKeys clKeys) {
+    LinneanClassification cl, LinneanClassificationKeys clKeys, NameParser parser) {
 
     Document doc = new Document();
     String canonical = parser.parseToCanonicalOrScientificName(sciname, rank);
@@ -378,7 +684,11 @@ public class NubIndex implements AutoCloseable {
   }
 
   @Override
-  public void close() throws Exception {
-    index.close();
+  public synchronized void close() throws Exception {
+    if (!closed) {
+      closed = true;
+      // closes the directory once all running searches have finished
+      state.reader.decRef();
+    }
   }
 }
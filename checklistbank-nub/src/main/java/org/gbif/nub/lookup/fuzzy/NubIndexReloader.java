@@ -0,0 +1,105 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+import org.gbif.checklistbank.utils.ExecutorUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rebuilds the nub index in a background thread after the backbone has changed, without interrupting
+ * the matching service. Only one reload can run at any time.
+ */
+public class NubIndexReloader implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(NubIndexReloader.class);
+  private static final String NAME = "nub-index-reloader";
+
+  private final NubIndex index;
+  private final NameUsageMapper mapper;
+  private final ClbConfiguration clb;
+  private final int threads;
+  private final CachedMatchingService cache;
+  private final ExecutorService exec = Executors.newSingleThreadExecutor(new NamedThreadFactory(NAME));
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  /**
+   * @param cache optional match cache to be invalidated after the index was swapped
+   */
+  public NubIndexReloader(NubIndex index, NameUsageMapper mapper, @Nullable CachedMatchingService cache) {
+    this.index = index;
+    this.mapper = mapper;
+    this.clb = null;
+    this.threads = 0;
+    this.cache = cache;
+  }
+
+  /**
+   * Reloader that streams the backbone from postgres and builds the new index with several threads.
+   * @param threads number of threads to parse names and create index documents with
+   * @param cache optional match cache to be invalidated after the index was swapped
+   */
+  public NubIndexReloader(NubIndex index, ClbConfiguration clb, int threads, @Nullable CachedMatchingService cache) {
+    this.index = index;
+    this.mapper = null;
+    this.clb = clb;
+    this.threads = threads;
+    this.cache = cache;
+  }
+
+  /**
+   * Starts a new background reload of the nub index unless one is already running.
+   * @return true if a new reload was started
+   */
+  public boolean reload() {
+    if (!running.compareAndSet(false, true)) {
+      LOG.info("Nub index reload already running");
+      return false;
+    }
+    exec.submit(new Runnable() {
+      @Override
+      public void run() {
+        StopWatch watch = new StopWatch();
+        watch.start();
+        try {
+          if (clb == null) {
+            index.reload(mapper);
+          } else {
+            index.reload(clb, threads);
+          }
+          if (cache != null) {
+            cache.invalidate();
+          }
+          LOG.info("Nub index reloaded in {}", watch);
+        } catch (Exception e) {
+          LOG.error("Failed to reload nub index, keep using the existing one", e);
+        } finally {
+          running.set(false);
+        }
+      }
+    });
+    return true;
+  }
+
+  /**
+   * @return true if a reload is currently running
+   */
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    ExecutorUtils.stop(exec, NAME, 1, TimeUnit.MINUTES);
+  }
+}
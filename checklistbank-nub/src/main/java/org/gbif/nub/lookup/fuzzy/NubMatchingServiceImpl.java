@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
@@ -36,8 +37,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.inject.Inject;
+import com.yammer.metrics.Timer;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,7 +48,9 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
   private static final int MIN_CONFIDENCE = 80;
   private static final int MIN_CONFIDENCE_FOR_HIGHER_MATCHES = 90;
   private static final Set<Kingdom> VAGUE_KINGDOMS = ImmutableSet.of(Kingdom.ARCHAEA, Kingdom.BACTERIA, Kingdom.FUNGI, Kingdom.CHROMISTA, Kingdom.PROTOZOA, Kingdom.INCERTAE_SEDIS);
-  private static ConfidenceOrder CONFIDENCE_ORDER = new ConfidenceOrder();
+  // static arrays to avoid varargs allocations
+  private static final Kingdom[] ANIMALIA_PLANTAE = new Kingdom[]{Kingdom.ANIMALIA, Kingdom.PLANTAE};
+  private static final Kingdom[] VIRUSES = new Kingdom[]{Kingdom.VIRUSES};
   private final NubIndex nubIndex;
   private final HigherTaxaComparator htComp;
   private final NameParser parser;
@@ -59,6 +62,13 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
   private static final List<Rank> HIGHER_QUERY_RANK = ImmutableList.of(Rank.FAMILY, Rank.ORDER, Rank.CLASS, Rank.PHYLUM, Rank.KINGDOM);
   public static final Map<TaxonomicStatus, Integer> STATUS_SCORE =
     ImmutableMap.of(TaxonomicStatus.ACCEPTED, 1, TaxonomicStatus.DOUBTFUL, -5, TaxonomicStatus.SYNONYM, 0);
+  // STATUS_SCORE by status ordinal
+  private static final int[] STATUS_SCORES = new int[TaxonomicStatus.values().length];
+  static {
+    for (Map.Entry<TaxonomicStatus, Integer> e : STATUS_SCORE.entrySet()) {
+      STATUS_SCORES[e.getKey().ordinal()] = e.getValue();
+    }
+  }
   // match order by usageKey lowest to highest to preserve old ids
   private static final Ordering<NameUsageMatch> USAGE_KEY_ORDER = Ordering.natural().nullsLast().onResultOf(new Function<NameUsageMatch, Integer>() {
     @Nullable
@@ -76,20 +86,52 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
   }
 
   private final AuthorComparator authComp;
+  private final MatchingMetrics metrics;
 
   protected enum MatchingMode {FUZZY, STRICT, HIGHER};
 
+  /**
+   * Reusable per thread state for scoring candidates.
+   */
+  private static class Scratch {
+    private int[] scores = new int[64];
+    private NameUsageMatch[] matches = new NameUsageMatch[64];
+
+    void ensureCapacity(int size) {
+      if (scores.length < size) {
+        scores = new int[size];
+        matches = new NameUsageMatch[size];
+      }
+    }
+  }
+
+  private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+    @Override
+    protected Scratch initialValue() {
+      return new Scratch();
+    }
+  };
+
   /**
    * @param nubIndex
    * @param htComp
    * @param parser
    */
-  @Inject
   public NubMatchingServiceImpl(NubIndex nubIndex, HigherTaxaComparator htComp, NameParser parser) {
+    this(nubIndex, htComp, parser, new MatchingMetrics());
+  }
+
+  /**
+   * @param metrics the metrics to record match latency, confidence and match types in
+   */
+  @Inject
+  public NubMatchingServiceImpl(NubIndex nubIndex, HigherTaxaComparator htComp, NameParser parser, MatchingMetrics metrics) {
     this.nubIndex = nubIndex;
     this.htComp = htComp;
     this.parser = parser;
+    this.metrics = metrics;
     authComp = AuthorComparator.createWithAuthormap();
+    metrics.authorCaches(authComp);
     initHackMap();
   }
 
@@ -132,15 +174,16 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
     match.setAlternatives(alts);
   }
 
-  // Wrapper method doing the time tracking and logging only.
+  // Wrapper method doing the time tracking, metrics and logging only.
   @Override
   public NameUsageMatch match(String scientificName, @Nullable Rank rank, @Nullable LinneanClassification classification, boolean strict, boolean verbose) {
-    StopWatch watch = new StopWatch();
-    watch.start();
+    final Timer.Context context = metrics.time();
 
     NameUsageMatch match = matchInternal(scientificName, rank, classification, strict, verbose);
 
-    LOG.debug("{} Match of scientific name >{}< to {} [{}] in {}", match.getMatchType(), scientificName, match.getUsageKey(), match.getScientificName(), watch.toString());
+    final long nanos = context.stop();
+    metrics.matched(match);
+    LOG.debug("{} Match of scientific name >{}< to {} [{}] in {}ms", match.getMatchType(), scientificName, match.getUsageKey(), match.getScientificName(), TimeUnit.NANOSECONDS.toMillis(nanos));
     return match;
   }
 
@@ -260,92 +303,142 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
     }
   }
 
-  private List<NameUsageMatch> queryFuzzy(ParsedName pn, String canonicalName, Rank rank, LinneanClassification lc, boolean verbose) {
-    // do a lucene matching
-    List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, true, 50);
-    for (NameUsageMatch m : matches) {
+  /**
+   * Scores all candidates with the thread local scratch state and orders them by their score.
+   * Apart from verbose notes and authorship comparisons no objects are allocated per candidate.
+   *
+   * @return the scores of the ordered candidates, only valid until the next call within the same thread
+   */
+  @VisibleForTesting
+  protected int[] score(@Nullable ParsedName pn, String canonicalName, @Nullable Rank rank, LinneanClassification lc,
+                        MatchingMode mode, List<NameUsageMatch> matches, boolean verbose) {
+    final int size = matches.size();
+    final Scratch scratch = SCRATCH.get();
+    scratch.ensureCapacity(size);
+    final int[] scores = scratch.scores;
+    // things that only depend on the query are evaluated once
+    final boolean compareAuthors = mode != MatchingMode.HIGHER && hasAuthorship(pn);
+    final boolean queryAnimalOrPlant = mode != MatchingMode.STRICT && htComp.isInKingdoms(lc, ANIMALIA_PLANTAE);
+    final Kingdom queryKingdom = mode == MatchingMode.STRICT ? htComp.toKingdom(lc.getKingdom()) : null;
+
+    for (int idx = 0; idx < size; idx++) {
+      NameUsageMatch m = matches.get(idx);
       // 0 - +100
       final int nameSimilarity = nameSimilarity(canonicalName, m);
-      // -28 - +40
-      final int authorSimilarity = incNegScore(authorSimilarity(pn, m)*2, 2);
-      // -50 - +50
-      final int classificationSimilarity = classificationSimilarity(lc, m);
-      // -10 - +5
-      final int rankSimilarity = rankSimilarity(rank, m.getRank());
       // -5 - +1
-      final int statusScore = STATUS_SCORE.get(m.getStatus());
-
+      final int statusScore = statusScore(m.getStatus());
+      if (verbose) {
+        addNote(m, "Similarity: name=" + nameSimilarity);
+      }
       // preliminary total score, -5 - 20 distance to next best match coming below!
-      m.setConfidence(nameSimilarity + authorSimilarity + classificationSimilarity + rankSimilarity + statusScore);
+      int score;
+      switch (mode) {
+        case STRICT:
+          // -28 - +40
+          final int strictAuthorSimilarity = compareAuthors ? incNegScore(authorSimilarity(pn, m) * 4, 8) : 0;
+          // -50 - +50
+          final int kingdomSimilarity = incNegScore(kingdomSimilarity(queryKingdom, htComp.toKingdom(m.getKingdom())), 10);
+          // -10 - +5
+          final int strictRankSimilarity = incNegScore(rankSimilarity(rank, m.getRank()), 10);
+          score = nameSimilarity + strictAuthorSimilarity + kingdomSimilarity + strictRankSimilarity + statusScore;
+          if (verbose) {
+            addNote(m, "authorship=" + strictAuthorSimilarity);
+            addNote(m, "kingdom=" + kingdomSimilarity);
+            addNote(m, "rank=" + strictRankSimilarity);
+          }
+          break;
+
+        case HIGHER:
+          // -50 - +50
+          final int higherClassificationSimilarity = classificationSimilarity(lc, queryAnimalOrPlant, m);
+          // -10 - +5
+          final int higherRankSimilarity = rankSimilarity(rank, m.getRank()) * 2;
+          score = nameSimilarity + higherClassificationSimilarity + higherRankSimilarity + statusScore;
+          if (verbose) {
+            addNote(m, "classification=" + higherClassificationSimilarity);
+            addNote(m, "rank=" + higherRankSimilarity);
+          }
+          break;
 
+        default:
+          // -28 - +40
+          final int authorSimilarity = compareAuthors ? incNegScore(authorSimilarity(pn, m) * 2, 2) : 0;
+          // -50 - +50
+          final int classificationSimilarity = classificationSimilarity(lc, queryAnimalOrPlant, m);
+          // -10 - +5
+          final int rankSimilarity = rankSimilarity(rank, m.getRank());
+          score = nameSimilarity + authorSimilarity + classificationSimilarity + rankSimilarity + statusScore;
+          if (verbose) {
+            addNote(m, "authorship=" + authorSimilarity);
+            addNote(m, "classification=" + classificationSimilarity);
+            addNote(m, "rank=" + rankSimilarity);
+          }
+      }
       if (verbose) {
-        addNote(m, "Similarity: name="+nameSimilarity);
-        addNote(m, "authorship="+authorSimilarity);
-        addNote(m, "classification="+classificationSimilarity);
-        addNote(m, "rank="+rankSimilarity);
-        addNote(m, "status="+statusScore);
+        addNote(m, "status=" + statusScore);
+        // alternatives are only exposed in verbose mode and need their preliminary confidence
+        m.setConfidence(score);
       }
+      scores[idx] = score;
     }
 
-    return matches;
+    sortByScore(matches, scratch);
+    return scores;
   }
 
-
-  private List<NameUsageMatch> queryHigher(ParsedName pn, String canonicalName, Rank rank, LinneanClassification lc, boolean verbose) {
-    // do a lucene matching
-    List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, false, 50);
-    for (NameUsageMatch m : matches) {
-      // 0 - +100
-      final int nameSimilarity = nameSimilarity(canonicalName, m);
-      // -50 - +50
-      final int classificationSimilarity = classificationSimilarity(lc, m);
-      // -10 - +5
-      final int rankSimilarity = rankSimilarity(rank, m.getRank()) * 2;
-      // -5 - +1
-      final int statusScore = STATUS_SCORE.get(m.getStatus());
-
-      // preliminary total score, -5 - 20 distance to next best match coming below!
-      m.setConfidence(nameSimilarity + classificationSimilarity + rankSimilarity + statusScore);
-
-      if (verbose) {
-        addNote(m, "Similarity: name="+nameSimilarity);
-        addNote(m, "classification="+classificationSimilarity);
-        addNote(m, "rank="+rankSimilarity);
-        addNote(m, "status="+statusScore);
+  /**
+   * Sorts the matches by descending score and their scientific name secondly, keeping the scores aligned.
+   * A simple stable insertion sort as we never deal with more than 50 candidates.
+   */
+  private static void sortByScore(List<NameUsageMatch> matches, Scratch scratch) {
+    final int size = matches.size();
+    final int[] scores = scratch.scores;
+    final NameUsageMatch[] buffer = scratch.matches;
+    for (int idx = 0; idx < size; idx++) {
+      buffer[idx] = matches.get(idx);
+    }
+    for (int i = 1; i < size; i++) {
+      final NameUsageMatch m = buffer[i];
+      final int score = scores[i];
+      int j = i - 1;
+      while (j >= 0 && compare(scores[j], buffer[j].getScientificName(), score, m.getScientificName()) > 0) {
+        scores[j + 1] = scores[j];
+        buffer[j + 1] = buffer[j];
+        j--;
       }
+      scores[j + 1] = score;
+      buffer[j + 1] = m;
+    }
+    for (int idx = 0; idx < size; idx++) {
+      matches.set(idx, buffer[idx]);
+      // dont keep references to the matches
+      buffer[idx] = null;
     }
-
-    return matches;
   }
 
-  private List<NameUsageMatch> queryStrict(ParsedName pn, String canonicalName, Rank rank, LinneanClassification lc, boolean verbose) {
-    // do a lucene matching
-    List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, false, 50);
-    for (NameUsageMatch m : matches) {
-      // 0 - +120
-      final int nameSimilarity = nameSimilarity(canonicalName, m);
-      // -28 - +40
-      final int authorSimilarity = incNegScore( authorSimilarity(pn, m)*4, 8);
-      // -50 - +50
-      final int kingdomSimilarity = incNegScore( kingdomSimilarity(htComp.toKingdom(lc.getKingdom()), htComp.toKingdom(m.getKingdom())), 10);
-      // -10 - +5
-      final int rankSimilarity = incNegScore( rankSimilarity(rank, m.getRank()), 10);
-      // -5 - +1
-      final int statusScore = STATUS_SCORE.get(m.getStatus());
-
-      // preliminary total score, -5 - 20 distance to next best match coming below!
-      m.setConfidence(nameSimilarity + authorSimilarity + kingdomSimilarity + rankSimilarity + statusScore);
-
-      if (verbose) {
-        addNote(m, "Similarity: name="+nameSimilarity);
-        addNote(m, "authorship="+authorSimilarity);
-        addNote(m, "kingdom="+kingdomSimilarity);
-        addNote(m, "rank="+rankSimilarity);
-        addNote(m, "status="+statusScore);
-      }
+  /**
+   * Same order as the {@link ConfidenceOrder}: highest score first, then by scientific name with nulls last.
+   */
+  private static int compare(int score1, @Nullable String name1, int score2, @Nullable String name2) {
+    if (score1 != score2) {
+      return score1 > score2 ? -1 : 1;
     }
+    if (name1 == null) {
+      return name2 == null ? 0 : 1;
+    }
+    return name2 == null ? -1 : name1.compareTo(name2);
+  }
 
-    return matches;
+  /**
+   * @return true if the parsed name contains any authorship or year
+   */
+  private static boolean hasAuthorship(@Nullable ParsedName pn) {
+    return pn != null && !(StringUtils.isBlank(pn.getAuthorship()) && StringUtils.isBlank(pn.getYear())
+        && StringUtils.isBlank(pn.getBracketAuthorship()) && StringUtils.isBlank(pn.getBracketYear()));
+  }
+
+  private static int statusScore(@Nullable TaxonomicStatus status) {
+    return status == null ? 0 : STATUS_SCORES[status.ordinal()];
   }
 
   private int incNegScore(int score, int factor) {
@@ -364,31 +457,21 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
     }
 
     // first try our manual hackmap
-    if (hackMap.containsKey(canonicalName.toLowerCase())) {
-      return hackMap.get(canonicalName.toLowerCase());
-    }
-
-    // do the matching
-    List<NameUsageMatch> matches = null;
-    switch (mode) {
-      case FUZZY:
-        matches = queryFuzzy(pn, canonicalName, rank, lc, verbose);
-        break;
-      case STRICT:
-        matches = queryStrict(pn, canonicalName, rank, lc, verbose);
-        break;
-      case HIGHER:
-        matches = queryHigher(pn, canonicalName, rank, lc, verbose);
-        break;
+    final String lowerName = canonicalName.toLowerCase();
+    if (hackMap.containsKey(lowerName)) {
+      return hackMap.get(lowerName);
     }
 
-    // order by confidence
-    Collections.sort(matches, CONFIDENCE_ORDER);
+    // do the lucene matching, fuzzy only in fuzzy mode
+    metrics.queried(mode);
+    List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, mode == MatchingMode.FUZZY, 50);
+    // score and order by confidence
+    final int[] scores = score(pn, canonicalName, rank, lc, mode, matches, verbose);
 
     if (matches.size() > 0) {
       // add -5 - 5 confidence based on distance to next best match
       NameUsageMatch best = matches.get(0);
-      int bestConfidence = best.getConfidence();
+      int bestConfidence = scores[0];
       int nextMatchDistance;
 
       if (matches.size() == 1) {
@@ -400,11 +483,11 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
 
       } else {
         // we have more than one match to chose from
-        int secondBestConfidence = matches.get(1).getConfidence();
+        int secondBestConfidence = scores[1];
         if (bestConfidence == secondBestConfidence) {
           // equally good matches, bummer!
           // this sometimes happens when there are "homonyms" in the nub as synonyms only
-          List<NameUsageMatch> equalMatches = extractEqualMatches(matches);
+          List<NameUsageMatch> equalMatches = extractEqualMatches(matches, scores);
           boolean sameClassification = true;
           for (NameUsageMatch m : equalMatches) {
             if (!equalClassification(best, m)) {
@@ -497,17 +580,14 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
     return true;
   }
 
-  private List<NameUsageMatch> extractEqualMatches(List<NameUsageMatch> matches) {
+  private List<NameUsageMatch> extractEqualMatches(List<NameUsageMatch> matches, int[] scores) {
     List<NameUsageMatch> equal = Lists.newArrayList();
-    if (!matches.isEmpty()) {
-      final int conf = matches.get(0).getConfidence();
-      for (NameUsageMatch m : matches){
-        if (m.getConfidence().equals(conf)) {
-          equal.add(m);
-        } else {
-          // matches are sorted by confidence!
-          break;
-        }
+    for (int idx = 0; idx < matches.size(); idx++) {
+      if (scores[idx] == scores[0]) {
+        equal.add(matches.get(idx));
+      } else {
+        // matches are sorted by confidence!
+        break;
       }
     }
     return equal;
@@ -536,7 +616,7 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
       // straight match
       confidence = 100;
       // binomial straight match? That is pretty trustworthy
-      if (canonicalName.contains(" ")) {
+      if (canonicalName.indexOf(' ') >= 0) {
         confidence += 10;
       }
 
@@ -545,10 +625,10 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
       confidence = (int) sim.getSimilarity(canonicalName, m.getCanonicalName()) - 5;
       // modify confidence according to genus comparison in bionomials.
       // slightly trust binomials with a matching genus more, and trust less if we matched a different genus name
-      int spaceIdx = m.getCanonicalName().indexOf(" ");
+      int spaceIdx = m.getCanonicalName().indexOf(' ');
       if (spaceIdx > 0) {
-        String genus = m.getCanonicalName().substring(0, spaceIdx);
-        if (canonicalName.startsWith(genus)) {
+        // does the query start with the genus of the match?
+        if (canonicalName.regionMatches(0, m.getCanonicalName(), 0, spaceIdx)) {
           confidence += 5;
         } else {
           confidence -= 10;
@@ -560,16 +640,22 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
 
   @VisibleForTesting
   protected int classificationSimilarity(LinneanClassification query, LinneanClassification reference) {
+    return classificationSimilarity(query, htComp.isInKingdoms(query, ANIMALIA_PLANTAE), reference);
+  }
+
+  /**
+   * @param queryAnimalOrPlant true if the query kingdom is Animalia or Plantae
+   */
+  private int classificationSimilarity(LinneanClassification query, boolean queryAnimalOrPlant, LinneanClassification reference) {
     // kingdom is super important
     int rate = htComp.compareHigherRank(Rank.KINGDOM, query, reference, 5, -10, -1);
     // plant and animal kingdoms are better delimited than Chromista, Fungi, etc. , so punish those mismatches higher
-    if (rate == -10 && htComp.isInKingdoms(query, Kingdom.ANIMALIA, Kingdom.PLANTAE)
-        && htComp.isInKingdoms(reference, Kingdom.ANIMALIA, Kingdom.PLANTAE)){
+    if (rate == -10 && queryAnimalOrPlant && htComp.isInKingdoms(reference, ANIMALIA_PLANTAE)){
       //TODO: decrease this to 30 once the backbone is in a better state again !!!
       rate = -51;
     }
     // we rarely ever have a virus name, punish these a little more to avoid false virus matches
-    if (htComp.isInKingdoms(reference, Kingdom.VIRUSES)) {
+    if (htComp.isInKingdoms(reference, VIRUSES)) {
       rate -= 10;
     }
     // phylum to family
@@ -675,12 +761,14 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService {
    * Ordering based on match confidence and scientific name secondly.
    */
   public static class ConfidenceOrder implements Comparator<NameUsageMatch> {
+    private static final Ordering<Integer> CONFIDENCE = Ordering.<Integer>natural().reverse().nullsLast();
+    private static final Ordering<String> NAME = Ordering.<String>natural().nullsLast();
 
     @Override
     public int compare(NameUsageMatch o1, NameUsageMatch o2) {
       return ComparisonChain.start()
-        .compare(o1.getConfidence(), o2.getConfidence(), Ordering.natural().reverse().nullsLast())
-        .compare(o1.getScientificName(), o2.getScientificName(), Ordering.natural().nullsLast())
+        .compare(o1.getConfidence(), o2.getConfidence(), CONFIDENCE)
+        .compare(o1.getScientificName(), o2.getScientificName(), NAME)
         .result();
     }
   }
@@ -0,0 +1,145 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.util.ClassificationUtils;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * A read only, columnar table of nub usages kept in off-heap memory and addressed by the lucene document id.
+ * It holds all properties of a NameUsageMatch needed by the matching service so that hits of a lucene search
+ * can be hydrated with a few buffer lookups instead of decompressing the stored document fields.
+ *
+ * All strings are kept in a single shared {@link StringDictionary}. Higher taxon names are interned,
+ * the mostly unique scientific and canonical names are appended without deduplication.
+ */
+class NubUsageTable {
+  private static final int NULL = -1;
+  private static final Rank[] HIGHER_RANKS = new Rank[]{Rank.KINGDOM, Rank.PHYLUM, Rank.CLASS, Rank.ORDER, Rank.FAMILY, Rank.GENUS, Rank.SPECIES};
+  private static final Rank[] RANKS = Rank.values();
+  private static final TaxonomicStatus[] STATUS = TaxonomicStatus.values();
+
+  private final int size;
+  private final IntBuffer keys;
+  // rank and status ordinals, 2 bytes per row
+  private final ByteBuffer enums;
+  // scientific and canonical name ids, 2 per row
+  private final IntBuffer names;
+  // higher taxon name ids and usage keys, 7 each per row
+  private final IntBuffer higherNames;
+  private final IntBuffer higherKeys;
+  private final StringDictionary dict;
+
+  private NubUsageTable(int size, IntBuffer keys, ByteBuffer enums, IntBuffer names, IntBuffer higherNames,
+                        IntBuffer higherKeys, StringDictionary dict) {
+    this.size = size;
+    this.keys = keys;
+    this.enums = enums;
+    this.names = names;
+    this.higherNames = higherNames;
+    this.higherKeys = higherKeys;
+    this.dict = dict;
+  }
+
+  /**
+   * @return number of rows in the table, i.e. the max lucene doc id + 1
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the usage key of the given row or null if the row is empty
+   */
+  @Nullable
+  public Integer key(int row) {
+    int key = keys.get(row);
+    return key == NULL ? null : key;
+  }
+
+  /**
+   * Builds a new NameUsageMatch for the given row populating all fields but the matching specifics,
+   * i.e. confidence and matchType.
+   * @return the usage or null if the row is empty
+   */
+  @Nullable
+  public NameUsageMatch get(int row) {
+    final int key = keys.get(row);
+    if (key == NULL) {
+      return null;
+    }
+    NameUsageMatch u = new NameUsageMatch();
+    u.setUsageKey(key);
+    u.setScientificName(str(names.get(row * 2)));
+    u.setCanonicalName(str(names.get(row * 2 + 1)));
+    final int hrOffset = row * HIGHER_RANKS.length;
+    for (int idx = 0; idx < HIGHER_RANKS.length; idx++) {
+      final int hrKey = higherKeys.get(hrOffset + idx);
+      ClassificationUtils.setHigherRank(u, HIGHER_RANKS[idx], str(higherNames.get(hrOffset + idx)),
+          hrKey == NULL ? null : hrKey);
+    }
+    u.setRank(RANKS[enums.get(row * 2) & 0xFF]);
+    u.setStatus(STATUS[enums.get(row * 2 + 1) & 0xFF]);
+    return u;
+  }
+
+  private String str(int id) {
+    return id == NULL ? null : dict.get(id);
+  }
+
+  /**
+   * Builder populating the table row by row. Rows not being set are considered empty.
+   */
+  static class Builder {
+    private final int size;
+    private final IntBuffer keys;
+    private final ByteBuffer enums;
+    private final IntBuffer names;
+    private final IntBuffer higherNames;
+    private final IntBuffer higherKeys;
+    private final StringDictionary.Builder dict = new StringDictionary.Builder();
+
+    Builder(int size) {
+      this.size = size;
+      keys = intBuffer(size);
+      enums = ByteBuffer.allocateDirect(Math.max(1, size * 2));
+      names = intBuffer(size * 2);
+      higherNames = intBuffer(size * HIGHER_RANKS.length);
+      higherKeys = intBuffer(size * HIGHER_RANKS.length);
+      for (int idx = 0; idx < size; idx++) {
+        keys.put(idx, NULL);
+      }
+    }
+
+    private static IntBuffer intBuffer(int size) {
+      return ByteBuffer.allocateDirect(Math.max(4, size * 4)).asIntBuffer();
+    }
+
+    void set(int row, NameUsageMatch u) {
+      keys.put(row, u.getUsageKey());
+      names.put(row * 2, add(u.getScientificName()));
+      names.put(row * 2 + 1, add(u.getCanonicalName()));
+      final int hrOffset = row * HIGHER_RANKS.length;
+      for (int idx = 0; idx < HIGHER_RANKS.length; idx++) {
+        String hr = u.getHigherRank(HIGHER_RANKS[idx]);
+        Integer hrKey = u.getHigherRankKey(HIGHER_RANKS[idx]);
+        higherNames.put(hrOffset + idx, hr == null ? NULL : dict.intern(hr));
+        higherKeys.put(hrOffset + idx, hrKey == null ? NULL : hrKey);
+      }
+      enums.put(row * 2, (byte) u.getRank().ordinal());
+      enums.put(row * 2 + 1, (byte) u.getStatus().ordinal());
+    }
+
+    private int add(String x) {
+      return x == null ? NULL : dict.add(x);
+    }
+
+    NubUsageTable build() {
+      return new NubUsageTable(size, keys, enums, names, higherNames, higherKeys, dict.build());
+    }
+  }
+}
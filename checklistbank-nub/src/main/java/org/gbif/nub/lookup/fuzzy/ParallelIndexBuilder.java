@@ -0,0 +1,264 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.util.ClassificationUtils;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.postgres.TabMapperBase;
+import org.gbif.checklistbank.utils.ExecutorUtils;
+import org.gbif.nameparser.NameParser;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a new nub index by streaming all backbone usages with a single postgres COPY command
+ * and fanning out name parsing and document creation to several worker threads.
+ * The lucene IndexWriter is shared by all workers which results in one segment per worker thread being flushed
+ * concurrently. At the end all segments are merged into a single one as the index is read only afterwards.
+ */
+public class ParallelIndexBuilder {
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelIndexBuilder.class);
+  private static final String NAME = "nub-index-builder";
+  private static final int BATCH_SIZE = 1000;
+  private static final double RAM_BUFFER_MB = 256;
+  private static final int LOG_INTERVAL = 250000;
+  // empty batch signaling workers to stop
+  private static final List<String[]> POISON = ImmutableList.of();
+  private static final Rank[] HIGHER_RANKS = new Rank[]{Rank.KINGDOM, Rank.PHYLUM, Rank.CLASS, Rank.ORDER, Rank.FAMILY, Rank.GENUS, Rank.SPECIES};
+  private static final String[] HIGHER_RANK_COLS = new String[]{"kingdom", "phylum", "class", "order", "family", "genus", "species"};
+
+  private final ClbConfiguration clb;
+  private final int threads;
+
+  /**
+   * @param threads number of worker threads parsing names and creating documents
+   */
+  public ParallelIndexBuilder(ClbConfiguration clb, int threads) {
+    Preconditions.checkArgument(threads > 0, "At least one thread needed");
+    this.clb = clb;
+    this.threads = threads;
+  }
+
+  /**
+   * Builds the select statement for all columns needed to create an index document.
+   * id, scientific_name, rank, status, then id and name for kingdom to species
+   */
+  private static String buildSql() {
+    StringBuilder select = new StringBuilder("SELECT u.id, n.scientific_name, u.rank, u.status");
+    StringBuilder from = new StringBuilder(" FROM name_usage u JOIN name n ON u.name_fk=n.id");
+    for (int idx = 0; idx < HIGHER_RANK_COLS.length; idx++) {
+      final String col = HIGHER_RANK_COLS[idx];
+      select.append(", u.").append(col).append("_fk")
+          .append(", coalesce(hn").append(idx).append(".canonical_name, hn").append(idx).append(".scientific_name)");
+      from.append(" LEFT JOIN name_usage hu").append(idx).append(" ON u.").append(col).append("_fk=hu").append(idx).append(".id")
+          .append(" LEFT JOIN name hn").append(idx).append(" ON hu").append(idx).append(".name_fk=hn").append(idx).append(".id");
+    }
+    return select.toString() + from.toString()
+        + " WHERE u.deleted IS NULL AND u.dataset_key = '" + Constants.NUB_DATASET_KEY + "'";
+  }
+
+  /**
+   * Populates an empty directory with a new nub index.
+   */
+  public void build(Directory d, Analyzer analyzer) throws IOException {
+    LOG.info("Start building a new nub index from postgres with {} threads", threads);
+    StopWatch watch = new StopWatch();
+    watch.start();
+
+    IndexWriterConfig cfg = new IndexWriterConfig(analyzer);
+    cfg.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+    // flush by RAM usage only, each indexing thread writes its own segment
+    cfg.setRAMBufferSizeMB(RAM_BUFFER_MB);
+    cfg.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    // merge less often while indexing, we force merge at the end anyway
+    TieredMergePolicy mp = new TieredMergePolicy();
+    mp.setSegmentsPerTier(30);
+    mp.setMaxMergeAtOnce(30);
+    cfg.setMergePolicy(mp);
+    IndexWriter writer = new IndexWriter(d, cfg);
+
+    BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<List<String[]>>(threads * 4);
+    ExecutorService exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory(NAME));
+    List<Future<Integer>> workers = Lists.newArrayList();
+    for (int t = 0; t < threads; t++) {
+      workers.add(exec.submit(new DocumentWorker(queue, writer)));
+    }
+
+    UsageReader reader = new UsageReader(queue);
+    boolean copied = false;
+    try (Connection c = clb.connect()) {
+      CopyManager cm = new CopyManager((BaseConnection) c);
+      cm.copyOut("COPY (" + buildSql() + ") TO STDOUT WITH NULL ''", reader);
+      reader.close();
+      copied = true;
+
+    } catch (SQLException e) {
+      throw new IOException("Failed to read nub usages from postgres", e);
+
+    } finally {
+      // stop all workers
+      try {
+        for (int t = 0; t < threads; t++) {
+          queue.put(POISON);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      ExecutorUtils.stop(exec, NAME, 1, TimeUnit.MINUTES);
+      if (!copied) {
+        writer.rollback();
+      }
+    }
+
+    int counter = 0;
+    try {
+      for (Future<Integer> f : workers) {
+        counter += f.get();
+      }
+    } catch (InterruptedException e) {
+      writer.rollback();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while building nub index", e);
+    } catch (ExecutionException e) {
+      writer.rollback();
+      throw new IOException("Failed to build nub index", e.getCause());
+    }
+    final long indexTime = watch.getTime();
+    LOG.info("Indexed {} nub usages in {}s, {} usages/s. Start force merging the index ...",
+        counter, indexTime / 1000, counter * 1000L / Math.max(1, indexTime));
+
+    writer.forceMerge(1);
+    writer.close();
+    LOG.info("Finished building nub index with {} usages in {}, merging took {}s",
+        counter, watch, (watch.getTime() - indexTime) / 1000);
+  }
+
+  /**
+   * Reads the COPY stream and puts batches of rows into the work queue.
+   */
+  private static class UsageReader extends TabMapperBase {
+    private final BlockingQueue<List<String[]>> queue;
+    private List<String[]> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+    private int counter = 0;
+    private final StopWatch watch = new StopWatch();
+
+    UsageReader(BlockingQueue<List<String[]>> queue) {
+      // the number of columns in our query to consume
+      super(4 + 2 * HIGHER_RANKS.length);
+      this.queue = queue;
+      watch.start();
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+      batch.add(row);
+      if (batch.size() >= BATCH_SIZE) {
+        submit();
+      }
+      if (++counter % LOG_INTERVAL == 0) {
+        LOG.info("Read {} nub usages from postgres, {} usages/s", counter, counter * 1000L / Math.max(1, watch.getTime()));
+      }
+    }
+
+    private void submit() {
+      try {
+        queue.put(batch);
+        batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while reading nub usages", e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!batch.isEmpty()) {
+        submit();
+      }
+    }
+  }
+
+  /**
+   * Converts batches of rows into lucene documents and adds them to the shared index writer.
+   * Each worker uses its own name parser.
+   * A failed worker keeps draining the queue so the COPY stream never blocks.
+   */
+  private static class DocumentWorker implements Callable<Integer> {
+    private final BlockingQueue<List<String[]>> queue;
+    private final IndexWriter writer;
+    private final NameParser parser = new NameParser();
+
+    DocumentWorker(BlockingQueue<List<String[]>> queue, IndexWriter writer) {
+      this.queue = queue;
+      this.writer = writer;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      int counter = 0;
+      Exception error = null;
+      while (true) {
+        List<String[]> batch = queue.take();
+        if (batch == POISON) {
+          break;
+        }
+        if (error == null) {
+          try {
+            for (String[] row : batch) {
+              writer.addDocument(NubIndex.toDoc(toUsage(row), parser));
+              counter++;
+            }
+          } catch (Exception e) {
+            LOG.error("Failed to index nub usages", e);
+            error = e;
+          }
+        }
+      }
+      if (error != null) {
+        throw error;
+      }
+      return counter;
+    }
+
+    private static NameUsageMatch toUsage(String[] row) {
+      NameUsageMatch u = new NameUsageMatch();
+      u.setUsageKey(Integer.valueOf(row[0]));
+      u.setScientificName(row[1]);
+      u.setRank(row[2] == null ? null : Rank.valueOf(row[2]));
+      u.setStatus(row[3] == null ? null : TaxonomicStatus.valueOf(row[3]));
+      for (int idx = 0; idx < HIGHER_RANKS.length; idx++) {
+        String key = row[4 + idx * 2];
+        ClassificationUtils.setHigherRank(u, HIGHER_RANKS[idx], row[5 + idx * 2], key == null ? null : Integer.valueOf(key));
+      }
+      return u;
+    }
+  }
+}
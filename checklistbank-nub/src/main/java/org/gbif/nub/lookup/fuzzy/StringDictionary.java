@@ -0,0 +1,113 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Read only dictionary keeping strings as UTF8 bytes in off-heap memory, addressed by a dense int id.
+ * Instances are thread safe and are created through a {@link Builder}.
+ */
+class StringDictionary {
+  private static final Charset UTF8 = Charset.forName("UTF8");
+  private final ByteBuffer bytes;
+  private final IntBuffer offsets;
+  private final int size;
+
+  private StringDictionary(ByteBuffer bytes, IntBuffer offsets, int size) {
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.size = size;
+  }
+
+  /**
+   * @return the string for the given id
+   */
+  public String get(int id) {
+    final int start = offsets.get(id);
+    final int len = offsets.get(id + 1) - start;
+    byte[] buf = new byte[len];
+    // use absolute gets only to stay thread safe
+    for (int i = 0; i < len; i++) {
+      buf[i] = bytes.get(start + i);
+    }
+    return new String(buf, UTF8);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Builder appending strings to a growing off-heap buffer.
+   * Frequently repeated strings can be interned so they are stored only once.
+   */
+  static class Builder {
+    private final Map<String, Integer> interned = Maps.newHashMap();
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(1024 * 1024);
+    private IntBuffer offsets = ByteBuffer.allocateDirect(4 * 1024).asIntBuffer();
+    private int size = 0;
+
+    Builder() {
+      offsets.put(0);
+    }
+
+    /**
+     * Appends a new string to the dictionary without checking for existing entries.
+     * @return the id of the new entry
+     */
+    int add(String x) {
+      byte[] data = x.getBytes(UTF8);
+      if (bytes.remaining() < data.length) {
+        long capacity = Math.max(bytes.capacity() * 2L, (long) bytes.position() + data.length);
+        Preconditions.checkArgument(capacity <= Integer.MAX_VALUE, "String dictionary exceeds 2GB");
+        bytes = grow(bytes, (int) capacity);
+      }
+      bytes.put(data);
+      if (offsets.remaining() < 1) {
+        IntBuffer larger = ByteBuffer.allocateDirect(offsets.capacity() * 8).asIntBuffer();
+        offsets.flip();
+        larger.put(offsets);
+        offsets = larger;
+      }
+      offsets.put(bytes.position());
+      return size++;
+    }
+
+    /**
+     * Adds a string only if it does not yet exist in the dictionary.
+     * @return the id of the new or existing entry
+     */
+    int intern(String x) {
+      Integer id = interned.get(x);
+      if (id == null) {
+        id = add(x);
+        interned.put(x, id);
+      }
+      return id;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buf, int capacity) {
+      ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+      buf.flip();
+      larger.put(buf);
+      return larger;
+    }
+
+    StringDictionary build() {
+      interned.clear();
+      // shrink buffers to the final size
+      bytes.flip();
+      ByteBuffer finalBytes = ByteBuffer.allocateDirect(Math.max(1, bytes.limit()));
+      finalBytes.put(bytes);
+      offsets.flip();
+      IntBuffer finalOffsets = ByteBuffer.allocateDirect(offsets.limit() * 4).asIntBuffer();
+      finalOffsets.put(offsets);
+      return new StringDictionary(finalBytes, finalOffsets, size);
+    }
+  }
+}
@@ -0,0 +1,404 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.Authorship;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.model.Equality;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in memory id lookup keeping all usages in parallel primitive arrays grouped by their normalized canonical name.
+ * The normalized names are kept in a sorted array which is binary searched for lookups, so matching never needs
+ * to deserialize any usage list and only creates a single LookupUsage for the selected match.
+ *
+ * Matching follows exactly the same rules as the {@link IdLookupImpl}.
+ * Instances are immutable and thread safe once created.
+ */
+public class CompactIdLookup implements IdLookup {
+  private static final Logger LOG = LoggerFactory.getLogger(CompactIdLookup.class);
+  private static final Rank[] RANKS = Rank.values();
+  private static final Kingdom[] KINGDOMS = Kingdom.values();
+
+  // sorted, unique normalized canonical names
+  final String[] names;
+  // start index of the usages for each name, with a final entry for the total number of usages
+  final int[] offsets;
+  // usage properties grouped by name
+  final int[] keys;
+  final byte[] ranks;
+  final byte[] kingdoms;
+  final BitSet deleted;
+  final String[] canonicals;
+  final String[] authorships;
+  final String[] years;
+  final int keyMax;
+  private final int deletedCount;
+  private final AuthorComparator authComp;
+  // shared by all batch matches of this lookup
+  private final ExecutorService batchExec = GroupedMatcher.newExecutor();
+
+  CompactIdLookup(String[] names, int[] offsets, int[] keys, byte[] ranks, byte[] kingdoms, BitSet deleted,
+                  String[] canonicals, String[] authorships, String[] years, int keyMax) {
+    this.names = names;
+    this.offsets = offsets;
+    this.keys = keys;
+    this.ranks = ranks;
+    this.kingdoms = kingdoms;
+    this.deleted = deleted;
+    this.canonicals = canonicals;
+    this.authorships = authorships;
+    this.years = years;
+    this.keyMax = keyMax;
+    this.deletedCount = deleted.cardinality();
+    authComp = AuthorComparator.createWithAuthormap();
+  }
+
+  /**
+   * Creates a lookup with an explicit list of known usages.
+   */
+  public static CompactIdLookup build(Iterable<LookupUsage> usages) {
+    Builder builder = new Builder();
+    for (LookupUsage u : usages) {
+      builder.add(u);
+    }
+    CompactIdLookup lookup = builder.build();
+    LOG.info("Use {} existing nub usages with max key {} in compact id lookup", lookup.size(), lookup.keyMax);
+    return lookup;
+  }
+
+  /**
+   * Creates a lookup with all usages from the checklistbank backbone using several concurrent postgres connections.
+   */
+  public static CompactIdLookup load(ClbConfiguration clb, boolean includeDeleted) throws SQLException, IOException {
+    return load(clb, includeDeleted, ParallelLookupLoader.DEFAULT_THREADS);
+  }
+
+  /**
+   * Creates a lookup with all usages from the checklistbank backbone.
+   *
+   * @param threads number of concurrent COPY streams to read usages with
+   */
+  public static CompactIdLookup load(ClbConfiguration clb, boolean includeDeleted, int threads) throws SQLException, IOException {
+    final Builder builder = new Builder();
+    LOG.info("Reading existing nub usages {}from postgres ...", includeDeleted ? "incl. deleted " : "");
+    new ParallelLookupLoader(clb, includeDeleted, threads) {
+      @Override
+      void merge(String norm, List<LookupUsage> usages) {
+        for (LookupUsage u : usages) {
+          builder.add(norm, u);
+        }
+      }
+    }.load();
+    CompactIdLookup lookup = builder.build();
+    LOG.info("Loaded existing nub with {} usages and {} canonical names and max key {} into compact id lookup",
+        lookup.size(), lookup.names.length, lookup.keyMax);
+    return lookup;
+  }
+
+  /**
+   * Collects usages in growing arrays and finally groups them by their normalized name.
+   */
+  private static class Builder {
+    private int size = 0;
+    private String[] norms = new String[1024];
+    private int[] keys = new int[1024];
+    private byte[] ranks = new byte[1024];
+    private byte[] kingdoms = new byte[1024];
+    private BitSet deleted = new BitSet();
+    private String[] canonicals = new String[1024];
+    private String[] authorships = new String[1024];
+    private String[] years = new String[1024];
+    private int keyMax = 0;
+
+    void add(LookupUsage u) {
+      String norm = IdLookupImpl.norm(u.getCanonical());
+      if (norm == null) {
+        LOG.warn("Missing canonical name for {} usage {}", u.getKingdom(), u.getKey());
+        return;
+      }
+      add(norm, u);
+    }
+
+    /**
+     * Adds a usage with an already normalized name.
+     */
+    void add(String norm, LookupUsage u) {
+      if (size == keys.length) {
+        int cap = size * 2;
+        norms = Arrays.copyOf(norms, cap);
+        keys = Arrays.copyOf(keys, cap);
+        ranks = Arrays.copyOf(ranks, cap);
+        kingdoms = Arrays.copyOf(kingdoms, cap);
+        canonicals = Arrays.copyOf(canonicals, cap);
+        authorships = Arrays.copyOf(authorships, cap);
+        years = Arrays.copyOf(years, cap);
+      }
+      norms[size] = norm;
+      keys[size] = u.getKey();
+      ranks[size] = u.getRank() == null ? -1 : (byte) u.getRank().ordinal();
+      kingdoms[size] = u.getKingdom() == null ? -1 : (byte) u.getKingdom().ordinal();
+      deleted.set(size, u.isDeleted());
+      canonicals[size] = u.getCanonical();
+      authorships[size] = u.getAuthorship();
+      years[size] = u.getYear();
+      keyMax = Math.max(keyMax, u.getKey());
+      size++;
+    }
+
+    CompactIdLookup build() {
+      // stable sort by normalized name keeps usages of the same name in insertion order
+      int[] order = new int[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      sort(order, new int[size], 0, size, norms);
+
+      List<String> names = Lists.newArrayList();
+      int[] offsets = new int[size + 1];
+      int[] k = new int[size];
+      byte[] r = new byte[size];
+      byte[] ki = new byte[size];
+      BitSet d = new BitSet(size);
+      String[] c = new String[size];
+      String[] a = new String[size];
+      String[] y = new String[size];
+      for (int i = 0; i < size; i++) {
+        final int idx = order[i];
+        final boolean newName = names.isEmpty() || !names.get(names.size() - 1).equals(norms[idx]);
+        if (newName) {
+          offsets[names.size()] = i;
+          names.add(norms[idx]);
+        }
+        k[i] = keys[idx];
+        r[i] = ranks[idx];
+        ki[i] = kingdoms[idx];
+        d.set(i, deleted.get(idx));
+        // share equal canonical strings within a name
+        c[i] = !newName && canonicals[idx] != null && canonicals[idx].equals(c[i - 1]) ? c[i - 1] : canonicals[idx];
+        a[i] = authorships[idx];
+        y[i] = years[idx];
+      }
+      offsets[names.size()] = size;
+      return new CompactIdLookup(names.toArray(new String[names.size()]), Arrays.copyOf(offsets, names.size() + 1),
+          k, r, ki, d, c, a, y, keyMax);
+    }
+
+    /**
+     * Merge sorts the index array by the strings it points to.
+     */
+    private static void sort(int[] idx, int[] tmp, int from, int to, String[] vals) {
+      if (to - from < 2) {
+        return;
+      }
+      final int mid = (from + to) >>> 1;
+      sort(idx, tmp, from, mid, vals);
+      sort(idx, tmp, mid, to, vals);
+      if (vals[idx[mid - 1]].compareTo(vals[idx[mid]]) <= 0) {
+        return;
+      }
+      System.arraycopy(idx, from, tmp, from, to - from);
+      int i = from, j = mid, x = from;
+      while (i < mid && j < to) {
+        idx[x++] = vals[tmp[j]].compareTo(vals[tmp[i]]) < 0 ? tmp[j++] : tmp[i++];
+      }
+      while (i < mid) {
+        idx[x++] = tmp[i++];
+      }
+      while (j < to) {
+        idx[x++] = tmp[j++];
+      }
+    }
+  }
+
+  private Rank rank(int idx) {
+    return ranks[idx] < 0 ? null : RANKS[ranks[idx]];
+  }
+
+  private Kingdom kingdom(int idx) {
+    return kingdoms[idx] < 0 ? null : KINGDOMS[kingdoms[idx]];
+  }
+
+  private LookupUsage usage(int idx) {
+    return new LookupUsage(keys[idx], canonicals[idx], authorships[idx], years[idx], rank(idx), kingdom(idx), deleted.get(idx));
+  }
+
+  /**
+   * @return the index of the normalized name or a negative value if not existing
+   */
+  private int find(String canonicalName) {
+    final String norm = IdLookupImpl.norm(canonicalName);
+    return norm == null ? -1 : Arrays.binarySearch(names, norm);
+  }
+
+  @Override
+  public LookupUsage match(String canonicalName, Rank rank, Kingdom kingdom) {
+    return match(canonicalName, null, null, rank, kingdom);
+  }
+
+  @Override
+  public LookupUsage match(String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom) {
+    final int n = find(canonicalName);
+    if (n < 0) return null;
+
+    return match(n, canonicalName, authorship, year, rank, kingdom);
+  }
+
+  @Override
+  public List<LookupUsage> match(List<LookupQuery> queries) {
+    return new GroupedMatcher<Integer>(batchExec) {
+      @Override
+      Integer candidates(String norm) {
+        int n = Arrays.binarySearch(names, norm);
+        return n < 0 ? null : n;
+      }
+
+      @Override
+      LookupUsage match(Integer n, LookupQuery q) {
+        return CompactIdLookup.this.match(n, q.getCanonical(), q.getAuthorship(), q.getYear(), q.getRank(), q.getKingdom());
+      }
+    }.match(queries);
+  }
+
+  /**
+   * Selects the match from all usages of the normalized name with the given index.
+   */
+  private LookupUsage match(int n, String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom) {
+    final Authorship query = authorship != null || year != null ? authComp.authorship(authorship, year) : null;
+    int hits = 0;
+    int first = -1;
+    int exact = -1;
+    boolean ambiguousExact = false;
+    int curr = -1;
+    int currCounter = 0;
+    int lowest = -1;
+    for (int idx = offsets[n]; idx < offsets[n + 1]; idx++) {
+      // filter by rank, kingdom & authorship, allowing uncertain kingdoms and ranks to match
+      if (rank != null && !IdLookupImpl.match(rank, rank(idx)) || kingdom != null && !IdLookupImpl.match(kingdom, kingdom(idx))) {
+        continue;
+      }
+      if (query != null && authComp.compare(query, authComp.authorship(authorships[idx], years[idx])) == Equality.DIFFERENT) {
+        continue;
+      }
+      hits++;
+      if (first < 0) {
+        first = idx;
+      }
+      if (Objects.equals(canonicalName, canonicals[idx]) && Objects.equals(authorship, authorships[idx])
+          && Objects.equals(year, years[idx])) {
+        ambiguousExact = exact >= 0;
+        exact = idx;
+      }
+      if (!deleted.get(idx)) {
+        currCounter++;
+        curr = idx;
+      }
+      if (lowest < 0 || keys[idx] < keys[lowest]) {
+        lowest = idx;
+      }
+    }
+
+    // if no authorship was requested and we got 1 result, a hit!
+    if (hits == 1) {
+      return usage(first);
+
+    } else if (hits > 1) {
+      // try a very exact match first to see if we only get 1 hit
+      if (exact >= 0 && !ambiguousExact) {
+        LOG.debug("{} matches, but only 1 exact match {} for {} {} {} {} {}", hits, keys[exact], kingdom, rank, canonicalName, authorship, year);
+        return usage(exact);
+      }
+      // if we ever had too many bad usages they might block forever a stable id.
+      // If only one current id is matched use that!
+      if (currCounter == 1) {
+        LOG.debug("{} matches, but only 1 current usage {} for {} {} {} {} {}", hits, keys[curr], kingdom, rank, canonicalName, authorship, year);
+        return usage(curr);
+
+      } else if (rank != Rank.UNRANKED && kingdom != Kingdom.INCERTAE_SEDIS) {
+        // if requested rank & kingdom was clear, use usage with lowest key
+        LOG.debug("Use lowest usage key {} for ambiguous match with {} hits for {} {} {} {} {}", keys[lowest], hits, kingdom, rank, canonicalName, authorship, year);
+        return usage(lowest);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public List<LookupUsage> match(String canonicalName) {
+    List<LookupUsage> hits = Lists.newArrayList();
+    final int n = find(canonicalName);
+    if (n >= 0) {
+      for (int idx = offsets[n]; idx < offsets[n + 1]; idx++) {
+        hits.add(usage(idx));
+      }
+    }
+    return Collections.unmodifiableList(hits);
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public int deletedIds() {
+    return deletedCount;
+  }
+
+  @Override
+  public int getKeyMax() {
+    return keyMax;
+  }
+
+  @Override
+  public AuthorComparator getAuthorComparator() {
+    return authComp;
+  }
+
+  @Override
+  public Iterator<LookupUsage> iterator() {
+    return new Iterator<LookupUsage>() {
+      private int idx = 0;
+
+      @Override
+      public boolean hasNext() {
+        return idx < keys.length;
+      }
+
+      @Override
+      public LookupUsage next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return usage(idx++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("You cannot remove from an id lookup");
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    // all data is kept on the heap, only the batch threads need to be released
+    GroupedMatcher.stop(batchExec);
+  }
+}
@@ -0,0 +1,146 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.checklistbank.utils.ExecutorUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Matches a batch of queries by grouping them by their normalized canonical name,
+ * so the homonym candidates of each name are fetched only once for all queries sharing it.
+ * Groups are evaluated in parallel for larger batches on an executor shared by all batches of a lookup,
+ * see {@link #newExecutor()}.
+ *
+ * @param <C> the candidates of a single normalized name as fetched by the lookup implementation
+ */
+abstract class GroupedMatcher<C> {
+  private static final String NAME = "id-lookup-batch";
+  // batches smaller than this are matched on the calling thread
+  private static final int MIN_PARALLEL_SIZE = 1000;
+  private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+  private final ExecutorService exec;
+
+  /**
+   * @param exec the executor to match larger batches with, usually owned by the lookup and reused for all batches
+   */
+  GroupedMatcher(ExecutorService exec) {
+    this.exec = exec;
+  }
+
+  /**
+   * Creates a new executor for batch matching with one thread per processor.
+   * Idle threads are released after a minute, so a lookup only keeps threads while batches are being matched.
+   * The executor must be shut down when the lookup is closed.
+   */
+  static ExecutorService newExecutor() {
+    ThreadPoolExecutor exec = new ThreadPoolExecutor(THREADS, THREADS, 1, TimeUnit.MINUTES,
+        new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(NAME));
+    exec.allowCoreThreadTimeOut(true);
+    return exec;
+  }
+
+  /**
+   * Stops an executor created by {@link #newExecutor()}.
+   */
+  static void stop(ExecutorService exec) {
+    ExecutorUtils.stop(exec, NAME, 1, TimeUnit.MINUTES);
+  }
+
+  /**
+   * @return the candidates for a normalized name or null if none exist
+   */
+  abstract C candidates(String norm);
+
+  /**
+   * Selects the matching usage from the candidates of the query name.
+   */
+  abstract LookupUsage match(C candidates, LookupQuery q);
+
+  /**
+   * @return the matches in the same order as the queries with nulls for queries without a match
+   */
+  List<LookupUsage> match(List<LookupQuery> queries) {
+    final LookupUsage[] matches = new LookupUsage[queries.size()];
+
+    // group query indices by normalized name
+    final Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+    for (int idx = 0; idx < queries.size(); idx++) {
+      String norm = IdLookupImpl.norm(queries.get(idx).getCanonical());
+      if (norm != null) {
+        List<Integer> group = groups.get(norm);
+        if (group == null) {
+          group = Lists.newArrayListWithCapacity(1);
+          groups.put(norm, group);
+        }
+        group.add(idx);
+      }
+    }
+
+    final int threads = queries.size() < MIN_PARALLEL_SIZE ? 1 : Math.min(THREADS, groups.size());
+    if (threads <= 1) {
+      new GroupJob(Lists.newArrayList(groups.entrySet()), queries, matches).call();
+
+    } else {
+      // split groups into several slices per thread to even out uneven group sizes
+      List<Map.Entry<String, List<Integer>>> entries = Lists.newArrayList(groups.entrySet());
+      try {
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (List<Map.Entry<String, List<Integer>>> slice : Lists.partition(entries, entries.size() / (threads * 4) + 1)) {
+          futures.add(exec.submit(new GroupJob(slice, queries, matches)));
+        }
+        for (Future<Void> f : futures) {
+          f.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while batch matching names", e);
+
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+    return Arrays.asList(matches);
+  }
+
+  /**
+   * Matches all queries of a slice of name groups, writing results into distinct slots of the shared array.
+   */
+  private class GroupJob implements Callable<Void> {
+    private final List<Map.Entry<String, List<Integer>>> groups;
+    private final List<LookupQuery> queries;
+    private final LookupUsage[] matches;
+
+    GroupJob(List<Map.Entry<String, List<Integer>>> groups, List<LookupQuery> queries, LookupUsage[] matches) {
+      this.groups = groups;
+      this.queries = queries;
+      this.matches = matches;
+    }
+
+    @Override
+    public Void call() {
+      for (Map.Entry<String, List<Integer>> group : groups) {
+        C candidates = candidates(group.getKey());
+        if (candidates != null) {
+          for (int idx : group.getValue()) {
+            matches[idx] = match(candidates, queries.get(idx));
+          }
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -28,10 +28,19 @@ public interface IdLookup extends Iterable<LookupUsage>, AutoCloseable {
   LookupUsage match(String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom);
 
   /**
-   * List all usages with the given canonical name regardless of rank, kingdom or authorship
+   * List all usages with the given canonical name regardless of rank, kingdom or authorship.
+   * The returned list must not be modified as it might be shared with other threads.
    */
   List<LookupUsage> match(String canonicalName);
 
+  /**
+   * Matches a batch of names at once, fetching the candidates for each distinct normalized canonical name only once.
+   * Larger batches are matched in parallel.
+   *
+   * @return the matching usages in the same order as the queries with null for queries without a match
+   */
+  List<LookupUsage> match(List<LookupQuery> queries);
+
   /**
    * @return the number of known usage keys incl deleted ones
    */
@@ -42,6 +51,11 @@ public interface IdLookup extends Iterable<LookupUsage>, AutoCloseable {
    */
   int deletedIds();
 
+  /**
+   * @return the largest usage key known incl deleted ones
+   */
+  int getKeyMax();
+
   @Override
   Iterator<LookupUsage> iterator();
 
@@ -1,24 +1,24 @@
 package org.gbif.nub.lookup.straight;
 
-import org.gbif.api.model.Constants;
 import org.gbif.api.vocabulary.Kingdom;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.Authorship;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.model.Equality;
-import org.gbif.checklistbank.postgres.TabMapperBase;
 import org.gbif.checklistbank.utils.SciNameNormalizer;
 import org.gbif.nub.mapdb.MapDbObjectSerializer;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -28,8 +28,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.Serializer;
-import org.postgresql.copy.CopyManager;
-import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +42,8 @@ public class IdLookupImpl implements IdLookup {
   private final DB db;
   private final Map<String, List<LookupUsage>> usages;
   private final AuthorComparator authComp;
+  // shared by all batch matches of this lookup
+  private final ExecutorService batchExec = GroupedMatcher.newExecutor();
   private int keyMax = 0;
   private int counter = 0;
   private int deleted = 0;
@@ -89,75 +89,43 @@ public class IdLookupImpl implements IdLookup {
   }
 
   /**
-   * Loads known usages from checklistbank backbone.
+   * Loads known usages from checklistbank backbone using several concurrent postgres connections.
    */
   public IdLookupImpl load(ClbConfiguration clb, boolean includeDeleted) throws SQLException, IOException {
-    UsageWriter writer = new UsageWriter();
+    return load(clb, includeDeleted, ParallelLookupLoader.DEFAULT_THREADS);
+  }
+
+  /**
+   * Loads known usages from checklistbank backbone.
+   *
+   * @param threads number of concurrent COPY streams to read usages with
+   */
+  public IdLookupImpl load(ClbConfiguration clb, boolean includeDeleted, int threads) throws SQLException, IOException {
     LOG.info("Reading existing nub usages {}from postgres ...", includeDeleted ? "incl. deleted " : "");
-    try (Connection c = clb.connect()) {
-      final CopyManager cm = new CopyManager((BaseConnection) c);
-      final String delClause = includeDeleted ? "" : " AND deleted is null";
-      cm.copyOut("COPY ("
-          + "SELECT u.id, coalesce(NULLIF(trim(n.canonical_name), ''), n.scientific_name), n.authorship, n.year, u.rank, u.kingdom_fk, deleted is not null"
-          + " FROM name_usage u join name n ON name_fk=n.id"
-          + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "'" + delClause + ")"
-          + " TO STDOUT WITH NULL ''", writer);
-      LOG.info("Loaded existing nub with {} usages and max key {} into id lookup", usages.size(), keyMax);
-    } finally {
-      writer.close();
-    }
+    new ParallelLookupLoader(clb, includeDeleted, threads) {
+      @Override
+      void merge(String norm, List<LookupUsage> usages) {
+        addAll(norm, usages);
+      }
+    }.load();
+    LOG.info("Loaded existing nub with {} usages and max key {} into id lookup", usages.size(), keyMax);
     return this;
   }
 
   @Override
   public void close() throws Exception {
+    GroupedMatcher.stop(batchExec);
     db.close();
   }
 
 
-  /**
-   * int key
-   * String canonical
-   * String authorship
-   * String year
-   * Rank rank
-   * Kingdom kingdom
-   * boolean deleted
-   */
-  private class UsageWriter extends TabMapperBase {
-    public UsageWriter() {
-      // the number of columns in our query to consume
-      super(7);
-    }
-
-    @Override
-    protected void addRow(String[] row) {
-      LookupUsage u = new LookupUsage(
-          toInt(row[0]),
-          row[1],
-          row[2],
-          row[3],
-          Rank.valueOf(row[4]),
-          Kingdom.byNubUsageId(toInt(row[5])),
-          "t".equals(row[6])
-      );
-      add(u);
-    }
-
-    private Integer toInt(String x) {
-      return x == null ? null : Integer.valueOf(x);
-    }
-  }
-
   @VisibleForTesting
   protected static String norm(String x) {
     x = SciNameNormalizer.normalize(x);
     return StringUtils.isBlank(x) ? null : x.toLowerCase();
   }
 
-  /**
-   * @return the largest usage key existing in the backbone
-   */
+  @Override
   public int getKeyMax() {
     return keyMax;
   }
@@ -172,18 +140,27 @@ public class IdLookupImpl implements IdLookup {
       LOG.warn("Missing canonical name for {} usage {}", u.getKingdom(), u.getKey());
       return;
     }
+    addAll(key, ImmutableList.of(u));
+  }
 
-    if (usages.containsKey(key)) {
+  /**
+   * Adds several usages sharing the same normalized name with a single store update.
+   */
+  private void addAll(String key, List<LookupUsage> us) {
+    List<LookupUsage> existing = usages.get(key);
+    if (existing != null) {
       // we need to persistent a new list cause mapdb considers them immutable!
-      usages.put(key, ImmutableList.<LookupUsage>builder().addAll(usages.get(key)).add(u).build());
+      usages.put(key, ImmutableList.<LookupUsage>builder().addAll(existing).addAll(us).build());
     } else {
-      usages.put(key, ImmutableList.of(u));
+      usages.put(key, ImmutableList.copyOf(us));
     }
-    counter++;
-    if (u.isDeleted()) {
-      deleted++;
+    for (LookupUsage u : us) {
+      counter++;
+      if (u.isDeleted()) {
+        deleted++;
+      }
+      keyMax = u.getKey() > keyMax ? u.getKey() : keyMax;
     }
-    keyMax = u.getKey() > keyMax ? u.getKey() : keyMax;
   }
 
   @Override
@@ -195,12 +172,12 @@ public class IdLookupImpl implements IdLookup {
   public List<LookupUsage> match(String canonicalName) {
     List<LookupUsage> hits = usages.get(norm(canonicalName));
     if (hits != null) {
-      return hits;
+      return Collections.unmodifiableList(hits);
     }
     return Lists.newArrayList();
   }
 
-  private boolean match(Rank r1, Rank r2) {
+  static boolean match(Rank r1, Rank r2) {
     if (r1 == Rank.UNRANKED || r2 == Rank.UNRANKED) return true;
 
     if (r1 == Rank.INFRASPECIFIC_NAME) {
@@ -217,99 +194,108 @@ public class IdLookupImpl implements IdLookup {
     return r1 == r2;
   }
 
-  private boolean match(Kingdom k1, Kingdom k2) {
+  static boolean match(Kingdom k1, Kingdom k2) {
     if (k1 == Kingdom.INCERTAE_SEDIS || k2 == Kingdom.INCERTAE_SEDIS) {
       return true;
     }
     return k1 == k2;
   }
 
+  /**
+   * Matches a name without modifying the list of candidates read from the store.
+   * All filtering is done in a single pass keeping only local state, so a single lookup instance can safely be used
+   * by many threads at the same time.
+   */
   @Override
   public LookupUsage match(final String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom) {
     final String canonicalNameNormed = norm(canonicalName);
     if (canonicalNameNormed == null) return null;
 
-    List<LookupUsage> hits = usages.get(canonicalNameNormed);
-    if (hits == null) return null;
+    final List<LookupUsage> candidates = usages.get(canonicalNameNormed);
+    if (candidates == null) return null;
+
+    return match(candidates, canonicalName, authorship, year, rank, kingdom);
+  }
+
+  @Override
+  public List<LookupUsage> match(List<LookupQuery> queries) {
+    return new GroupedMatcher<List<LookupUsage>>(batchExec) {
+      @Override
+      List<LookupUsage> candidates(String norm) {
+        return usages.get(norm);
+      }
+
+      @Override
+      LookupUsage match(List<LookupUsage> candidates, LookupQuery q) {
+        return IdLookupImpl.this.match(candidates, q.getCanonical(), q.getAuthorship(), q.getYear(), q.getRank(), q.getKingdom());
+      }
+    }.match(queries);
+  }
 
-    final boolean compareAuthorship = authorship != null || year != null;
-    // filter by rank, kingdom & authorship
-    Iterator<LookupUsage> iter = hits.iterator();
-    while (iter.hasNext()) {
-      LookupUsage u = iter.next();
-      // allow uncertain kingdoms and ranks to match
+  /**
+   * Selects the match from all candidates sharing the normalized canonical name.
+   */
+  private LookupUsage match(List<LookupUsage> candidates, String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom) {
+    final Authorship query = authorship != null || year != null ? authComp.authorship(authorship, year) : null;
+    int hits = 0;
+    LookupUsage first = null;
+    LookupUsage exact = null;
+    boolean ambiguousExact = false;
+    LookupUsage curr = null;
+    int currCounter = 0;
+    LookupUsage lowest = null;
+    for (LookupUsage u : candidates) {
+      // filter by rank, kingdom & authorship, allowing uncertain kingdoms and ranks to match
       if (rank != null && !match(rank, u.getRank()) || kingdom != null && !match(kingdom, u.getKingdom())) {
-        iter.remove();
-      } else if (compareAuthorship) {
-        // authorship comparison was requested!
-        Equality eq = authComp.compare(authorship, year, u.getAuthorship(), u.getYear());
-        if (eq == Equality.DIFFERENT) {
-          iter.remove();
-        }
+        continue;
+      }
+      if (query != null && authComp.compare(query, u.authorship(authComp)) == Equality.DIFFERENT) {
+        continue;
+      }
+      hits++;
+      if (first == null) {
+        first = u;
+      }
+      if (Objects.equals(canonicalName, u.getCanonical()) && Objects.equals(authorship, u.getAuthorship())
+          && Objects.equals(year, u.getYear())) {
+        ambiguousExact = exact != null;
+        exact = u;
+      }
+      if (!u.isDeleted()) {
+        currCounter++;
+        curr = u;
+      }
+      if (lowest == null || u.getKey() < lowest.getKey()) {
+        lowest = u;
       }
     }
+
     // if no authorship was requested and we got 1 result, a hit!
-    if (hits.size() == 1) {
-      return hits.get(0);
+    if (hits == 1) {
+      return first;
 
-    } else if (hits.size() > 1) {
+    } else if (hits > 1) {
       // try a very exact match first to see if we only get 1 hit
-      LookupUsage exact = exactMatch(canonicalName, authorship, year, hits);
-      if (exact != null) {
-        LOG.debug("{} matches, but only 1 exact match {} for {} {} {} {} {}", hits.size(), exact.getKey(), kingdom, rank, canonicalName, authorship, year);
+      if (exact != null && !ambiguousExact) {
+        LOG.debug("{} matches, but only 1 exact match {} for {} {} {} {} {}", hits, exact.getKey(), kingdom, rank, canonicalName, authorship, year);
         return exact;
       }
 
       // if we ever had too many bad usages they might block forever a stable id.
       // If only one current id is matched use that!
-      LookupUsage curr = null;
-      int currCounter = 0;
-      for (LookupUsage u : hits) {
-        if (!u.isDeleted()) {
-          currCounter++;
-          curr = u;
-        }
-      }
       if (currCounter == 1) {
-        LOG.debug("{} matches, but only 1 current usage {} for {} {} {} {} {}", hits.size(), curr.getKey(), kingdom, rank, canonicalName, authorship, year);
+        LOG.debug("{} matches, but only 1 current usage {} for {} {} {} {} {}", hits, curr.getKey(), kingdom, rank, canonicalName, authorship, year);
         return curr;
 
       } else if (rank != Rank.UNRANKED && kingdom != Kingdom.INCERTAE_SEDIS) {
         // if requested rank & kingdom was clear, use usage with lowest key
-        for (LookupUsage u : hits) {
-          if (curr == null || curr.getKey() > u.getKey()) {
-            curr = u;
-          }
-        }
-        LOG.debug("Use lowest usage key {} for ambiguous match with {} hits for {} {} {} {} {}", curr.getKey(), hits.size(), kingdom, rank, canonicalName, authorship, year);
-        return curr;
+        LOG.debug("Use lowest usage key {} for ambiguous match with {} hits for {} {} {} {} {}", lowest.getKey(), hits, kingdom, rank, canonicalName, authorship, year);
+        return lowest;
       }
     }
     return null;
   }
 
-  /**
-   * Checks candidates for a single unambigous exact match
-   */
-  private LookupUsage exactMatch(String canonicalName, String authorship, String year, List<LookupUsage> candidates) {
-    LookupUsage match = null;
-    for (LookupUsage u : candidates) {
-      if (Objects.equals(canonicalName, u.getCanonical())
-        && Objects.equals(authorship, u.getAuthorship())
-        && Objects.equals(year, u.getYear()))
-      {
-        // did we have a match already?
-        if (match != null) {
-          return null;
-        }
-        // no, keep it
-        match = u;
-      }
-
-    }
-    return match;
-  }
-
   /**
    * @return the number of known usage keys incl deleted ones
    */
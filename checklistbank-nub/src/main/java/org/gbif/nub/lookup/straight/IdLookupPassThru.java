@@ -4,6 +4,7 @@ import org.gbif.api.vocabulary.Kingdom;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.authorship.AuthorComparator;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -33,6 +34,11 @@ public class IdLookupPassThru implements IdLookup {
     return Lists.newArrayList();
   }
 
+  @Override
+  public List<LookupUsage> match(List<LookupQuery> queries) {
+    return Arrays.asList(new LookupUsage[queries.size()]);
+  }
+
   @Override
   public int size() {
     return 0;
@@ -43,6 +49,11 @@ public class IdLookupPassThru implements IdLookup {
     return 0;
   }
 
+  @Override
+  public int getKeyMax() {
+    return 0;
+  }
+
   @Override
   public Iterator<LookupUsage> iterator() {
     return Lists.<LookupUsage>newArrayList().iterator();
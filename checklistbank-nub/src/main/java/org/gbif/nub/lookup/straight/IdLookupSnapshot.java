@@ -0,0 +1,314 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.model.Constants;
+import org.gbif.checklistbank.config.ClbConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists a {@link CompactIdLookup} to a binary snapshot file so services can reopen the backbone lookup
+ * in seconds instead of re-reading all nub usages from postgres.
+ *
+ * A snapshot is written once per backbone version which is the id of the latest dataset metrics record of the nub.
+ * The file starts with a fixed header holding the format version, the backbone version, the max usage key,
+ * the include deleted flag and a CRC32 checksum of the data section following the header.
+ * Snapshots are streamed for reading, so they are not limited in size, and rejected if any header value
+ * or the checksum does not match.
+ */
+public class IdLookupSnapshot {
+  private static final Logger LOG = LoggerFactory.getLogger(IdLookupSnapshot.class);
+  private static final int MAGIC = 0x434c4249; // CLBI
+  private static final int FORMAT_VERSION = 1;
+  // magic, format, backbone version, key max, deleted flag, usages, names, checksum
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 1 + 4 + 4 + 8;
+  private static final int CHECKSUM_BUFFER = 64 * 1024;
+
+  /**
+   * Header values of a snapshot file.
+   */
+  static class Header {
+    final long backboneVersion;
+    final int keyMax;
+    final boolean includeDeleted;
+    final int usages;
+    final int names;
+    final long checksum;
+
+    Header(long backboneVersion, int keyMax, boolean includeDeleted, int usages, int names, long checksum) {
+      this.backboneVersion = backboneVersion;
+      this.keyMax = keyMax;
+      this.includeDeleted = includeDeleted;
+      this.usages = usages;
+      this.names = names;
+      this.checksum = checksum;
+    }
+
+    private void write(ByteBuffer buf) {
+      buf.putInt(MAGIC);
+      buf.putInt(FORMAT_VERSION);
+      buf.putLong(backboneVersion);
+      buf.putInt(keyMax);
+      buf.put((byte) (includeDeleted ? 1 : 0));
+      buf.putInt(usages);
+      buf.putInt(names);
+      buf.putLong(checksum);
+    }
+
+    /**
+     * @return the header or null if the buffer does not start with a snapshot header of the current format
+     */
+    private static Header read(ByteBuffer buf) {
+      if (buf.remaining() < HEADER_SIZE || buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      return new Header(buf.getLong(), buf.getInt(), buf.get() == 1, buf.getInt(), buf.getInt(), buf.getLong());
+    }
+  }
+
+  private IdLookupSnapshot() {
+  }
+
+  /**
+   * Opens the snapshot file if it exists and matches the current backbone version in checklistbank.
+   * Otherwise all nub usages are loaded from postgres and a new snapshot is written for the next startup.
+   *
+   * @param snapshot the snapshot file to use, can be null to always load from postgres
+   */
+  public static CompactIdLookup load(ClbConfiguration clb, boolean includeDeleted, File snapshot) throws SQLException, IOException {
+    Long version = backboneVersion(clb);
+    if (snapshot != null && version != null && snapshot.exists()) {
+      try {
+        CompactIdLookup lookup = read(snapshot, version, includeDeleted);
+        if (lookup != null) {
+          return lookup;
+        }
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("Failed to read id lookup snapshot {}. Rebuild from postgres", snapshot, e);
+      }
+    }
+
+    CompactIdLookup lookup = CompactIdLookup.load(clb, includeDeleted);
+    if (snapshot != null) {
+      if (version == null) {
+        LOG.warn("No backbone metrics existing, cannot version id lookup snapshot {}", snapshot);
+      } else {
+        write(lookup, version, includeDeleted, snapshot);
+      }
+    }
+    return lookup;
+  }
+
+  /**
+   * @return the id of the latest backbone metrics record or null if the backbone has no metrics yet
+   */
+  static Long backboneVersion(ClbConfiguration clb) throws SQLException {
+    try (Connection c = clb.connect();
+         Statement st = c.createStatement();
+         ResultSet rs = st.executeQuery("SELECT max(id) FROM dataset_metrics WHERE dataset_key='" + Constants.NUB_DATASET_KEY + "'")
+    ) {
+      if (rs.next()) {
+        long id = rs.getLong(1);
+        return rs.wasNull() ? null : id;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Writes the lookup to a new snapshot file, replacing any existing file atomically.
+   */
+  public static void write(CompactIdLookup lookup, long backboneVersion, boolean includeDeleted, File file) throws IOException {
+    Stopwatch watch = Stopwatch.createStarted();
+    File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+    try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+      raf.setLength(0);
+      FileChannel ch = raf.getChannel();
+      ch.position(HEADER_SIZE);
+      CRC32 crc = new CRC32();
+      DataOutputStream out = new DataOutputStream(
+          new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), CHECKSUM_BUFFER), crc));
+      writeStrings(out, lookup.names);
+      writeInts(out, lookup.offsets);
+      writeInts(out, lookup.keys);
+      out.write(lookup.ranks);
+      out.write(lookup.kingdoms);
+      long[] deleted = lookup.deleted.toLongArray();
+      out.writeInt(deleted.length);
+      for (long l : deleted) {
+        out.writeLong(l);
+      }
+      writeStrings(out, lookup.canonicals);
+      writeStrings(out, lookup.authorships);
+      writeStrings(out, lookup.years);
+      out.flush();
+
+      ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+      new Header(backboneVersion, lookup.keyMax, includeDeleted, lookup.size(), lookup.names.length, crc.getValue()).write(buf);
+      buf.flip();
+      ch.write(buf, 0);
+      ch.force(true);
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    LOG.info("Written id lookup snapshot {} for backbone version {} with {} usages in {}", file, backboneVersion, lookup.size(), watch);
+  }
+
+  /**
+   * Reads the snapshot header without validating the data section.
+   *
+   * @return the header or null if the file is no valid snapshot
+   */
+  static Header header(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+      raf.getChannel().read(buf, 0);
+      buf.flip();
+      return Header.read(buf);
+    }
+  }
+
+  /**
+   * Reads a snapshot file into a new lookup.
+   * The checksum of the data section is verified in a first pass before the data is parsed in a second one.
+   *
+   * @return the lookup or null if the snapshot was written for a different backbone version, deletion flag or is corrupt
+   */
+  public static CompactIdLookup read(File file, long backboneVersion, boolean includeDeleted) throws IOException {
+    Stopwatch watch = Stopwatch.createStarted();
+    Header h = header(file);
+    if (h == null) {
+      LOG.warn("Id lookup snapshot {} has an unknown format", file);
+      return null;
+    }
+    if (h.backboneVersion != backboneVersion || h.includeDeleted != includeDeleted) {
+      LOG.info("Id lookup snapshot {} is outdated. Snapshot backbone version {}, current {}", file, h.backboneVersion, backboneVersion);
+      return null;
+    }
+    if (checksum(file) != h.checksum) {
+      LOG.warn("Id lookup snapshot {} is corrupt, checksum mismatch", file);
+      return null;
+    }
+
+    try (DataInputStream in = openData(file)) {
+      String[] names = readStrings(in, h.names);
+      int[] offsets = readInts(in, h.names + 1);
+      int[] keys = readInts(in, h.usages);
+      byte[] ranks = new byte[h.usages];
+      in.readFully(ranks);
+      byte[] kingdoms = new byte[h.usages];
+      in.readFully(kingdoms);
+      long[] deleted = new long[in.readInt()];
+      for (int i = 0; i < deleted.length; i++) {
+        deleted[i] = in.readLong();
+      }
+      String[] canonicals = readStrings(in, h.usages);
+      String[] authorships = readStrings(in, h.usages);
+      String[] years = readStrings(in, h.usages);
+
+      CompactIdLookup lookup = new CompactIdLookup(names, offsets, keys, ranks, kingdoms, BitSet.valueOf(deleted),
+          canonicals, authorships, years, h.keyMax);
+      LOG.info("Opened id lookup snapshot {} for backbone version {} with {} usages and max key {} in {}",
+          file, backboneVersion, lookup.size(), h.keyMax, watch);
+      return lookup;
+    }
+  }
+
+  /**
+   * @return a buffered stream positioned at the start of the data section
+   */
+  private static DataInputStream openData(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      ByteStreams.skipFully(in, HEADER_SIZE);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    return new DataInputStream(new BufferedInputStream(in, CHECKSUM_BUFFER));
+  }
+
+  /**
+   * @return the CRC32 checksum of the data section
+   */
+  private static long checksum(File file) throws IOException {
+    CRC32 crc = new CRC32();
+    try (InputStream in = openData(file)) {
+      byte[] chunk = new byte[CHECKSUM_BUFFER];
+      int len;
+      while ((len = in.read(chunk)) > 0) {
+        crc.update(chunk, 0, len);
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int x : values) {
+      out.writeInt(x);
+    }
+  }
+
+  private static int[] readInts(DataInputStream in, int size) throws IOException {
+    int[] values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  /**
+   * Writes strings as UTF8 bytes prefixed by their length with -1 for nulls.
+   */
+  private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+    for (String x : values) {
+      if (x == null) {
+        out.writeInt(-1);
+      } else {
+        byte[] bytes = x.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  private static String[] readStrings(DataInputStream in, int size) throws IOException {
+    String[] values = new String[size];
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < size; i++) {
+      int len = in.readInt();
+      if (len >= 0) {
+        if (len > bytes.length) {
+          bytes = new byte[Math.max(len, bytes.length * 2)];
+        }
+        in.readFully(bytes, 0, len);
+        values[i] = new String(bytes, 0, len, StandardCharsets.UTF_8);
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,34 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.checklistbank.config.ClbConfiguration;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * The available id lookup implementations which can be loaded from the checklistbank backbone.
+ */
+public enum IdLookupType {
+
+  /**
+   * {@link IdLookupImpl} keeping usages in a temporary MapDB file.
+   */
+  MAPDB,
+
+  /**
+   * {@link CompactIdLookup} keeping usages in primitive arrays on the heap.
+   */
+  COMPACT;
+
+  /**
+   * Loads a new id lookup of this type with all backbone usages.
+   */
+  public IdLookup load(ClbConfiguration clb, boolean includeDeleted) throws SQLException, IOException {
+    switch (this) {
+      case COMPACT:
+        return CompactIdLookup.load(clb, includeDeleted);
+      default:
+        return IdLookupImpl.temp().load(clb, includeDeleted);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * A single name to be matched against an id lookup in a batch.
+ */
+public class LookupQuery {
+  private final String canonical;
+  private final String authorship;
+  private final String year;
+  private final Rank rank;
+  private final Kingdom kingdom;
+
+  public LookupQuery(String canonical, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom) {
+    this.canonical = canonical;
+    this.authorship = authorship;
+    this.year = year;
+    this.rank = rank;
+    this.kingdom = kingdom;
+  }
+
+  public String getCanonical() {
+    return canonical;
+  }
+
+  @Nullable
+  public String getAuthorship() {
+    return authorship;
+  }
+
+  @Nullable
+  public String getYear() {
+    return year;
+  }
+
+  public Rank getRank() {
+    return rank;
+  }
+
+  public Kingdom getKingdom() {
+    return kingdom;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    LookupQuery that = (LookupQuery) o;
+    return Objects.equals(canonical, that.canonical) &&
+        Objects.equals(authorship, that.authorship) &&
+        Objects.equals(year, that.year) &&
+        rank == that.rank &&
+        kingdom == that.kingdom;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(canonical, authorship, year, rank, kingdom);
+  }
+
+  @Override
+  public String toString() {
+    return kingdom + " " + rank + " " + canonical + (authorship == null ? "" : " " + authorship) + (year == null ? "" : ", " + year);
+  }
+}
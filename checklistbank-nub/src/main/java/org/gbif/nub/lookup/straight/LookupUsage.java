@@ -2,6 +2,8 @@ package org.gbif.nub.lookup.straight;
 
 import org.gbif.api.vocabulary.Kingdom;
 import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.Authorship;
 
 import java.util.Objects;
 
@@ -19,6 +21,8 @@ public class LookupUsage implements Comparable<LookupUsage> {
     private Rank rank;
     private Kingdom kingdom;
     private boolean deleted;
+    // precompiled authorship, never persisted
+    private transient Authorship compiledAuthorship;
 
     public LookupUsage() {
     }
@@ -92,6 +96,16 @@ public class LookupUsage implements Comparable<LookupUsage> {
         this.deleted = deleted;
     }
 
+    /**
+     * @return the precompiled authorship and year of this usage, created with the given comparator on first use
+     */
+    public Authorship authorship(AuthorComparator comp) {
+        if (compiledAuthorship == null) {
+            compiledAuthorship = comp.authorship(authorship, year);
+        }
+        return compiledAuthorship;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(key, rank, kingdom, canonical, authorship, year, deleted);
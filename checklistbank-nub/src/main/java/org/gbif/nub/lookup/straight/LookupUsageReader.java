@@ -0,0 +1,84 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.postgres.TabMapperBase;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * Streams all backbone usages needed by an id lookup from postgres using the COPY command.
+ * Columns consumed:
+ * <ul>
+ *   <li>int key</li>
+ *   <li>String canonical</li>
+ *   <li>String authorship</li>
+ *   <li>String year</li>
+ *   <li>Rank rank</li>
+ *   <li>Kingdom kingdom</li>
+ *   <li>boolean deleted</li>
+ * </ul>
+ */
+abstract class LookupUsageReader extends TabMapperBase {
+
+  LookupUsageReader() {
+    // the number of columns in our query to consume
+    super(7);
+  }
+
+  /**
+   * Consumes a single usage read from postgres.
+   */
+  abstract void handle(LookupUsage u);
+
+  @Override
+  protected void addRow(String[] row) {
+    LookupUsage u = new LookupUsage(
+        toInt(row[0]),
+        row[1],
+        row[2],
+        row[3],
+        Rank.valueOf(row[4]),
+        Kingdom.byNubUsageId(toInt(row[5])),
+        "t".equals(row[6])
+    );
+    handle(u);
+  }
+
+  private static Integer toInt(String x) {
+    return x == null ? null : Integer.valueOf(x);
+  }
+
+  /**
+   * Reads all nub usages with keys in the given range and closes the reader at the end.
+   *
+   * @param fromKey first usage key to include
+   * @param toKey   first usage key to exclude
+   */
+  void read(ClbConfiguration clb, boolean includeDeleted, int fromKey, int toKey) throws SQLException, IOException {
+    try (Connection c = clb.connect()) {
+      final CopyManager cm = new CopyManager((BaseConnection) c);
+      cm.copyOut("COPY ("
+          + "SELECT u.id, coalesce(NULLIF(trim(n.canonical_name), ''), n.scientific_name), n.authorship, n.year, u.rank, u.kingdom_fk, deleted is not null"
+          + " FROM name_usage u join name n ON name_fk=n.id"
+          + " WHERE " + where(includeDeleted) + " AND u.id >= " + fromKey + " AND u.id < " + toKey + ")"
+          + " TO STDOUT WITH NULL ''", this);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * @return the sql where clause selecting all backbone usages to be read
+   */
+  static String where(boolean includeDeleted) {
+    return "u.dataset_key = '" + Constants.NUB_DATASET_KEY + "'" + (includeDeleted ? "" : " AND u.deleted is null");
+  }
+}
@@ -0,0 +1,202 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.utils.ExecutorUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads all backbone usages for an id lookup with several concurrent COPY streams.
+ * The backbone is partitioned into usage key ranges which are read on separate connections.
+ * Each chunk normalizes and groups its usages by canonical name on the worker thread,
+ * while completed chunks are merged into the lookup structure one by one on the calling thread.
+ * Only a limited number of chunks is in flight at any time to keep memory bounded.
+ */
+abstract class ParallelLookupLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelLookupLoader.class);
+  private static final String NAME = "id-lookup-loader";
+  private static final int MIN_CHUNK_SIZE = 10000;
+  private static final int MAX_CHUNK_SIZE = 250000;
+  // default number of concurrent COPY streams
+  static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  private final ClbConfiguration clb;
+  private final boolean includeDeleted;
+  private final int threads;
+
+  ParallelLookupLoader(ClbConfiguration clb, boolean includeDeleted, int threads) {
+    Preconditions.checkArgument(threads > 0, "At least one thread needed");
+    this.clb = clb;
+    this.includeDeleted = includeDeleted;
+    this.threads = threads;
+  }
+
+  /**
+   * Merges all usages of one chunk sharing the same normalized canonical name into the lookup.
+   * Always called from the loading thread, never concurrently.
+   */
+  abstract void merge(String norm, List<LookupUsage> usages);
+
+  /**
+   * Streams all usages with keys in the given range into the reader.
+   *
+   * @param fromKey first usage key to include
+   * @param toKey   first usage key to exclude
+   */
+  void read(LookupUsageReader reader, int fromKey, int toKey) throws SQLException, IOException {
+    reader.read(clb, includeDeleted, fromKey, toKey);
+  }
+
+  /**
+   * Usages of a single key range grouped by their normalized name.
+   */
+  private static class Chunk {
+    final Map<String, List<LookupUsage>> usages = new LinkedHashMap<String, List<LookupUsage>>();
+    int counter;
+    long millis;
+  }
+
+  /**
+   * Reads and normalizes all usages of a key range.
+   */
+  private class ChunkReader implements Callable<Chunk> {
+    private final int fromKey;
+    private final int toKey;
+
+    ChunkReader(int fromKey, int toKey) {
+      this.fromKey = fromKey;
+      this.toKey = toKey;
+    }
+
+    @Override
+    public Chunk call() throws Exception {
+      final StopWatch watch = new StopWatch();
+      watch.start();
+      final Chunk chunk = new Chunk();
+      read(new LookupUsageReader() {
+        @Override
+        void handle(LookupUsage u) {
+          String norm = IdLookupImpl.norm(u.getCanonical());
+          if (norm == null) {
+            LOG.warn("Missing canonical name for {} usage {}", u.getKingdom(), u.getKey());
+            return;
+          }
+          List<LookupUsage> group = chunk.usages.get(norm);
+          if (group == null) {
+            group = Lists.newArrayListWithCapacity(2);
+            chunk.usages.put(norm, group);
+          }
+          group.add(u);
+          chunk.counter++;
+        }
+      }, fromKey, toKey);
+      chunk.millis = watch.getTime();
+      LOG.debug("Read {} usages with keys {}-{} in {}ms", chunk.counter, fromKey, toKey, chunk.millis);
+      return chunk;
+    }
+  }
+
+  /**
+   * @return the min and max usage key of the backbone or null if it is empty
+   */
+  int[] keyRange() throws SQLException {
+    try (Connection c = clb.connect();
+         Statement st = c.createStatement();
+         ResultSet rs = st.executeQuery("SELECT min(u.id), max(u.id) FROM name_usage u WHERE " + LookupUsageReader.where(includeDeleted))
+    ) {
+      rs.next();
+      int min = rs.getInt(1);
+      return rs.wasNull() ? null : new int[]{min, rs.getInt(2)};
+    }
+  }
+
+  /**
+   * Reads all backbone usages and merges them into the lookup.
+   *
+   * @return the number of usages loaded
+   */
+  int load() throws SQLException, IOException {
+    final StopWatch watch = new StopWatch();
+    watch.start();
+    final int[] range = keyRange();
+    final long rangeMillis = watch.getTime();
+    if (range == null) {
+      LOG.info("No backbone usages existing");
+      return 0;
+    }
+
+    // use several chunks per thread to even out sparse key ranges
+    final int chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (range[1] - range[0]) / (threads * 4) + 1));
+    LOG.info("Loading backbone usages with keys {}-{} in chunks of {} keys with {} threads", range[0], range[1], chunkSize, threads);
+
+    ExecutorService exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory(NAME));
+    CompletionService<Chunk> cs = new ExecutorCompletionService<Chunk>(exec);
+    int counter = 0;
+    int chunks = 0;
+    long readMillis = 0;
+    long mergeMillis = 0;
+    try {
+      int nextKey = range[0];
+      int running = 0;
+      while (nextKey <= range[1] || running > 0) {
+        // keep at most 2 chunks per thread in flight
+        while (nextKey <= range[1] && running < threads * 2) {
+          int toKey = (int) Math.min((long) nextKey + chunkSize, (long) range[1] + 1);
+          cs.submit(new ChunkReader(nextKey, toKey));
+          nextKey = toKey;
+          running++;
+        }
+        Chunk chunk = cs.take().get();
+        running--;
+        chunks++;
+        readMillis += chunk.millis;
+
+        final long mergeStart = watch.getTime();
+        for (Map.Entry<String, List<LookupUsage>> e : chunk.usages.entrySet()) {
+          merge(e.getKey(), e.getValue());
+        }
+        mergeMillis += watch.getTime() - mergeStart;
+        counter += chunk.counter;
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading backbone usages", e);
+
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new IOException("Failed to load backbone usages", e.getCause());
+
+    } finally {
+      exec.shutdownNow();
+      ExecutorUtils.stop(exec, NAME, 1, TimeUnit.MINUTES);
+    }
+
+    LOG.info("Loaded {} backbone usages from {} chunks in {}ms. Key range query {}ms, copy & normalize {}ms total over {} threads, merge {}ms",
+        counter, chunks, watch.getTime(), rangeMillis, readMillis, threads, mergeMillis);
+    return counter;
+  }
+}
@@ -1,6 +1,5 @@
 package org.gbif.nub.mapdb;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -17,12 +16,28 @@ import org.mapdb.serializer.GroupSerializerObjectArray;
 
 /**
  * A mapDB serializer that uses kryo under the hood to quickly serialize objects into the mapdb data output/input.
+ * Kryo writes into a reusable, thread local buffer which is copied straight into the mapdb output,
+ * and reads from a reusable, thread local input. No intermediate streams or byte arrays are created per object.
  * @param <T> the class to serialize
  */
 public class MapDbObjectSerializer<T> extends GroupSerializerObjectArray<T> {
+    // buffers that grew larger than this are not kept for reuse
+    private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
     private final KryoPool pool;
     private final int bufferSize;
     private final Class<T> clazz;
+    private final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+      @Override
+      protected Output initialValue() {
+        return new Output(bufferSize, -1);
+      }
+    };
+    private final ThreadLocal<Input> inputs = new ThreadLocal<Input>() {
+      @Override
+      protected Input initialValue() {
+        return new Input(bufferSize);
+      }
+    };
 
   public MapDbObjectSerializer(Class<T> clazz, KryoFactory kryoFactory) {
     this(clazz, new KryoPool.Builder(kryoFactory).softReferences().build(), 256);
@@ -37,16 +52,17 @@ public class MapDbObjectSerializer<T> extends GroupSerializerObjectArray<T> {
   @Override
   public void serialize(@NotNull DataOutput2 out, @NotNull T value) throws IOException {
     Kryo kryo = pool.borrow();
+    Output output = outputs.get();
     try {
-      ByteArrayOutputStream buffer = new ByteArrayOutputStream(bufferSize);
-      Output output = new Output(buffer, bufferSize);
+      output.clear();
       kryo.writeObject(output, value);
-      output.close();
-      byte[] bytes = buffer.toByteArray();
-      DataIO.packInt(out, bytes.length);
-      out.write(bytes);
+      DataIO.packInt(out, output.position());
+      out.write(output.getBuffer(), 0, output.position());
     } finally {
       pool.release(kryo);
+      if (output.getBuffer().length > MAX_KEPT_BUFFER_SIZE) {
+        outputs.remove();
+      }
     }
   }
 
@@ -54,13 +70,21 @@ public class MapDbObjectSerializer<T> extends GroupSerializerObjectArray<T> {
   public T deserialize(@NotNull DataInput2 in, int available) throws IOException {
     if(available==0) return null;
     Kryo kryo = pool.borrow();
+    Input input = inputs.get();
     try {
       int size = DataIO.unpackInt(in);
-      byte[] ret = new byte[size];
-      in.readFully(ret);
-      return kryo.readObject(new Input(ret), clazz);
+      byte[] buf = input.getBuffer();
+      if (buf.length < size) {
+        buf = new byte[size];
+      }
+      in.readFully(buf, 0, size);
+      input.setBuffer(buf, 0, size);
+      return kryo.readObject(input, clazz);
     } finally {
       pool.release(kryo);
+      if (input.getBuffer().length > MAX_KEPT_BUFFER_SIZE) {
+        inputs.remove();
+      }
     }
   }
 
@@ -3,6 +3,7 @@ package org.gbif.nub.lookup;
 import org.gbif.api.model.checklistbank.NameUsageMatch;
 import org.gbif.api.service.checklistbank.NameUsageMatchingService;
 import org.gbif.nameparser.NameParser;
+import org.gbif.nub.lookup.fuzzy.BatchMatcher;
 import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
 import org.gbif.nub.lookup.fuzzy.NubIndex;
 import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
@@ -39,6 +40,7 @@ public class NubMatchingTestModule extends PrivateModule {
 
     bind(NameUsageMatchingService.class).to(NubMatchingServiceImpl.class).asEagerSingleton();
     expose(NameUsageMatchingService.class);
+    expose(BatchMatcher.class);
   }
 
   @Provides
@@ -47,6 +49,12 @@ public class NubMatchingTestModule extends PrivateModule {
     return NubIndex.newMemoryIndex(loadIndexJson());
   }
 
+  @Provides
+  @Singleton
+  public static BatchMatcher provideBatchMatcher(NameUsageMatchingService matchingService) {
+    return new BatchMatcher(matchingService);
+  }
+
   @Provides
   @Singleton
   public static IdLookup provideLookup() throws IOException {
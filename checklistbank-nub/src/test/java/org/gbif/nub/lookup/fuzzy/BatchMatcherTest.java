@@ -0,0 +1,102 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchMatcherTest {
+
+  /**
+   * Fake matching service returning the name, rank and family of the query with some random delay.
+   */
+  private static class EchoMatcher implements NameUsageMatchingService {
+    private final Random rnd = new Random();
+
+    @Override
+    public NameUsageMatch match(String scientificName, @Nullable Rank rank, @Nullable LinneanClassification classification,
+                                boolean strict, boolean verbose) {
+      if (scientificName.startsWith("Fail")) {
+        throw new IllegalArgumentException("Bad name " + scientificName);
+      }
+      try {
+        Thread.sleep(rnd.nextInt(3));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      NameUsageMatch m = new NameUsageMatch();
+      m.setScientificName(scientificName);
+      m.setRank(rank);
+      m.setFamily(classification.getFamily());
+      m.setMatchType(strict ? NameUsageMatch.MatchType.EXACT : NameUsageMatch.MatchType.FUZZY);
+      return m;
+    }
+  }
+
+  @Test
+  public void testMatchOrder() throws IOException {
+    List<MatchQuery> queries = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      MatchQuery q = new MatchQuery("Abies alba " + i);
+      q.setRank(i % 2 == 0 ? "species" : "nonsense");
+      q.setFamily("Pinaceae");
+      queries.add(q);
+    }
+
+    final List<NameUsageMatch> results = Lists.newArrayList();
+    try (BatchMatcher batch = new BatchMatcher(new EchoMatcher(), 4, 5)) {
+      int counter = batch.match(queries.iterator(), true, false, new BatchMatcher.MatchHandler() {
+        @Override
+        public void handle(MatchQuery query, NameUsageMatch match) throws IOException {
+          assertEquals(query.getName(), match.getScientificName());
+          results.add(match);
+        }
+      });
+      assertEquals(1000, counter);
+    }
+
+    assertEquals(1000, results.size());
+    for (int i = 0; i < 1000; i++) {
+      NameUsageMatch m = results.get(i);
+      assertEquals("Abies alba " + i, m.getScientificName());
+      assertEquals(i % 2 == 0 ? Rank.SPECIES : null, m.getRank());
+      assertEquals("Pinaceae", m.getFamily());
+      assertEquals(NameUsageMatch.MatchType.EXACT, m.getMatchType());
+    }
+  }
+
+  @Test
+  public void testFailingMatch() throws IOException {
+    List<MatchQuery> queries = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      queries.add(new MatchQuery(i == 42 ? "Failing name" : "Abies alba " + i));
+    }
+
+    final List<NameUsageMatch> results = Lists.newArrayList();
+    try (BatchMatcher batch = new BatchMatcher(new EchoMatcher(), 4, 5)) {
+      int counter = batch.match(queries.iterator(), true, false, new BatchMatcher.MatchHandler() {
+        @Override
+        public void handle(MatchQuery query, NameUsageMatch match) throws IOException {
+          results.add(match);
+        }
+      });
+      assertEquals(100, counter);
+    }
+
+    assertEquals(100, results.size());
+    assertEquals(NameUsageMatch.MatchType.NONE, results.get(42).getMatchType());
+    assertTrue(results.get(42).getNote().contains("Bad name Failing name"));
+    assertEquals("Abies alba 43", results.get(43).getScientificName());
+  }
+}
@@ -0,0 +1,91 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.api.vocabulary.Rank;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CachedMatchingServiceTest {
+
+  private static class CountingMatcher implements NameUsageMatchingService {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public NameUsageMatch match(String scientificName, @Nullable Rank rank, @Nullable LinneanClassification classification,
+                                boolean strict, boolean verbose) {
+      NameUsageMatch m = new NameUsageMatch();
+      m.setUsageKey(counter.incrementAndGet());
+      m.setScientificName(scientificName);
+      return m;
+    }
+  }
+
+  private static LinneanClassification cl(String kingdom, String family) {
+    LinneanClassification cl = new NameUsageMatch();
+    cl.setKingdom(kingdom);
+    cl.setFamily(family);
+    return cl;
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    CountingMatcher matcher = new CountingMatcher();
+    CachedMatchingService cache = new CachedMatchingService(matcher, 100, 10);
+
+    NameUsageMatch m1 = cache.match("Abies alba", Rank.SPECIES, cl("Plantae", "Pinaceae"), false, false);
+    assertSame(m1, cache.match("Abies alba", Rank.SPECIES, cl("Plantae", "Pinaceae"), false, false));
+    // normalized whitespace and empty strings
+    assertSame(m1, cache.match(" Abies   alba", Rank.SPECIES, cl("Plantae ", "Pinaceae"), false, false));
+    assertEquals(1, matcher.counter.get());
+
+    // different queries
+    assertNotSame(m1, cache.match("Abies alba", null, cl("Plantae", "Pinaceae"), false, false));
+    assertNotSame(m1, cache.match("Abies alba", Rank.SPECIES, cl("Animalia", "Pinaceae"), false, false));
+    assertNotSame(m1, cache.match("Abies alba", Rank.SPECIES, cl("Plantae", "Pinaceae"), true, false));
+    assertNotSame(m1, cache.match("Abies alba", Rank.SPECIES, cl("Plantae", "Pinaceae"), false, true));
+    assertNotSame(m1, cache.match("Abies alba", Rank.SPECIES, null, false, false));
+    assertEquals(6, matcher.counter.get());
+    assertEquals(6, cache.size());
+    assertEquals(2, cache.stats().hitCount());
+    assertEquals(6, cache.stats().missCount());
+
+    cache.invalidate();
+    assertEquals(0, cache.size());
+    assertNotSame(m1, cache.match("Abies alba", Rank.SPECIES, cl("Plantae", "Pinaceae"), false, false));
+    assertEquals(7, matcher.counter.get());
+  }
+
+  @Test
+  public void testCacheHitMetrics() throws Exception {
+    MatchingMetrics metrics = new MatchingMetrics();
+    CachedMatchingService cache = new CachedMatchingService(new CountingMatcher(), 100, 10, metrics);
+    cache.match("Abies alba", Rank.SPECIES, null, false, false);
+    cache.match("Abies alba", Rank.SPECIES, null, false, false);
+    cache.match("Abies alba", Rank.SPECIES, null, false, false);
+    // the counting matcher records no metrics itself, so only the 2 hits show up
+    assertEquals(2, metrics.getRegistry().counter(MatchingMetrics.CACHE_HITS).getCount());
+    assertEquals(2, metrics.getRegistry().timer(MatchingMetrics.LATENCY).getCount());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    CountingMatcher matcher = new CountingMatcher();
+    CachedMatchingService cache = new CachedMatchingService(matcher, 10, 0);
+    for (int i = 0; i < 100; i++) {
+      cache.match("Abies alba " + i, null, null, false, false);
+    }
+    assertEquals(100, matcher.counter.get());
+    assertTrue(cache.size() <= 10);
+    assertEquals(100 - cache.size(), cache.stats().evictionCount());
+  }
+}
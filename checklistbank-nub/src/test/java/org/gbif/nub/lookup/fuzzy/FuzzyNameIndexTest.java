@@ -0,0 +1,110 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyNameIndexTest {
+
+  private static List<String> names(List<FuzzyNameIndex.Match> matches) {
+    List<String> names = Lists.newArrayList();
+    for (FuzzyNameIndex.Match m : matches) {
+      names.add(m.name);
+    }
+    return names;
+  }
+
+  @Test
+  public void testDistance() throws Exception {
+    assertEquals(0, FuzzyNameIndex.distance("abies", "abies", 2));
+    assertEquals(1, FuzzyNameIndex.distance("abies", "abie", 2));
+    assertEquals(1, FuzzyNameIndex.distance("abies", "abeis", 2));
+    assertEquals(1, FuzzyNameIndex.distance("abies", "abyes", 2));
+    assertEquals(2, FuzzyNameIndex.distance("abies alba", "abies albus", 2));
+    assertEquals(3, FuzzyNameIndex.distance("abies alba", "picea alba", 2));
+    assertEquals(2, FuzzyNameIndex.distance("abies", "abiesxyz", 1));
+  }
+
+  @Test
+  public void testLookup() throws Exception {
+    FuzzyNameIndex idx = FuzzyNameIndex.build(ImmutableSortedSet.of(
+        "abies", "abies alba", "abies albus", "abies negra", "abies nigra", "abis alba", "picea abies", "pinus"
+    ).iterator());
+    assertEquals(8, idx.size());
+
+    assertEquals(Lists.newArrayList("abies alba"), names(idx.lookup("abies alba", 0)));
+    assertEquals(Lists.newArrayList("abies alba", "abis alba"), names(idx.lookup("abies alba", 1)));
+    assertEquals(Lists.newArrayList("abies alba", "abis alba", "abies albus"), names(idx.lookup("abies alba", 2)));
+    assertEquals(Lists.newArrayList("abies negra", "abies nigra"), names(idx.lookup("abies nagra", 1)));
+    // transposition
+    assertEquals(Lists.newArrayList("abies alba", "abis alba"), names(idx.lookup("abeis alba", 1)));
+    // the first character must match
+    assertTrue(idx.lookup("bies alba", 2).isEmpty());
+    assertEquals(Lists.newArrayList("pinus"), names(idx.lookup("pinnus", 1)));
+    assertEquals(Lists.newArrayList("abies"), names(idx.lookup("abie", 1)));
+  }
+
+  /**
+   * Compares lookups against a brute force scan of all names.
+   */
+  @Test
+  public void testBruteForce() throws Exception {
+    Random rnd = new Random(42);
+    TreeSet<String> names = Sets.newTreeSet();
+    while (names.size() < 5000) {
+      names.add(randomName(rnd));
+    }
+    FuzzyNameIndex idx = FuzzyNameIndex.build(names.iterator());
+    for (int i = 0; i < 500; i++) {
+      String query = i % 2 == 0 ? mutate(names.toArray(new String[0])[rnd.nextInt(names.size())], rnd) : randomName(rnd);
+      for (int maxEdits = 0; maxEdits <= FuzzyNameIndex.MAX_EDITS; maxEdits++) {
+        TreeSet<String> expected = Sets.newTreeSet();
+        for (String n : names) {
+          if (n.charAt(0) == query.charAt(0) && FuzzyNameIndex.distance(query, n, maxEdits) <= maxEdits) {
+            expected.add(n);
+          }
+        }
+        assertEquals(query, expected, Sets.newTreeSet(names(idx.lookup(query, maxEdits))));
+      }
+    }
+  }
+
+  private static String randomName(Random rnd) {
+    StringBuilder sb = new StringBuilder();
+    int len = 3 + rnd.nextInt(12);
+    for (int i = 0; i < len; i++) {
+      sb.append((char) ('a' + rnd.nextInt(4)));
+    }
+    return sb.toString();
+  }
+
+  private static String mutate(String x, Random rnd) {
+    StringBuilder sb = new StringBuilder(x);
+    int edits = 1 + rnd.nextInt(2);
+    for (int e = 0; e < edits; e++) {
+      int pos = 1 + rnd.nextInt(sb.length() - 1);
+      switch (rnd.nextInt(3)) {
+        case 0:
+          sb.deleteCharAt(pos);
+          break;
+        case 1:
+          sb.insert(pos, 'd');
+          break;
+        default:
+          sb.setCharAt(pos, 'b');
+      }
+      if (sb.length() < 2) {
+        sb.append('a');
+      }
+    }
+    return sb.toString();
+  }
+}
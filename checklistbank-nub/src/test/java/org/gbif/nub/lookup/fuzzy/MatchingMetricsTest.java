@@ -0,0 +1,75 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+
+import java.util.Map;
+
+import com.yammer.metrics.Gauge;
+import com.yammer.metrics.MetricRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MatchingMetricsTest {
+
+  private static NameUsageMatch match(NameUsageMatch.MatchType type, Integer confidence) {
+    NameUsageMatch m = new NameUsageMatch();
+    m.setMatchType(type);
+    m.setConfidence(confidence);
+    return m;
+  }
+
+  @Test
+  public void testMatched() throws Exception {
+    MatchingMetrics metrics = new MatchingMetrics();
+    MetricRegistry reg = metrics.getRegistry();
+
+    metrics.matched(match(NameUsageMatch.MatchType.EXACT, 98));
+    metrics.matched(match(NameUsageMatch.MatchType.EXACT, 100));
+    metrics.matched(match(NameUsageMatch.MatchType.FUZZY, 92));
+    metrics.matched(match(NameUsageMatch.MatchType.NONE, null));
+
+    assertEquals(2, reg.counter(MatchingMetrics.TYPE_PREFIX + "exact").getCount());
+    assertEquals(1, reg.counter(MatchingMetrics.TYPE_PREFIX + "fuzzy").getCount());
+    assertEquals(1, reg.counter(MatchingMetrics.TYPE_PREFIX + "none").getCount());
+    assertEquals(0, reg.counter(MatchingMetrics.TYPE_PREFIX + "higherrank").getCount());
+    assertEquals(3, reg.histogram(MatchingMetrics.CONFIDENCE).getCount());
+  }
+
+  @Test
+  public void testQueried() throws Exception {
+    MatchingMetrics metrics = new MatchingMetrics();
+    metrics.queried(NubMatchingServiceImpl.MatchingMode.FUZZY);
+    metrics.queried(NubMatchingServiceImpl.MatchingMode.HIGHER);
+    metrics.queried(NubMatchingServiceImpl.MatchingMode.HIGHER);
+
+    MetricRegistry reg = metrics.getRegistry();
+    assertEquals(1, reg.counter(MatchingMetrics.MODE_PREFIX + "fuzzy").getCount());
+    assertEquals(2, reg.counter(MatchingMetrics.MODE_PREFIX + "higher").getCount());
+    assertEquals(0, reg.counter(MatchingMetrics.MODE_PREFIX + "strict").getCount());
+  }
+
+  @Test
+  public void testAuthorCaches() throws Exception {
+    MatchingMetrics metrics = new MatchingMetrics();
+    AuthorComparator comp = AuthorComparator.createWithoutAuthormap();
+    metrics.authorCaches(comp);
+    // registering again replaces the gauges
+    metrics.authorCaches(comp);
+
+    comp.compare("L.", null, "Linnaeus", null);
+    comp.compare("L.", null, "Linnaeus", null);
+    Map<String, Gauge> gauges = metrics.getRegistry().getGauges();
+    assertEquals(0.5, (Double) gauges.get(MatchingMetrics.AUTHOR_NORM_HITRATE).getValue(), 0.001);
+    assertEquals(0.5, (Double) gauges.get(MatchingMetrics.AUTHOR_PAIR_HITRATE).getValue(), 0.001);
+    assertEquals(3L, gauges.get(MatchingMetrics.AUTHOR_CACHE_SIZE).getValue());
+  }
+
+  @Test
+  public void testTime() throws Exception {
+    MatchingMetrics metrics = new MatchingMetrics();
+    metrics.time().stop();
+    assertEquals(1, metrics.getRegistry().timer(MatchingMetrics.LATENCY).getCount());
+  }
+}
@@ -0,0 +1,108 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+
+import java.io.File;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NubIndexReloadTest {
+
+  private static NameUsage usage(int key, String name) {
+    NameUsage u = new NameUsage();
+    u.setKey(key);
+    u.setScientificName(name);
+    u.setRank(Rank.SPECIES);
+    u.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+    u.setKingdom("Plantae");
+    return u;
+  }
+
+  /**
+   * @return a mocked mapper that passes the given usages to the result handler of processDataset
+   */
+  private static NameUsageMapper mapper(final NameUsage ... usages) {
+    NameUsageMapper mapper = mock(NameUsageMapper.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        ResultHandler<NameUsage> handler = (ResultHandler<NameUsage>) invocation.getArguments()[1];
+        for (NameUsage u : usages) {
+          ResultContext ctx = mock(ResultContext.class);
+          when(ctx.getResultObject()).thenReturn(u);
+          handler.handleResult(ctx);
+        }
+        return null;
+      }
+    }).when(mapper).processDataset(eq(Constants.NUB_DATASET_KEY), any(ResultHandler.class));
+    return mapper;
+  }
+
+  private static void assertIndex(NubIndex index, String present, String absent) {
+    assertEquals(present, index.matchByName(present, false, 2).get(0).getCanonicalName());
+    assertTrue(index.matchByName(absent, false, 2).isEmpty());
+  }
+
+  @Test
+  public void testMemoryReload() throws Exception {
+    NubIndex index = NubIndex.newMemoryIndex(mapper(usage(1, "Abies alba Mill."), usage(2, "Abies negra")));
+    assertIndex(index, "Abies alba", "Picea abies");
+
+    index.reload(mapper(usage(1, "Abies alba Mill."), usage(3, "Picea abies (L.) H.Karst.")));
+    assertIndex(index, "Picea abies", "Abies negra");
+    assertEquals((Integer) 3, index.matchByUsageId(3).getUsageKey());
+    assertNull(index.matchByUsageId(2));
+    index.close();
+  }
+
+  @Test
+  public void testFileReload() throws Exception {
+    File tmp = Files.createTempDir();
+    File dir = new File(tmp, "nubidx");
+    try {
+      NubIndex index = NubIndex.newFileIndex(dir, mapper(usage(1, "Abies alba Mill."), usage(2, "Abies negra")));
+      assertIndex(index, "Abies negra", "Picea abies");
+
+      index.reload(mapper(usage(3, "Picea abies (L.) H.Karst.")));
+      assertIndex(index, "Picea abies", "Abies negra");
+      assertFalse(new File(tmp, "nubidx.new").exists());
+      assertFalse(new File(tmp, "nubidx.old").exists());
+      index.close();
+
+      // reopen the reloaded index from disk
+      index = NubIndex.newFileIndex(dir, null);
+      assertIndex(index, "Picea abies", "Abies alba");
+      index.close();
+
+      // an interrupted directory replacement leaves only the previous index which gets restored
+      assertTrue(dir.renameTo(new File(tmp, "nubidx.old")));
+      index = NubIndex.newFileIndex(dir, null);
+      assertIndex(index, "Picea abies", "Abies alba");
+      assertFalse(new File(tmp, "nubidx.old").exists());
+      index.close();
+
+    } finally {
+      FileUtils.deleteQuietly(tmp);
+    }
+  }
+}
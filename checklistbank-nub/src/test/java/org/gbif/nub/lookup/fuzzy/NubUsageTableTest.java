@@ -0,0 +1,74 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NubUsageTableTest {
+
+  @Test
+  public void testTable() throws Exception {
+    NameUsageMatch abies = new NameUsageMatch();
+    abies.setUsageKey(7);
+    abies.setScientificName("Abies alba Mill.");
+    abies.setCanonicalName("Abies alba");
+    abies.setKingdom("Plantae");
+    abies.setKingdomKey(6);
+    abies.setFamily("Pinaceae");
+    abies.setFamilyKey(3925);
+    abies.setGenus("Abies");
+    abies.setGenusKey(2685484);
+    abies.setSpecies("Abies alba");
+    abies.setSpeciesKey(7);
+    abies.setRank(Rank.SPECIES);
+    abies.setStatus(TaxonomicStatus.ACCEPTED);
+
+    NameUsageMatch incertae = new NameUsageMatch();
+    incertae.setUsageKey(0);
+    incertae.setScientificName("incertae sedis");
+    incertae.setKingdom("incertae sedis");
+    incertae.setKingdomKey(0);
+    incertae.setRank(Rank.KINGDOM);
+    incertae.setStatus(TaxonomicStatus.DOUBTFUL);
+
+    NubUsageTable.Builder builder = new NubUsageTable.Builder(4);
+    builder.set(0, abies);
+    builder.set(2, incertae);
+    NubUsageTable table = builder.build();
+
+    assertEquals(4, table.size());
+    assertNull(table.get(1));
+    assertNull(table.key(3));
+    assertEquals((Integer) 0, table.key(2));
+
+    NameUsageMatch m = table.get(0);
+    assertEquals(abies.getUsageKey(), m.getUsageKey());
+    assertEquals(abies.getScientificName(), m.getScientificName());
+    assertEquals(abies.getCanonicalName(), m.getCanonicalName());
+    assertEquals("Plantae", m.getKingdom());
+    assertEquals((Integer) 6, m.getKingdomKey());
+    assertNull(m.getPhylum());
+    assertNull(m.getPhylumKey());
+    assertEquals("Pinaceae", m.getFamily());
+    assertEquals((Integer) 3925, m.getFamilyKey());
+    assertEquals("Abies", m.getGenus());
+    assertEquals((Integer) 2685484, m.getGenusKey());
+    assertEquals("Abies alba", m.getSpecies());
+    assertEquals((Integer) 7, m.getSpeciesKey());
+    assertEquals(Rank.SPECIES, m.getRank());
+    assertEquals(TaxonomicStatus.ACCEPTED, m.getStatus());
+
+    m = table.get(2);
+    assertEquals((Integer) 0, m.getUsageKey());
+    assertNull(m.getCanonicalName());
+    assertEquals("incertae sedis", m.getKingdom());
+    assertEquals((Integer) 0, m.getKingdomKey());
+    assertEquals(Rank.KINGDOM, m.getRank());
+    assertEquals(TaxonomicStatus.DOUBTFUL, m.getStatus());
+  }
+}
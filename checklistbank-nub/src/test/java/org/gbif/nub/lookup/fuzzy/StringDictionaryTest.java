@@ -0,0 +1,34 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StringDictionaryTest {
+
+  @Test
+  public void testDictionary() throws Exception {
+    StringDictionary.Builder builder = new StringDictionary.Builder();
+    assertEquals(0, builder.intern("Plantae"));
+    assertEquals(1, builder.add("Abies alba Mill."));
+    assertEquals(0, builder.intern("Plantae"));
+    assertEquals(2, builder.add("Plantae"));
+    assertEquals(3, builder.add(""));
+    assertEquals(4, builder.add("Abiés älba Müll."));
+    // grow buffers beyond their initial size
+    for (int i = 0; i < 100000; i++) {
+      assertEquals(i + 5, builder.add("Abies alba var. " + i + " Mill."));
+    }
+
+    StringDictionary dict = builder.build();
+    assertEquals(100005, dict.size());
+    assertEquals("Plantae", dict.get(0));
+    assertEquals("Abies alba Mill.", dict.get(1));
+    assertEquals("Plantae", dict.get(2));
+    assertEquals("", dict.get(3));
+    assertEquals("Abiés älba Müll.", dict.get(4));
+    for (int i = 0; i < 100000; i++) {
+      assertEquals("Abies alba var. " + i + " Mill.", dict.get(i + 5));
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.gbif.nub.lookup.straight;
+
+import java.util.Collection;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs all IdLookupImpl tests against the compact implementation.
+ */
+public class CompactIdLookupTest extends IdLookupImplTest {
+
+  @Override
+  protected IdLookup create(Collection<LookupUsage> usages) {
+    return CompactIdLookup.build(usages);
+  }
+
+  @Test
+  public void testStats() throws Exception {
+    assertEquals(16, l.size());
+    assertEquals(9, l.deletedIds());
+    assertEquals(16, l.getKeyMax());
+  }
+
+  @Test
+  public void testIterator() throws Exception {
+    Set<LookupUsage> all = Sets.newHashSet(l);
+    assertEquals(Sets.newHashSet(testUsages()), all);
+  }
+
+  @Test
+  public void testListMatch() throws Exception {
+    assertEquals(3, l.match("Oenanthe aquatica").size());
+    assertEquals(3, l.match("OENANTHE  Aquatica").size());
+    assertEquals(0, l.match("Oenanthe alba").size());
+    assertEquals(0, l.match(" ").size());
+  }
+}
@@ -6,6 +6,11 @@ import org.gbif.api.vocabulary.Rank;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.common.collect.Lists;
 import org.junit.Before;
@@ -19,11 +24,22 @@ public class IdLookupImplTest {
 
   @Before
   public void init() {
-    l = newTestLookup();
+    l = create(testUsages());
+  }
+
+  /**
+   * Creates the lookup implementation to be tested.
+   */
+  protected IdLookup create(Collection<LookupUsage> usages) {
+    return IdLookupImpl.temp().load(usages);
   }
 
   public static IdLookup newTestLookup() {
-    Collection<LookupUsage> usages = Lists.newArrayList(
+    return IdLookupImpl.temp().load(testUsages());
+  }
+
+  static Collection<LookupUsage> testUsages() {
+    return Lists.newArrayList(
         new LookupUsage(1, "Animalia", null, null, Rank.KINGDOM, Kingdom.ANIMALIA, false),
         new LookupUsage(2, "Oenanthe", "Vieillot", "1816", Rank.GENUS, Kingdom.ANIMALIA, false),
         new LookupUsage(3, "Oenanthe", "Linnaeus", "1753", Rank.GENUS, Kingdom.PLANTAE, false),
@@ -41,7 +57,6 @@ public class IdLookupImplTest {
         new LookupUsage(15, "Carex comosa × Carex lupulina", null, null, Rank.SPECIES, Kingdom.PLANTAE, true),
         new LookupUsage(16, "Aeropyrum coil-shaped virus", null, null, Rank.UNRANKED, Kingdom.VIRUSES, true)
     );
-    return IdLookupImpl.temp().load(usages);
   }
 
   @Test
@@ -66,6 +81,86 @@ public class IdLookupImplTest {
   @Test
   public void testLookup() throws IOException, SQLException {
     assertEquals(16, l.size());
+    assertMatches();
+  }
+
+  /**
+   * Hammers a single lookup instance from many threads making sure matching never changes the stored candidates.
+   */
+  @Test
+  public void testConcurrentMatch() throws Exception {
+    ExecutorService exec = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int i = 0; i < 64; i++) {
+        futures.add(exec.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int x = 0; x < 20; x++) {
+              assertMatches();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> f : futures) {
+        f.get();
+      }
+    } finally {
+      exec.shutdownNow();
+    }
+    assertEquals(16, l.size());
+    assertEquals(3, l.match("Oenanthe aquatica").size());
+  }
+
+  @Test
+  public void testBatchMatch() throws Exception {
+    List<LookupQuery> queries = Lists.newArrayList(
+        new LookupQuery("Rodentia", "Bowdich", null, Rank.ORDER, Kingdom.ANIMALIA),
+        new LookupQuery("Rodentia", null, null, Rank.ORDER, Kingdom.PLANTAE),
+        new LookupQuery("Oenanthe", null, null, Rank.GENUS, Kingdom.PLANTAE),
+        new LookupQuery("Œnanthe", "Vieillot", null, Rank.GENUS, Kingdom.ANIMALIA),
+        new LookupQuery("Oenanthe", null, null, Rank.GENUS, Kingdom.INCERTAE_SEDIS),
+        new LookupQuery("Abies alba", "Mumpf.", null, Rank.SPECIES, Kingdom.PLANTAE),
+        new LookupQuery("Abies alba", null, null, Rank.SPECIES, Kingdom.PLANTAE),
+        new LookupQuery("Unknown name", null, null, Rank.SPECIES, Kingdom.PLANTAE),
+        new LookupQuery(" ", null, null, Rank.SPECIES, Kingdom.PLANTAE)
+    );
+    // small batch on the calling thread
+    assertBatch(queries);
+
+    // large batch matched in parallel
+    List<LookupQuery> large = Lists.newArrayList();
+    for (int i = 0; i < 500; i++) {
+      large.addAll(queries);
+    }
+    assertBatch(large);
+  }
+
+  private void assertBatch(List<LookupQuery> queries) {
+    List<LookupUsage> matches = l.match(queries);
+    assertEquals(queries.size(), matches.size());
+    for (int idx = 0; idx < queries.size(); idx++) {
+      LookupQuery q = queries.get(idx);
+      assertEquals(l.match(q.getCanonical(), q.getAuthorship(), q.getYear(), q.getRank(), q.getKingdom()), matches.get(idx));
+    }
+    assertEquals(7, matches.get(0).getKey());
+    assertNull(matches.get(1));
+    assertEquals(3, matches.get(2).getKey());
+    assertEquals(2, matches.get(3).getKey());
+    assertNull(matches.get(4));
+    assertEquals(10, matches.get(5).getKey());
+    assertEquals(9, matches.get(6).getKey());
+    assertNull(matches.get(7));
+    assertNull(matches.get(8));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableCandidates() throws Exception {
+    l.match("Oenanthe aquatica").clear();
+  }
+
+  private void assertMatches() {
     assertEquals(1, l.match("Animalia", Rank.KINGDOM, Kingdom.ANIMALIA).getKey());
 
     assertEquals(7, l.match("Rodentia", Rank.ORDER, Kingdom.ANIMALIA).getKey());
@@ -0,0 +1,73 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class IdLookupSnapshotTest {
+  private File dir;
+  private File file;
+  private CompactIdLookup lookup;
+
+  @Before
+  public void init() {
+    dir = Files.createTempDir();
+    file = new File(dir, "idlookup.bin");
+    lookup = CompactIdLookup.build(IdLookupImplTest.testUsages());
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void testRoundtrip() throws Exception {
+    IdLookupSnapshot.write(lookup, 7, false, file);
+    assertFalse(new File(dir, "idlookup.bin.tmp").exists());
+
+    IdLookupSnapshot.Header h = IdLookupSnapshot.header(file);
+    assertEquals(7, h.backboneVersion);
+    assertEquals(16, h.keyMax);
+    assertEquals(16, h.usages);
+
+    CompactIdLookup l2 = IdLookupSnapshot.read(file, 7, false);
+    assertEquals(lookup.size(), l2.size());
+    assertEquals(lookup.deletedIds(), l2.deletedIds());
+    assertEquals(lookup.getKeyMax(), l2.getKeyMax());
+    assertEquals(Sets.newHashSet(lookup), Sets.newHashSet(l2));
+    assertEquals(3, l2.match("Oenanthe aquatica").size());
+    assertEquals(lookup.match("Abies alba", Rank.SPECIES, Kingdom.PLANTAE), l2.match("Abies alba", Rank.SPECIES, Kingdom.PLANTAE));
+  }
+
+  @Test
+  public void testOutdated() throws Exception {
+    IdLookupSnapshot.write(lookup, 7, false, file);
+    assertNull(IdLookupSnapshot.read(file, 8, false));
+    assertNull(IdLookupSnapshot.read(file, 7, true));
+  }
+
+  @Test
+  public void testCorrupt() throws Exception {
+    IdLookupSnapshot.write(lookup, 7, false, file);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(raf.length() - 3);
+      raf.write('X');
+    }
+    assertNull(IdLookupSnapshot.read(file, 7, false));
+  }
+}
@@ -0,0 +1,115 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class ParallelLookupLoaderTest {
+
+  /**
+   * Loader reading from an in memory list of usages instead of postgres,
+   * merging all usage keys by their normalized name.
+   */
+  static class ListLoader extends ParallelLookupLoader {
+    private final List<LookupUsage> usages;
+    private final Thread loadingThread = Thread.currentThread();
+    final Map<String, List<Integer>> keys = Maps.newTreeMap();
+
+    ListLoader(List<LookupUsage> usages, int threads) {
+      super(null, true, threads);
+      this.usages = usages;
+    }
+
+    @Override
+    int[] keyRange() throws SQLException {
+      if (usages.isEmpty()) {
+        return null;
+      }
+      return new int[]{usages.get(0).getKey(), usages.get(usages.size() - 1).getKey()};
+    }
+
+    @Override
+    void read(LookupUsageReader reader, int fromKey, int toKey) throws SQLException, IOException {
+      for (LookupUsage u : usages) {
+        if (u.getKey() >= fromKey && u.getKey() < toKey) {
+          reader.handle(u);
+        }
+      }
+    }
+
+    @Override
+    void merge(String norm, List<LookupUsage> group) {
+      assertSame(loadingThread, Thread.currentThread());
+      List<Integer> existing = keys.get(norm);
+      if (existing == null) {
+        existing = Lists.newArrayList();
+        keys.put(norm, existing);
+      }
+      for (LookupUsage u : group) {
+        existing.add(u.getKey());
+      }
+      // chunks complete in any order
+      Collections.sort(existing);
+    }
+  }
+
+  /**
+   * @return usages with keys from start in steps of step, sharing names across all key ranges
+   */
+  private static List<LookupUsage> usages(int start, int count, int step) {
+    List<LookupUsage> usages = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      int key = start + i * step;
+      usages.add(new LookupUsage(key, "Abies name" + (i % 500), null, null, Rank.SPECIES, Kingdom.PLANTAE, false));
+    }
+    return usages;
+  }
+
+  private static void assertSameLoad(List<LookupUsage> usages) throws Exception {
+    ListLoader single = new ListLoader(usages, 1);
+    assertEquals(usages.size(), single.load());
+
+    ListLoader parallel = new ListLoader(usages, 4);
+    assertEquals(usages.size(), parallel.load());
+
+    assertFalse(single.keys.isEmpty());
+    assertEquals(single.keys, parallel.keys);
+  }
+
+  @Test
+  public void testDenseRange() throws Exception {
+    assertSameLoad(usages(1, 100000, 1));
+  }
+
+  @Test
+  public void testSparseRange() throws Exception {
+    // keys spread over 5 million with large gaps leaving many chunks empty
+    List<LookupUsage> usages = usages(10, 2000, 997);
+    usages.addAll(usages(4000000, 1000, 1000));
+    assertSameLoad(usages);
+  }
+
+  @Test
+  public void testRangeSmallerThanChunk() throws Exception {
+    assertSameLoad(usages(100, 50, 1));
+    assertSameLoad(usages(7, 1, 1));
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    assertEquals(0, new ListLoader(Lists.<LookupUsage>newArrayList(), 4).load());
+  }
+}
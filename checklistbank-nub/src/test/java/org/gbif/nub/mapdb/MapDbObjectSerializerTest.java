@@ -5,16 +5,23 @@ import org.gbif.api.vocabulary.Rank;
 import org.gbif.nub.lookup.straight.LookupKryoFactory;
 import org.gbif.nub.lookup.straight.LookupUsage;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.Serializer;
 import org.mapdb.serializer.SerializerJava;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class MapDbObjectSerializerTest {
 
@@ -58,6 +65,50 @@ public class MapDbObjectSerializerTest {
 
   }
 
+  /**
+   * Makes sure reused thread local buffers work for objects larger than the initial buffer and concurrent access.
+   */
+  @Test
+  public void testReusedBuffers() throws Exception {
+    DB db = DBMaker.memoryDB().make();
+    final Map<Long, LookupUsage> kvp = db.hashMap("usages")
+        .keySerializer(Serializer.LONG)
+        .valueSerializer(new MapDbObjectSerializer<LookupUsage>(LookupUsage.class,
+            new KryoPool.Builder(new LookupKryoFactory()).build(), 16))
+        .createOrOpen();
+
+    List<Thread> threads = Lists.newArrayList();
+    final List<Throwable> errors = Collections.synchronizedList(Lists.<Throwable>newArrayList());
+    for (int t = 0; t < 4; t++) {
+      final int offset = t * 1000;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int x = offset; x < offset + 1000; x++) {
+              LookupUsage u = usage(x);
+              // alternate small and very large objects
+              u.setAuthorship(Strings.repeat("Mill.", x % 7 == 0 ? 2000 : 1));
+              kvp.put((long) x, u);
+              assertEquals(u, kvp.get((long) x));
+            }
+          } catch (Throwable e) {
+            errors.add(e);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(errors.toString(), errors.isEmpty());
+    assertEquals(4000, kvp.size());
+    assertEquals(Strings.repeat("Mill.", 2000), kvp.get(7L).getAuthorship());
+    db.close();
+  }
+
   private void logRate(String name, long start) {
     System.out.print(name);
     System.out.print(": ");